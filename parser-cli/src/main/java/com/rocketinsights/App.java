@@ -1,6 +1,9 @@
 package com.rocketinsights;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -14,10 +17,14 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import com.rocketinsights.core.event.WaitStrategy;
 import com.rocketinsights.core.exception.ProcessingException;
-import com.rocketinsights.core.parser.Parser;
+import com.rocketinsights.core.metrics.InMemoryParserMetrics;
 import com.rocketinsights.core.parser.DefaultParser;
+import com.rocketinsights.core.parser.ParseTarget;
 import com.rocketinsights.core.parser.SupportedFormat;
+import com.rocketinsights.core.reader.PathProjection;
+import com.rocketinsights.core.reader.ReaderFactory;
 
 @SpringBootApplication
 public class App implements CommandLineRunner {
@@ -32,6 +39,19 @@ public class App implements CommandLineRunner {
 	private static final String OUTPUT_LONG = "output";
 	private static final String FORMAT_SHORT = "f";
 	private static final String FORMAT_LONG = "format";
+	private static final String SORT_SHORT = "s";
+	private static final String SORT_LONG = "sort";
+	private static final String SORTED_LONG = "sorted";
+	private static final String CHUNK_LONG = "chunk";
+	private static final String PIPELINE_SHORT = "p";
+	private static final String PIPELINE_LONG = "pipeline";
+	private static final String INCLUDE_LONG = "include";
+	private static final String EXCLUDE_LONG = "exclude";
+	private static final String GZIP_BLOCK_LONG = "gzip-block";
+	private static final String METRICS_SHORT = "m";
+	private static final String METRICS_LONG = "metrics";
+	private static final long MEGABYTE = 1024L * 1024;
+	private static final int KILOBYTE = 1024;
 
 	public static void main(String[] args) {
 		SpringApplication.run(App.class, args);
@@ -52,49 +72,208 @@ public class App implements CommandLineRunner {
 		CommandLine commandLine = readAndValidateCmd(args);
 
 		String inputFile = commandLine.getOptionValue(INPUT_LONG);
-		String outputFile = commandLine.getOptionValue(OUTPUT_LONG);
+		String[] outputFiles = commandLine.getOptionValues(OUTPUT_LONG);
+		String[] formats = commandLine.getOptionValues(FORMAT_LONG);
 
-		Parser parser = new DefaultParser();
-		SupportedFormat format = SupportedFormat.valueOf(commandLine.getOptionValue(FORMAT_LONG));
-		LOG.info("Starting parsing process for input file [{}], output file [{}] and format [{}]", inputFile,
-				outputFile, format);
-		parser.parse(inputFile, outputFile, format);
+		ReaderFactory readerFactory = new ReaderFactory();
+		if (commandLine.hasOption(SORT_LONG)) {
+			readerFactory.sortingProperties(Long.parseLong(commandLine.getOptionValue(SORT_LONG)) * MEGABYTE);
+		}
+		if (commandLine.hasOption(SORTED_LONG)) {
+			readerFactory.sortedProperties();
+		}
+		if (commandLine.hasOption(CHUNK_LONG)) {
+			readerFactory.chunkingValues(Integer.parseInt(commandLine.getOptionValue(CHUNK_LONG)));
+		}
+		DefaultParser parser = new DefaultParser(readerFactory);
+		if (commandLine.hasOption(PIPELINE_LONG)) {
+			parser.pipelined(Integer.parseInt(commandLine.getOptionValue(PIPELINE_LONG)), WaitStrategy.SLEEPING);
+		}
+		if (commandLine.hasOption(INCLUDE_LONG) || commandLine.hasOption(EXCLUDE_LONG)) {
+			parser.projecting(projection(commandLine));
+		}
+		if (commandLine.hasOption(GZIP_BLOCK_LONG)) {
+			parser.compressingInParallel(Integer.parseInt(commandLine.getOptionValue(GZIP_BLOCK_LONG)) * KILOBYTE);
+		}
+		InMemoryParserMetrics metrics = null;
+		if (commandLine.hasOption(METRICS_LONG)) {
+			metrics = new InMemoryParserMetrics();
+			parser.metering(metrics);
+		}
+		if (outputFiles.length == 1) {
+			String outputFile = outputFiles[0];
+			SupportedFormat format = SupportedFormat.valueOf(formats[0]);
+			LOG.info("Starting parsing process for input file [{}], output file [{}] and format [{}]", inputFile,
+					outputFile, format);
+			parser.parse(inputFile, outputFile, format);
+		} else {
+			// read the input once for all the outputs
+			List<ParseTarget> targets = new ArrayList<>();
+			for (int i = 0; i < outputFiles.length; i++) {
+				targets.add(new ParseTarget(SupportedFormat.valueOf(formats[i]), outputFiles[i]));
+			}
+			LOG.info("Starting parsing process for input file [{}] and targets {}", inputFile, targets);
+			parser.parse(inputFile, targets);
+		}
 
-		LOG.info("Parsing process ended SUCCESSFULLY. File [{}] was created.", outputFile);
+		LOG.info("Parsing process ended SUCCESSFULLY. Files {} were created.", Arrays.toString(outputFiles));
+		if (metrics != null) {
+			LOG.info("Metrics: {}", metrics);
+		}
 	}
 
 	private static CommandLine readAndValidateCmd(String[] args) throws ParseException {
 		Options options = new Options();
 
-		Option input = new Option(INPUT_SHORT, INPUT_LONG, true, "input file path");
+		Option input = new Option(INPUT_SHORT, INPUT_LONG, true,
+				"input file path. Gzip or zlib compressed files are inflated on the fly, config.xml.gz being read as XML.");
 		input.setRequired(true);
 		options.addOption(input);
 
-		Option output = new Option(OUTPUT_SHORT, OUTPUT_LONG, true, "output file");
+		Option output = new Option(OUTPUT_SHORT, OUTPUT_LONG, true,
+				"output file, or comma separated output files, one for each format. Files ending with .gz are written gzip compressed.");
 		output.setRequired(true);
+		output.setArgs(Option.UNLIMITED_VALUES);
+		output.setValueSeparator(',');
 		options.addOption(output);
 
-		Option format = new Option(FORMAT_SHORT, FORMAT_LONG, true, "format - one of XML, JSON or PROPERTY.");
+		Option format = new Option(FORMAT_SHORT, FORMAT_LONG, true,
+				"format - one of XML, JSON or PROPERTY. Comma separated to convert to several formats at once.");
 		format.setRequired(true);
+		format.setArgs(Option.UNLIMITED_VALUES);
+		format.setValueSeparator(',');
 		options.addOption(format);
 
+		Option sort = new Option(SORT_SHORT, SORT_LONG, true,
+				"sort properties input by key before parsing, using at most the given memory in MB.");
+		options.addOption(sort);
+
+		Option sorted = new Option(null, SORTED_LONG, false,
+				"properties input is already sorted by key, validate it with flat memory.");
+		options.addOption(sorted);
+
+		Option chunk = new Option(null, CHUNK_LONG, true,
+				"read XML and JSON values longer than the given number of characters in fragments, never holding them whole.");
+		options.addOption(chunk);
+
+		Option pipeline = new Option(PIPELINE_SHORT, PIPELINE_LONG, true,
+				"read and write on separate threads, reading up to the given number of events ahead (a power of two).");
+		options.addOption(pipeline);
+
+		Option include = new Option(null, INCLUDE_LONG, true,
+				"comma separated paths below the root node to convert, * matching any name. Everything else is skipped.");
+		include.setArgs(Option.UNLIMITED_VALUES);
+		include.setValueSeparator(',');
+		options.addOption(include);
+
+		Option exclude = new Option(null, EXCLUDE_LONG, true,
+				"comma separated paths below the root node to skip, * matching any name.");
+		exclude.setArgs(Option.UNLIMITED_VALUES);
+		exclude.setValueSeparator(',');
+		options.addOption(exclude);
+
+		Option gzipBlock = new Option(null, GZIP_BLOCK_LONG, true,
+				"compress .gz outputs on all cores, in independent blocks of the given size in KB.");
+		options.addOption(gzipBlock);
+
+		Option metrics = new Option(METRICS_SHORT, METRICS_LONG, false,
+				"log the bytes and events read, the time spent writing and the bytes written once done.");
+		options.addOption(metrics);
+
 		try {
 			CommandLineParser commandLineParser = new org.apache.commons.cli.DefaultParser();
 			CommandLine commandLine = commandLineParser.parse(options, args);
 
-			String f = commandLine.getOptionValue(FORMAT_LONG);
+			String[] fs = commandLine.getOptionValues(FORMAT_LONG);
+
+			if (commandLine.hasOption(SORT_LONG)) {
+				try {
+					if (Long.parseLong(commandLine.getOptionValue(SORT_LONG)) <= 0) {
+						throw new ParseException("Invalid value for arg s.");
+					}
+				} catch (NumberFormatException e) {
+					throw new ParseException("Invalid value for arg s.");
+				}
+			}
+
+			if (commandLine.hasOption(CHUNK_LONG)) {
+				try {
+					if (Integer.parseInt(commandLine.getOptionValue(CHUNK_LONG)) < 2) {
+						throw new ParseException("Invalid value for arg chunk.");
+					}
+				} catch (NumberFormatException e) {
+					throw new ParseException("Invalid value for arg chunk.");
+				}
+			}
+
+			if (commandLine.hasOption(PIPELINE_LONG)) {
+				try {
+					int capacity = Integer.parseInt(commandLine.getOptionValue(PIPELINE_LONG));
+					if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+						throw new ParseException("Invalid value for arg p.");
+					}
+				} catch (NumberFormatException e) {
+					throw new ParseException("Invalid value for arg p.");
+				}
+			}
 
-			for (SupportedFormat supportedFormat : SupportedFormat.values()) {
-				if (supportedFormat.name().equals(f)) {
-					return commandLine;
+			if (commandLine.hasOption(GZIP_BLOCK_LONG)) {
+				try {
+					int blockSize = Integer.parseInt(commandLine.getOptionValue(GZIP_BLOCK_LONG));
+					if (blockSize <= 0 || blockSize > Integer.MAX_VALUE / KILOBYTE) {
+						throw new ParseException("Invalid value for arg gzip-block.");
+					}
+				} catch (NumberFormatException e) {
+					throw new ParseException("Invalid value for arg gzip-block.");
 				}
 			}
 
-			throw new ParseException("Invalid value for arg f.");
+			if (commandLine.hasOption(INCLUDE_LONG) || commandLine.hasOption(EXCLUDE_LONG)) {
+				try {
+					projection(commandLine);
+				} catch (IllegalArgumentException e) {
+					throw new ParseException("Invalid value for args include or exclude. " + e.getMessage());
+				}
+			}
+
+			if (fs.length != commandLine.getOptionValues(OUTPUT_LONG).length) {
+				throw new ParseException("Args f and o must have the same number of values.");
+			}
+
+			for (String f : fs) {
+				if (!isSupported(f)) {
+					throw new ParseException("Invalid value for arg f.");
+				}
+			}
+			return commandLine;
 		} catch (ParseException e) {
 			HelpFormatter formatter = new HelpFormatter();
 			formatter.printHelp(UTILITY_NAME, options);
 			throw e;
 		}
 	}
+
+	private static PathProjection projection(CommandLine commandLine) {
+		PathProjection projection = new PathProjection();
+		if (commandLine.hasOption(INCLUDE_LONG)) {
+			for (String path : commandLine.getOptionValues(INCLUDE_LONG)) {
+				projection.include(path);
+			}
+		}
+		if (commandLine.hasOption(EXCLUDE_LONG)) {
+			for (String path : commandLine.getOptionValues(EXCLUDE_LONG)) {
+				projection.exclude(path);
+			}
+		}
+		return projection;
+	}
+
+	private static boolean isSupported(String format) {
+		for (SupportedFormat supportedFormat : SupportedFormat.values()) {
+			if (supportedFormat.name().equals(format)) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -1,40 +1,170 @@
 package com.rocketinsights.core.domain;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import com.rocketinsights.core.event.SymbolTable;
 import com.rocketinsights.core.exception.InvalidFormatException;
 
 public class Property {
 
-	private static final String VALIDATION_REGEX = "^(?!.*?\\.\\.)([\\w\\.]+?)(?<!\\.)(?<!\\.{2,})\\s*=\\s*\\\"([^\\\"]+?)\\\"\\s*$";
+	private static final char POINT = '.';
 
-	private static final Pattern PATTERN = Pattern.compile(VALIDATION_REGEX);
+	private static final char EQUALS = '=';
 
-	private static final String POINT_REGEX = "\\.";
+	private static final char QUOTE = '"';
 
 	private List<String> path;
 
+	private int[] symbols;
+
 	private String value;
 
 	private Property() {
 	}
 
+	/**
+	 * Parses a line with the format <code>a.b.c = "value"</code>. The key is made
+	 * of word characters ([a-zA-Z_0-9]) separated by single points, it can't end
+	 * with a point and the line can't contain two consecutive points at all. The
+	 * value is any non empty sequence of characters between quotes. Whitespace is
+	 * allowed around the equals sign and after the value.
+	 * 
+	 * The line is scanned in a single pass, splitting the key into its path
+	 * segments on the way.
+	 * 
+	 * @param value the line to parse
+	 * @return the parsed {@link Property}
+	 * @throws InvalidFormatException if the line does not match the format
+	 */
 	public static Property of(String value) {
-		Matcher matcher = PATTERN.matcher(value);
+		return of(value, null);
+	}
+
+	/**
+	 * Same as {@link #of(String)}, interning the path segments in a
+	 * {@link SymbolTable} straight from the line. Segments seen before are not
+	 * copied again and are shared with every other property using them.
+	 * 
+	 * @param value   the line to parse
+	 * @param symbols the table to intern the path segments in, or null to not
+	 *                intern them
+	 * @return the parsed {@link Property}
+	 * @throws InvalidFormatException if the line does not match the format
+	 */
+	public static Property of(String value, SymbolTable symbols) {
+		int length = value.length();
+		List<String> path = new ArrayList<>();
+		int[] pathSymbols = symbols == null ? null : new int[8];
+		int segmentStart = 0;
+		// once a line terminator is found, consecutive points are no longer checked
+		boolean checkPoints = true;
+		char previous = 0;
+		int i = 0;
+
+		// key
+		while (i < length && isKeyChar(value.charAt(i))) {
+			char c = value.charAt(i);
+			if (c == POINT) {
+				if (previous == POINT) {
+					throw invalid(value);
+				}
+				pathSymbols = addSegment(value, segmentStart, i, path, symbols, pathSymbols);
+				segmentStart = i + 1;
+			}
+			previous = c;
+			i++;
+		}
+		if (i == 0 || previous == POINT) {
+			throw invalid(value);
+		}
+		pathSymbols = addSegment(value, segmentStart, i, path, symbols, pathSymbols);
+
+		// separator
+		while (i < length && isWhitespace(value.charAt(i))) {
+			checkPoints &= !isLineTerminator(value.charAt(i));
+			i++;
+		}
+		if (i == length || value.charAt(i) != EQUALS) {
+			throw invalid(value);
+		}
+		i++;
+		while (i < length && isWhitespace(value.charAt(i))) {
+			checkPoints &= !isLineTerminator(value.charAt(i));
+			i++;
+		}
+		if (i == length || value.charAt(i) != QUOTE) {
+			throw invalid(value);
+		}
+		i++;
+
+		// value
+		int valueStart = i;
+		previous = 0;
+		while (i < length && value.charAt(i) != QUOTE) {
+			char c = value.charAt(i);
+			if (checkPoints) {
+				if (c == POINT && previous == POINT) {
+					throw invalid(value);
+				}
+				checkPoints = !isLineTerminator(c);
+			}
+			previous = c;
+			i++;
+		}
+		int valueEnd = i;
+		if (i == length || valueEnd == valueStart) {
+			throw invalid(value);
+		}
+		i++;
+
+		// trailing whitespace
+		while (i < length && isWhitespace(value.charAt(i))) {
+			i++;
+		}
+		if (i != length) {
+			throw invalid(value);
+		}
+
 		Property property = new Property();
-		if (matcher.matches()) {
-			List<String> split = Collections.unmodifiableList(Arrays.asList(matcher.group(1).split(POINT_REGEX)));
-			property.path = split;
-			property.value = matcher.group(2);
-			return property;
+		property.path = Collections.unmodifiableList(path);
+		property.symbols = pathSymbols == null ? null : Arrays.copyOf(pathSymbols, path.size());
+		property.value = value.substring(valueStart, valueEnd);
+		return property;
+	}
+
+	private static int[] addSegment(String value, int start, int end, List<String> path, SymbolTable symbols,
+			int[] pathSymbols) {
+		if (symbols == null) {
+			path.add(value.substring(start, end));
+			return null;
 		}
+		int symbol = symbols.intern(value, start, end);
+		if (path.size() == pathSymbols.length) {
+			pathSymbols = Arrays.copyOf(pathSymbols, path.size() * 2);
+		}
+		pathSymbols[path.size()] = symbol;
+		path.add(symbols.name(symbol));
+		return pathSymbols;
+	}
+
+	private static boolean isKeyChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == POINT;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
 
-		throw new InvalidFormatException(
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	private static InvalidFormatException invalid(String value) {
+		return new InvalidFormatException(
 				String.format("The format of property %s looks invalid. Please check.", value));
 	}
 
@@ -42,6 +172,14 @@ public class Property {
 		return path;
 	}
 
+	/**
+	 * @return the symbol of each path segment, or null if the property was
+	 *         parsed without a {@link SymbolTable}
+	 */
+	public int[] getSymbols() {
+		return symbols;
+	}
+
 	public String getValue() {
 		return value;
 	}
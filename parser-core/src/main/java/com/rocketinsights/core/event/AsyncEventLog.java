@@ -0,0 +1,245 @@
+package com.rocketinsights.core.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.rocketinsights.core.event.handler.EventHandler;
+import com.rocketinsights.core.exception.ProcessingException;
+import com.rocketinsights.core.metrics.NoopParserMetrics;
+import com.rocketinsights.core.metrics.ParserMetrics;
+
+/**
+ * {@link EventLog} that hands the events pushed to it over to a dedicated
+ * consumer thread, which drives the handlers. The thread pushing events, usually
+ * a reader, can then go on parsing while the previous events are being
+ * formatted on another core.
+ * <p>
+ * Events travel through a ring buffer of preallocated {@link Event} slots,
+ * written by a single producer and read by a single consumer, so handing an
+ * event over doesn't allocate nor lock. The consumer hands every run of
+ * events published meanwhile to {@link EventHandler#handleBatch} straight from
+ * the ring: the events are only meaningful while being handled and are reused
+ * once the handler returns.
+ * <p>
+ * The consumer is started by the first event pushed, handlers have to be added
+ * before. {@link #close()} waits for every pushed event to be handled. When a
+ * handler fails, the consumer stops and the error is thrown back to the
+ * producer, either by a later {@link #push(Event)} or by {@link #close()}.
+ *
+ * @author fbonecco
+ *
+ */
+public class AsyncEventLog implements EventLog, AutoCloseable {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final AtomicInteger CONSUMERS = new AtomicInteger();
+
+	private final Event[] slots;
+
+	private final int mask;
+
+	private final WaitStrategy waitStrategy;
+
+	private final List<EventHandler> handlers;
+
+	private final ParserMetrics metrics;
+
+	/**
+	 * Sequence of the last event published by the producer.
+	 */
+	private final AtomicLong published = new AtomicLong(-1);
+
+	/**
+	 * Sequence of the last event handled by the consumer, whose slot can be
+	 * reused.
+	 */
+	private final AtomicLong consumed = new AtomicLong(-1);
+
+	// last sequences the producer wrote and saw consumed, only used by the producer
+	private long sequence = -1;
+	private long consumedCache = -1;
+
+	// most events published and not handled yet seen by the producer, when metered
+	private long peakBuffered;
+
+	private Thread consumer;
+
+	private volatile boolean closed;
+
+	private volatile ProcessingException failure;
+
+	private boolean failureReported;
+
+	public AsyncEventLog() {
+		this(DEFAULT_CAPACITY, WaitStrategy.SLEEPING);
+	}
+
+	/**
+	 * @param capacity     number of events that can be waiting to be handled, a
+	 *                     power of two
+	 * @param waitStrategy how both threads wait for each other
+	 */
+	public AsyncEventLog(int capacity, WaitStrategy waitStrategy) {
+		this(capacity, waitStrategy, NoopParserMetrics.INSTANCE);
+	}
+
+	/**
+	 * @param capacity     number of events that can be waiting to be handled, a
+	 *                     power of two
+	 * @param waitStrategy how both threads wait for each other
+	 * @param metrics      receives the highest number of events waiting to be
+	 *                     handled at once, when the log is closed
+	 */
+	public AsyncEventLog(int capacity, WaitStrategy waitStrategy, ParserMetrics metrics) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException(String.format("Invalid capacity [%d].", capacity));
+		}
+		this.slots = new Event[capacity];
+		for (int i = 0; i < capacity; i++) {
+			slots[i] = new Event(null);
+		}
+		this.mask = capacity - 1;
+		this.waitStrategy = waitStrategy;
+		this.handlers = new ArrayList<>();
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void push(Event event) throws ProcessingException {
+		publish(event.getEventType(), event.getName(), event.getSymbol(), event.getData(), event.isPartial());
+	}
+
+	/**
+	 * Copies the event the cursor is positioned on into the next slot.
+	 */
+	@Override
+	public void push(EventCursor cursor) throws ProcessingException {
+		publish(cursor.eventType(), cursor.name(), cursor.symbol(), cursor.data(), cursor.partial());
+	}
+
+	@Override
+	public void addHandler(EventHandler eventHandler) {
+		if (consumer != null) {
+			throw new IllegalStateException("Handlers can't be added once events were pushed.");
+		}
+		handlers.add(eventHandler);
+	}
+
+	/**
+	 * Waits until every event pushed was handled and stops the consumer.
+	 *
+	 * @throws ProcessingException if a handler failed and the error wasn't thrown
+	 *                             by {@link #push(Event)} already
+	 */
+	@Override
+	public void close() throws ProcessingException {
+		if (!closed) {
+			closed = true;
+			if (consumer != null) {
+				awaitConsumer();
+			}
+			if (metrics.isEnabled()) {
+				metrics.peakBufferedEvents(peakBuffered);
+			}
+		}
+		if (failure != null && !failureReported) {
+			failureReported = true;
+			throw failure;
+		}
+	}
+
+	private void publish(EventType eventType, String name, int symbol, String data, boolean partial)
+			throws ProcessingException {
+		if (closed) {
+			throw new IllegalStateException("The event log is closed.");
+		}
+		if (consumer == null) {
+			start();
+		}
+		long next = sequence + 1;
+		long wrapPoint = next - slots.length;
+		if (consumedCache < wrapPoint) {
+			int attempt = 0;
+			while ((consumedCache = consumed.get()) < wrapPoint) {
+				if (failure != null) {
+					failureReported = true;
+					throw failure;
+				}
+				waitStrategy.idle(attempt++);
+			}
+		}
+		slots[(int) next & mask].set(eventType, name, symbol, data, partial);
+		published.lazySet(next);
+		sequence = next;
+		if (metrics.isEnabled()) {
+			peakBuffered = Math.max(peakBuffered, next - consumed.get());
+		}
+	}
+
+	private void start() {
+		EventHandler[] snapshot = handlers.toArray(new EventHandler[0]);
+		consumer = new Thread(() -> consume(snapshot), "event-log-consumer-" + CONSUMERS.incrementAndGet());
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+
+	private void consume(EventHandler[] eventHandlers) {
+		long next = 0;
+		int attempt = 0;
+		try {
+			while (true) {
+				long available = published.get();
+				if (available < next) {
+					// whatever was published before closing is visible once closed is
+					if (closed && published.get() < next) {
+						return;
+					}
+					waitStrategy.idle(attempt++);
+					continue;
+				}
+				attempt = 0;
+				// hand the events over in one batch per contiguous run of slots
+				while (next <= available) {
+					int from = (int) next & mask;
+					int to = (int) Math.min(available - next + 1, slots.length - from) + from;
+					dispatch(eventHandlers, from, to);
+					next += to - from;
+				}
+				consumed.lazySet(available);
+			}
+		} catch (ProcessingException e) {
+			failure = e;
+		} catch (Throwable e) {
+			failure = new ProcessingException("An error occurred while handling the events", e);
+		}
+	}
+
+	private void dispatch(EventHandler[] eventHandlers, int from, int to) throws ProcessingException {
+		for (EventHandler handler : eventHandlers) {
+			try {
+				handler.handleBatch(slots, from, to);
+			} catch (Exception e) {
+				throw new ProcessingException(
+						String.format("An error occurred while handling a batch of [%d] events", to - from), e);
+			}
+		}
+	}
+
+	private void awaitConsumer() {
+		boolean interrupted = false;
+		while (consumer.isAlive()) {
+			try {
+				consumer.join();
+			} catch (InterruptedException e) {
+				// the consumer still writes to resources the caller is about to release
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
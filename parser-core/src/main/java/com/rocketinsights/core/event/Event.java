@@ -8,8 +8,12 @@ public class Event {
 
 	private String name;
 
+	private int symbol = SymbolTable.NO_SYMBOL;
+
 	private String data;
 
+	private boolean partial;
+
 	public Event(EventType eventType) {
 		super();
 		this.eventType = eventType;
@@ -22,6 +26,35 @@ public class Event {
 		this.data = data;
 	}
 
+	/**
+	 * @param symbol the symbol of the name within the {@link SymbolTable} of the
+	 *               document the event belongs to
+	 */
+	public Event(EventType eventType, String name, int symbol, String data) {
+		this(eventType, name, data);
+		this.symbol = symbol;
+	}
+
+	/**
+	 * @param partial whether the value is a fragment continued by the next event,
+	 *                see {@link EventCursor#partial()}
+	 */
+	public Event(EventType eventType, String name, int symbol, String data, boolean partial) {
+		this(eventType, name, symbol, data);
+		this.partial = partial;
+	}
+
+	/**
+	 * Reuses the event for another one, see {@link AsyncEventLog}.
+	 */
+	void set(EventType eventType, String name, int symbol, String data, boolean partial) {
+		this.eventType = eventType;
+		this.name = name;
+		this.symbol = symbol;
+		this.data = data;
+		this.partial = partial;
+	}
+
 	public EventType getEventType() {
 		return eventType;
 	}
@@ -30,10 +63,25 @@ public class Event {
 		return name;
 	}
 
+	/**
+	 * @return the symbol of the name, or {@link SymbolTable#NO_SYMBOL} if it
+	 *         wasn't interned
+	 */
+	public int getSymbol() {
+		return symbol;
+	}
+
 	public String getData() {
 		return data;
 	}
 
+	/**
+	 * @return whether the value is a fragment continued by the next event
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (o == null)
@@ -44,16 +92,17 @@ public class Event {
 			return false;
 		Event obj = (Event) o;
 		return Objects.equals(eventType, obj.eventType) && Objects.equals(name, obj.name)
-				&& Objects.equals(data, obj.data);
+				&& Objects.equals(data, obj.data) && partial == obj.partial;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(eventType, name, data);
+		return Objects.hash(eventType, name, data, partial);
 	}
 
 	@Override
 	public String toString() {
-		return "Event [eventType=" + eventType + ", name=" + name + ", data=" + data + "]";
+		return "Event [eventType=" + eventType + ", name=" + name + ", data=" + data
+				+ (partial ? ", partial" : "") + "]";
 	}
 }
@@ -0,0 +1,73 @@
+package com.rocketinsights.core.event;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.rocketinsights.core.exception.ProcessingException;
+
+/**
+ * Pull-based view over the series of events found in a document. A cursor is
+ * a single mutable object positioned on one event at a time: {@link #next()}
+ * moves it forward and the accessors describe the event it is positioned on,
+ * so walking a document doesn't allocate an {@link Event} per token.
+ * 
+ * Values returned by the accessors are only meaningful until the next call to
+ * {@link #next()}. Callers that need to keep an event around should copy it
+ * with {@link #toEvent()}.
+ * 
+ * @author fbonecco
+ *
+ */
+public interface EventCursor extends Closeable {
+
+	/**
+	 * Moves the cursor to the next event.
+	 * 
+	 * @return false once the cursor has moved past the last event, which is
+	 *         always {@link EventType#DOC_ENDED}
+	 */
+	public boolean next() throws IOException, ProcessingException;
+
+	public EventType eventType();
+
+	/**
+	 * @return the name of the node being opened or closed, null for any other
+	 *         event
+	 */
+	public String name();
+
+	/**
+	 * @return the symbol of {@link #name()} within the {@link SymbolTable} of
+	 *         the document, or {@link SymbolTable#NO_SYMBOL} for events without
+	 *         a name
+	 */
+	public int symbol();
+
+	/**
+	 * @return the value being added, null for any other event
+	 */
+	public String data();
+
+	/**
+	 * @return the value being added as UTF-8 bytes, when the reader has them at
+	 *         hand as they are in the document, otherwise null, in which case
+	 *         {@link #data()} is to be used. Lets the value be written without
+	 *         being decoded.
+	 */
+	public default Utf8Slice dataBytes() {
+		return null;
+	}
+
+	/**
+	 * @return whether the value being added is a fragment of a longer one,
+	 *         continued by the next event, which happens when the reader delivers
+	 *         values in chunks. The last fragment of a value is not partial.
+	 */
+	public default boolean partial() {
+		return false;
+	}
+
+	public default Event toEvent() {
+		return new Event(eventType(), name(), symbol(), data(), partial());
+	}
+}
@@ -7,5 +7,23 @@ public interface EventLog {
 
 	public void push(Event event) throws ProcessingException;
 
+	/**
+	 * Pushes the event a cursor is positioned on. Logs able to copy it somewhere
+	 * else may avoid creating an {@link Event} for it.
+	 */
+	public default void push(EventCursor cursor) throws ProcessingException {
+		push(cursor.toEvent());
+	}
+
+	/**
+	 * Pushes the events of an array between from (inclusive) and to (exclusive),
+	 * in order. The array may be reused by the caller once this method returns.
+	 */
+	public default void pushBatch(Event[] events, int from, int to) throws ProcessingException {
+		for (int i = from; i < to; i++) {
+			push(events[i]);
+		}
+	}
+
 	public void addHandler(EventHandler eventHandler);
 }
@@ -26,6 +26,22 @@ public class SimpleEventLog implements EventLog {
 		}
 	}
 
+	/**
+	 * Hands the whole batch to each handler in turn, so a handler only sees the
+	 * batch once the previous ones have handled all of it.
+	 */
+	@Override
+	public void pushBatch(Event[] events, int from, int to) throws ProcessingException {
+		for (EventHandler handler : handlers) {
+			try {
+				handler.handleBatch(events, from, to);
+			} catch (Exception e) {
+				throw new ProcessingException(
+						String.format("An error occurred while handling a batch of [%d] events", to - from), e);
+			}
+		}
+	}
+
 	@Override
 	public void addHandler(EventHandler eventHandler) {
 		handlers.add(eventHandler);
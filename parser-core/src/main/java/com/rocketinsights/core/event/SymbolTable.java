@@ -0,0 +1,182 @@
+package com.rocketinsights.core.event;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Assigns a small int, a symbol, to each distinct node name found in a
+ * document. Names are interned the first time they are seen and every later
+ * occurrence resolves to the same symbol and the same {@link String} instance,
+ * so documents repeating a few hundred names millions of times keep a single
+ * copy of each and can compare them as ints.
+ *
+ * Symbols are only meaningful within the table that issued them. A table is
+ * meant to be used by a single thread.
+ *
+ * @author fbonecco
+ *
+ */
+public class SymbolTable {
+
+	/**
+	 * Symbol of events that don't carry a name, or whose name was not interned.
+	 */
+	public static final int NO_SYMBOL = -1;
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	private String[] names;
+
+	private int[] hashes;
+
+	private int size;
+
+	// open addressing table holding symbol + 1 per slot, 0 for empty slots
+	private int[] slots;
+
+	public SymbolTable() {
+		names = new String[INITIAL_CAPACITY];
+		hashes = new int[INITIAL_CAPACITY];
+		slots = new int[INITIAL_CAPACITY * 2];
+	}
+
+	/**
+	 * @return the symbol of the given name, interning it if it was not seen
+	 *         before
+	 */
+	public int intern(String name) {
+		int hash = name.hashCode();
+		int mask = slots.length - 1;
+		for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask) {
+			int symbol = slots[slot] - 1;
+			if (symbol == NO_SYMBOL) {
+				return add(name, hash, slot);
+			}
+			if (hashes[symbol] == hash && names[symbol].equals(name)) {
+				return symbol;
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link #intern(String)} for the characters between start
+	 * (inclusive) and end (exclusive) of a sequence. A new {@link String} is only
+	 * created the first time a name is seen.
+	 */
+	public int intern(CharSequence chars, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + chars.charAt(i);
+		}
+		int mask = slots.length - 1;
+		for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask) {
+			int symbol = slots[slot] - 1;
+			if (symbol == NO_SYMBOL) {
+				return add(chars.subSequence(start, end).toString(), hash, slot);
+			}
+			if (hashes[symbol] == hash && matches(names[symbol], chars, start, end)) {
+				return symbol;
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link #intern(String)} for the UTF-8 encoded bytes between start
+	 * (inclusive) and end (exclusive) of an array. ASCII names, by far the most
+	 * common, are hashed and compared straight from the bytes and only decoded
+	 * the first time they are seen; any other name is decoded every time.
+	 */
+	public int intern(byte[] utf8, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			byte b = utf8[i];
+			if (b < 0) {
+				return intern(new String(utf8, start, end - start, StandardCharsets.UTF_8));
+			}
+			hash = 31 * hash + b;
+		}
+		int mask = slots.length - 1;
+		for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask) {
+			int symbol = slots[slot] - 1;
+			if (symbol == NO_SYMBOL) {
+				return add(new String(utf8, start, end - start, StandardCharsets.ISO_8859_1), hash, slot);
+			}
+			if (hashes[symbol] == hash && matches(names[symbol], utf8, start, end)) {
+				return symbol;
+			}
+		}
+	}
+
+	/**
+	 * @return the name a symbol stands for
+	 */
+	public String name(int symbol) {
+		if (symbol < 0 || symbol >= size) {
+			throw new IllegalArgumentException(String.format("Unknown symbol [%d].", symbol));
+		}
+		return names[symbol];
+	}
+
+	/**
+	 * @return the number of distinct names interned so far
+	 */
+	public int size() {
+		return size;
+	}
+
+	private int add(String name, int hash, int slot) {
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		int symbol = size++;
+		names[symbol] = name;
+		hashes[symbol] = hash;
+		slots[slot] = symbol + 1;
+		// keep the table at most half full
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+		return symbol;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int symbol = 0; symbol < size; symbol++) {
+			int slot = mix(hashes[symbol]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = symbol + 1;
+		}
+	}
+
+	private static boolean matches(String name, CharSequence chars, int start, int end) {
+		if (name.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) != chars.charAt(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean matches(String name, byte[] ascii, int start, int end) {
+		if (name.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) != ascii[start + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
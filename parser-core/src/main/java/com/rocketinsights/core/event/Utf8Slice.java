@@ -0,0 +1,49 @@
+package com.rocketinsights.core.event;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A run of well formed UTF-8 bytes within an array owned by someone else,
+ * typically the buffer of a reader. Lets a value be copied from the input to
+ * the output without being decoded to a {@link String} and encoded back.
+ *
+ * A slice is reused by whoever fills it, so like the accessors of a
+ * {@link EventCursor} it is only meaningful until the cursor moves.
+ *
+ * @author fbonecco
+ *
+ */
+public final class Utf8Slice {
+
+	private byte[] bytes;
+
+	private int offset;
+
+	private int length;
+
+	public void set(byte[] bytes, int offset, int length) {
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	public byte[] bytes() {
+		return bytes;
+	}
+
+	public int offset() {
+		return offset;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return the slice, decoded
+	 */
+	@Override
+	public String toString() {
+		return new String(bytes, offset, length, StandardCharsets.UTF_8);
+	}
+}
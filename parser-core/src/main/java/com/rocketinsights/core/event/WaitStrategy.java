@@ -0,0 +1,67 @@
+package com.rocketinsights.core.event;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How the threads sharing an {@link AsyncEventLog} wait for each other: the
+ * consumer when there are no events to handle, the producer when every slot is
+ * taken. Waiting threads are never signalled, they poll, so the strategies
+ * trade CPU time for latency.
+ *
+ * @author fbonecco
+ *
+ */
+public enum WaitStrategy {
+
+	/**
+	 * Keeps polling. Lowest latency, but burns a whole core while waiting, so it
+	 * only makes sense when both threads have a core of their own.
+	 */
+	BUSY_SPIN {
+		@Override
+		void idle(int attempt) {
+			// poll again right away
+		}
+	},
+
+	/**
+	 * Polls for a while, then gives the core away to other threads between
+	 * polls.
+	 */
+	YIELDING {
+		@Override
+		void idle(int attempt) {
+			if (attempt >= SPIN_TRIES) {
+				Thread.yield();
+			}
+		}
+	},
+
+	/**
+	 * Polls, then yields, then sleeps for short periods. Waiting threads barely
+	 * use any CPU, at the cost of some latency once the other side catches up.
+	 */
+	SLEEPING {
+		@Override
+		void idle(int attempt) {
+			if (attempt >= SPIN_TRIES + YIELD_TRIES) {
+				LockSupport.parkNanos(PARK_NANOS);
+			} else if (attempt >= SPIN_TRIES) {
+				Thread.yield();
+			}
+		}
+	};
+
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 100;
+	private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * Called each time a thread finds it has to keep waiting.
+	 *
+	 * @param attempt number of times the thread already waited for the same
+	 *                condition
+	 */
+	abstract void idle(int attempt);
+}
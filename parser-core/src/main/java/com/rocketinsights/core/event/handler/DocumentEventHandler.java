@@ -4,13 +4,24 @@ import java.io.IOException;
 import java.io.Writer;
 
 import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.EventCursor;
 import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.SymbolTable;
+import com.rocketinsights.core.event.Utf8Slice;
 import com.rocketinsights.core.exception.ProcessingException;
+import com.rocketinsights.core.jfr.FlushEvent;
+import com.rocketinsights.core.jfr.WriteEvent;
+import com.rocketinsights.core.metrics.NoopParserMetrics;
+import com.rocketinsights.core.metrics.ParserMetrics;
 
 /**
  * Base implementation of {@link EventHandler} for dealing with document-like
  * events of type {@link Event}.
  * 
+ * Each document written is recorded as a {@link WriteEvent}, and the output
+ * being flushed once it ends as a {@link FlushEvent}, when Flight Recorder is
+ * on.
+ * 
  * @author fbonecco
  *
  */
@@ -18,13 +29,40 @@ public abstract class DocumentEventHandler implements EventHandler {
 
 	protected Writer writer;
 
-	protected Event last;
+	protected EventType lastEventType;
 
 	protected boolean documentStarted = false;
 
+	private ParserMetrics metrics = NoopParserMetrics.INSTANCE;
+
+	private String handlerName;
+
+	private WriteEvent writeEvent;
+
+	private long eventCount;
+
+	// whether the last value handled is continued by the next one
+	private boolean fragmented;
+
+	// fragments gathered by default, see handleValueFragment
+	private StringBuilder fragments;
+
 	public DocumentEventHandler(Writer writer) {
 		this.writer = writer;
-		this.last = null;
+		this.lastEventType = null;
+	}
+
+	/**
+	 * Makes this handler report the time it takes to handle events to the given
+	 * metrics, under its simple class name. Time is measured per call, so handling
+	 * events in batches keeps the clock from being read for every event.
+	 * 
+	 * @return this handler
+	 */
+	public DocumentEventHandler metering(ParserMetrics metrics) {
+		this.metrics = metrics;
+		this.handlerName = getClass().getSimpleName();
+		return this;
 	}
 
 	/**
@@ -34,43 +72,191 @@ public abstract class DocumentEventHandler implements EventHandler {
 	 */
 	@Override
 	public final void handle(Event event) throws ProcessingException {
-		EventType eventType = event.getEventType();
+		long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+		try {
+			dispatch(event.getEventType(), event.getName(), event.getSymbol(), event.getData(), event.isPartial());
+		} catch (IOException e) {
+			throw new ProcessingException("There was an error while processing events.", e);
+		}
+		report(start);
+	}
 
+	/**
+	 * Same as {@link #handle(Event)} for each event of the batch, in a single
+	 * loop.
+	 */
+	@Override
+	public final void handleBatch(Event[] events, int from, int to) throws ProcessingException {
+		long start = metrics.isEnabled() ? System.nanoTime() : 0L;
 		try {
-			switch (eventType) {
-			case DOC_STARTED:
-				handleDocumentStarted(event, writer);
-				documentStarted = true;
-				break;
-			case DOC_ENDED:
-				handleDocumentEnded(event, writer);
-				break;
-			case NODE_OPENED:
-				handleNodeOpened(event, writer);
-				break;
-			case NODE_CLOSED:
-				handleNodeClosed(event, writer);
-				break;
-			case VALUE_ADDED:
-				handleValueAdded(event, writer);
-				break;
-			default:
-				break;
+			for (int i = from; i < to; i++) {
+				Event event = events[i];
+				dispatch(event.getEventType(), event.getName(), event.getSymbol(), event.getData(),
+						event.isPartial());
 			}
-			last = event;
 		} catch (IOException e) {
 			throw new ProcessingException("There was an error while processing events.", e);
 		}
+		report(start);
+	}
+
+	/**
+	 * Same as {@link #handle(Event)}, for the event a {@link EventCursor} is
+	 * positioned on. Lets a reader and a handler be driven in a single loop
+	 * without allocating an {@link Event} per token. Unchecked exceptions are
+	 * wrapped in a {@link ProcessingException}, as an
+	 * {@link com.rocketinsights.core.event.EventLog} does.
+	 */
+	public final void handle(EventCursor cursor) throws ProcessingException {
+		long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+		try {
+			// values the reader has as UTF-8 are written without being decoded
+			Utf8Slice bytes = EventType.VALUE_ADDED.equals(cursor.eventType()) ? cursor.dataBytes() : null;
+			if (bytes != null) {
+				eventCount++;
+				valueAdded(null, bytes, cursor.partial());
+				lastEventType = EventType.VALUE_ADDED;
+			} else {
+				dispatch(cursor.eventType(), cursor.name(), cursor.symbol(), cursor.data(), cursor.partial());
+			}
+		} catch (IOException | RuntimeException e) {
+			throw new ProcessingException("There was an error while processing events.", e);
+		}
+		report(start);
+	}
+
+	private void report(long start) {
+		if (metrics.isEnabled()) {
+			metrics.handlerTime(handlerName, System.nanoTime() - start);
+		}
 	}
 
-	protected abstract void handleDocumentStarted(Event event, Writer writer) throws IOException, ProcessingException;
+	private void dispatch(EventType eventType, String name, int symbol, String data, boolean partial)
+			throws IOException, ProcessingException {
+		eventCount++;
+		switch (eventType) {
+		case DOC_STARTED:
+			writeEvent = new WriteEvent();
+			writeEvent.begin();
+			eventCount = 1;
+			fragmented = false;
+			handleDocumentStarted(writer);
+			documentStarted = true;
+			break;
+		case DOC_ENDED:
+			documentEnded();
+			break;
+		case NODE_OPENED:
+			handleNodeOpened(name, symbol, writer);
+			break;
+		case NODE_CLOSED:
+			handleNodeClosed(name, symbol, writer);
+			break;
+		case VALUE_ADDED:
+			valueAdded(data, null, partial);
+			break;
+		default:
+			break;
+		}
+		lastEventType = eventType;
+	}
+
+	/**
+	 * Hands a value, given either decoded or as bytes, to the handle method
+	 * matching it.
+	 */
+	private void valueAdded(String data, Utf8Slice bytes, boolean partial) throws IOException, ProcessingException {
+		if (partial || fragmented) {
+			boolean first = !fragmented;
+			fragmented = partial;
+			if (bytes != null) {
+				handleValueFragment(bytes, first, !partial, writer);
+			} else {
+				handleValueFragment(data, first, !partial, writer);
+			}
+		} else if (bytes != null) {
+			handleValueAdded(bytes, writer);
+		} else {
+			handleValueAdded(data, writer);
+		}
+	}
+
+	private void documentEnded() throws IOException, ProcessingException {
+		FlushEvent flushEvent = new FlushEvent();
+		flushEvent.begin();
+		handleDocumentEnded(writer);
+		flushEvent.end();
+		if (flushEvent.shouldCommit()) {
+			flushEvent.setTarget(getClass().getSimpleName());
+			flushEvent.commit();
+		}
+		if (writeEvent != null) {
+			writeEvent.end();
+			if (writeEvent.shouldCommit()) {
+				writeEvent.setHandler(getClass().getSimpleName());
+				writeEvent.setEventCount(eventCount);
+				writeEvent.commit();
+			}
+			writeEvent = null;
+		}
+	}
+
+	protected abstract void handleDocumentStarted(Writer writer) throws IOException, ProcessingException;
+
+	protected abstract void handleDocumentEnded(Writer writer) throws IOException, ProcessingException;
 
-	protected abstract void handleDocumentEnded(Event event, Writer writer) throws IOException, ProcessingException;
+	/**
+	 * @param symbol the symbol of the name within the {@link SymbolTable} of the
+	 *               document, or {@link SymbolTable#NO_SYMBOL} if it's unknown.
+	 *               Handlers can use it to cache whatever they derive from names.
+	 */
+	protected abstract void handleNodeOpened(String name, int symbol, Writer writer)
+			throws IOException, ProcessingException;
 
-	protected abstract void handleNodeOpened(Event event, Writer writer) throws IOException, ProcessingException;
+	protected abstract void handleNodeClosed(String name, int symbol, Writer writer)
+			throws IOException, ProcessingException;
 
-	protected abstract void handleNodeClosed(Event event, Writer writer) throws IOException, ProcessingException;
+	protected abstract void handleValueAdded(String data, Writer writer) throws IOException, ProcessingException;
+
+	/**
+	 * Same as {@link #handleValueAdded(String, Writer)} for a value given as UTF-8
+	 * bytes, which are decoded unless the handler overrides this method to write
+	 * them as they are.
+	 */
+	protected void handleValueAdded(Utf8Slice data, Writer writer) throws IOException, ProcessingException {
+		handleValueAdded(data.toString(), writer);
+	}
 
-	protected abstract void handleValueAdded(Event event, Writer writer) throws IOException, ProcessingException;
+	/**
+	 * Handles a fragment of a value read in chunks, see
+	 * {@link EventCursor#partial()}. The fragments of a value come one after the
+	 * other, flagged as the first and the last one where they are.
+	 * 
+	 * By default fragments are gathered and the whole value is handed to
+	 * {@link #handleValueAdded(String, Writer)}, so handlers have to override this
+	 * method to write fragments as they come and keep memory bounded by the size
+	 * of the chunks.
+	 */
+	protected void handleValueFragment(String data, boolean first, boolean last, Writer writer)
+			throws IOException, ProcessingException {
+		if (first) {
+			fragments = new StringBuilder();
+		}
+		fragments.append(data);
+		if (last) {
+			String value = fragments.toString();
+			fragments = null;
+			handleValueAdded(value, writer);
+		}
+	}
+
+	/**
+	 * Same as {@link #handleValueFragment(String, boolean, boolean, Writer)} for a
+	 * fragment given as UTF-8 bytes, which always ends on a character boundary.
+	 */
+	protected void handleValueFragment(Utf8Slice data, boolean first, boolean last, Writer writer)
+			throws IOException, ProcessingException {
+		handleValueFragment(data.toString(), first, last, writer);
+	}
 
 }
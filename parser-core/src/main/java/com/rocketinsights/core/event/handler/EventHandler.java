@@ -12,4 +12,15 @@ public interface EventHandler {
 
 	public void handle(Event event) throws Exception;
 
+	/**
+	 * Handles the events of an array between from (inclusive) and to (exclusive),
+	 * in order. Callers may reuse the array, and even the events, once this method
+	 * returns, so neither should be kept.
+	 */
+	public default void handleBatch(Event[] events, int from, int to) throws Exception {
+		for (int i = from; i < to; i++) {
+			handle(events[i]);
+		}
+	}
+
 }
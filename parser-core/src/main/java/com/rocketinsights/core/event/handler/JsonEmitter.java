@@ -0,0 +1,399 @@
+package com.rocketinsights.core.event.handler;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import com.rocketinsights.core.event.SymbolTable;
+import com.rocketinsights.core.event.Utf8Slice;
+
+/**
+ * Minimal streaming JSON writer producing output indented with two spaces.
+ * Output is assembled in a reusable character buffer which is handed to the
+ * underlying {@link Writer} in large blocks.
+ * <p>
+ * The layout and escaping match the ones of a pretty-printing, HTML-safe
+ * {@link com.google.gson.stream.JsonWriter}. Names given along with a symbol
+ * are escaped and quoted once per symbol and copied from then on.
+ *
+ * @author fbonecco
+ *
+ */
+public class JsonEmitter implements Flushable {
+
+	private static final int DEFAULT_BUFFER_SIZE = 8192;
+	private static final String INDENT = "  ";
+	private static final char[] SEPARATOR = ": ".toCharArray();
+	private static final char[] NULL = "null".toCharArray();
+
+	private static final byte EMPTY_DOCUMENT = 0;
+	private static final byte NONEMPTY_DOCUMENT = 1;
+	private static final byte EMPTY_OBJECT = 2;
+	private static final byte NONEMPTY_OBJECT = 3;
+	private static final byte EMPTY_ARRAY = 4;
+	private static final byte NONEMPTY_ARRAY = 5;
+	private static final byte DANGLING_NAME = 6;
+
+	private static final char[][] REPLACEMENTS = new char[128][];
+
+	static {
+		for (int c = 0; c < 0x20; c++) {
+			REPLACEMENTS[c] = String.format("\\u%04x", c).toCharArray();
+		}
+		REPLACEMENTS['"'] = "\\\"".toCharArray();
+		REPLACEMENTS['\\'] = "\\\\".toCharArray();
+		REPLACEMENTS['\t'] = "\\t".toCharArray();
+		REPLACEMENTS['\b'] = "\\b".toCharArray();
+		REPLACEMENTS['\n'] = "\\n".toCharArray();
+		REPLACEMENTS['\r'] = "\\r".toCharArray();
+		REPLACEMENTS['\f'] = "\\f".toCharArray();
+		REPLACEMENTS['<'] = "\\u003c".toCharArray();
+		REPLACEMENTS['>'] = "\\u003e".toCharArray();
+		REPLACEMENTS['&'] = "\\u0026".toCharArray();
+		REPLACEMENTS['='] = "\\u003d".toCharArray();
+		REPLACEMENTS['\''] = "\\u0027".toCharArray();
+	}
+
+	private static final char[] LINE_SEPARATOR = "\\u2028".toCharArray();
+	private static final char[] PARAGRAPH_SEPARATOR = "\\u2029".toCharArray();
+
+	private final Writer writer;
+
+	// the writer, when it takes UTF-8 bytes as they are
+	private final Utf8Writer utf8;
+
+	private final char[] buffer;
+
+	private int position;
+
+	private byte[] stack = new byte[32];
+
+	private int stackSize;
+
+	/**
+	 * A line feed followed by the indentation of the deepest scope seen so far.
+	 */
+	private char[] indentation;
+
+	private String[] cachedNames = new String[0];
+
+	private char[][] quotedNames = new char[0][];
+
+	public JsonEmitter(Writer writer) {
+		this(writer, DEFAULT_BUFFER_SIZE);
+	}
+
+	public JsonEmitter(Writer writer, int bufferSize) {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid buffer size [%d].", bufferSize));
+		}
+		this.writer = writer;
+		this.utf8 = writer instanceof Utf8Writer ? (Utf8Writer) writer : null;
+		this.buffer = new char[bufferSize];
+		this.indentation = indentation(stack.length);
+		push(EMPTY_DOCUMENT);
+	}
+
+	public void beginObject() throws IOException {
+		open(EMPTY_OBJECT, '{');
+	}
+
+	public void endObject() throws IOException {
+		close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+	}
+
+	public void beginArray() throws IOException {
+		open(EMPTY_ARRAY, '[');
+	}
+
+	public void endArray() throws IOException {
+		close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+	}
+
+	public void name(String name) throws IOException {
+		name(name, SymbolTable.NO_SYMBOL);
+	}
+
+	/**
+	 * @param symbol the symbol of the name, or {@link SymbolTable#NO_SYMBOL} to
+	 *               escape it every time
+	 */
+	public void name(String name, int symbol) throws IOException {
+		byte context = peek();
+		if (context == NONEMPTY_OBJECT) {
+			write(',');
+		} else if (context != EMPTY_OBJECT) {
+			throw new IllegalStateException("Nesting problem.");
+		}
+		newline();
+		stack[stackSize - 1] = DANGLING_NAME;
+		if (symbol < 0) {
+			string(name);
+		} else {
+			write(quotedName(name, symbol));
+		}
+	}
+
+	public void value(String value) throws IOException {
+		beforeValue();
+		if (value == null) {
+			write(NULL, 0, NULL.length);
+		} else {
+			string(value);
+		}
+	}
+
+	/**
+	 * Same as {@link #value(String)} for a value given as UTF-8 bytes. When the
+	 * underlying writer is a {@link Utf8Writer} they are escaped and copied as
+	 * they are, otherwise they are decoded first.
+	 */
+	public void value(Utf8Slice value) throws IOException {
+		beforeValue();
+		write('"');
+		escape(value);
+		write('"');
+	}
+
+	/**
+	 * Begins a string value whose content is given in parts, by the
+	 * <code>stringPart</code> methods, until {@link #endString()}. Lets a value be
+	 * written without having it whole.
+	 */
+	public void beginString() throws IOException {
+		beforeValue();
+		write('"');
+	}
+
+	public void stringPart(String part) throws IOException {
+		escape(part);
+	}
+
+	/**
+	 * Same as {@link #stringPart(String)} for a part given as UTF-8 bytes, which
+	 * has to end on a character boundary.
+	 */
+	public void stringPart(Utf8Slice part) throws IOException {
+		escape(part);
+	}
+
+	public void endString() throws IOException {
+		write('"');
+	}
+
+	/**
+	 * Hands the buffered output to the underlying {@link Writer} and flushes it.
+	 */
+	@Override
+	public void flush() throws IOException {
+		drain();
+		writer.flush();
+	}
+
+	private void open(byte empty, char bracket) throws IOException {
+		beforeValue();
+		push(empty);
+		write(bracket);
+	}
+
+	private void close(byte empty, byte nonempty, char bracket) throws IOException {
+		byte context = peek();
+		if (context != nonempty && context != empty) {
+			throw new IllegalStateException("Nesting problem.");
+		}
+		stackSize--;
+		if (context == nonempty) {
+			newline();
+		}
+		write(bracket);
+	}
+
+	private void beforeValue() throws IOException {
+		switch (peek()) {
+		case NONEMPTY_DOCUMENT:
+			throw new IllegalStateException("JSON must have only one top-level value.");
+		case EMPTY_DOCUMENT:
+			stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+			break;
+		case EMPTY_ARRAY:
+			stack[stackSize - 1] = NONEMPTY_ARRAY;
+			newline();
+			break;
+		case NONEMPTY_ARRAY:
+			write(',');
+			newline();
+			break;
+		case DANGLING_NAME:
+			write(SEPARATOR, 0, SEPARATOR.length);
+			stack[stackSize - 1] = NONEMPTY_OBJECT;
+			break;
+		default:
+			throw new IllegalStateException("Nesting problem.");
+		}
+	}
+
+	private byte peek() {
+		if (stackSize == 0) {
+			throw new IllegalStateException("JsonEmitter is closed.");
+		}
+		return stack[stackSize - 1];
+	}
+
+	private void push(byte scope) {
+		if (stackSize == stack.length) {
+			stack = Arrays.copyOf(stack, stackSize * 2);
+		}
+		stack[stackSize++] = scope;
+	}
+
+	private void newline() throws IOException {
+		int length = 1 + (stackSize - 1) * INDENT.length();
+		if (length > indentation.length) {
+			indentation = indentation(Math.max(stackSize, stack.length));
+		}
+		write(indentation, 0, length);
+	}
+
+	private char[] quotedName(String name, int symbol) {
+		if (symbol >= cachedNames.length) {
+			int capacity = Math.max(symbol + 1, cachedNames.length * 2);
+			cachedNames = Arrays.copyOf(cachedNames, capacity);
+			quotedNames = Arrays.copyOf(quotedNames, capacity);
+		}
+		// names are interned, so a symbol keeps pointing to the same instance
+		if (cachedNames[symbol] != name) {
+			StringBuilder quoted = new StringBuilder(name.length() + 2).append('"');
+			int last = 0;
+			for (int i = 0; i < name.length(); i++) {
+				char[] replacement = replacement(name.charAt(i));
+				if (replacement != null) {
+					quoted.append(name, last, i).append(replacement);
+					last = i + 1;
+				}
+			}
+			quoted.append(name, last, name.length()).append('"');
+			cachedNames[symbol] = name;
+			quotedNames[symbol] = quoted.toString().toCharArray();
+		}
+		return quotedNames[symbol];
+	}
+
+	private void string(String value) throws IOException {
+		write('"');
+		escape(value);
+		write('"');
+	}
+
+	private void escape(String value) throws IOException {
+		int last = 0;
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			char[] replacement = replacement(value.charAt(i));
+			if (replacement != null) {
+				write(value, last, i);
+				write(replacement, 0, replacement.length);
+				last = i + 1;
+			}
+		}
+		write(value, last, length);
+	}
+
+	/**
+	 * Escapes UTF-8 bytes, copying them as they are when the underlying writer is
+	 * a {@link Utf8Writer}.
+	 */
+	private void escape(Utf8Slice value) throws IOException {
+		if (utf8 == null) {
+			escape(value.toString());
+			return;
+		}
+		drain();
+		byte[] bytes = value.bytes();
+		int last = value.offset();
+		int end = last + value.length();
+		for (int i = last; i < end; i++) {
+			byte b = bytes[i];
+			char[] replacement;
+			int length = 1;
+			if (b >= 0) {
+				replacement = REPLACEMENTS[b];
+			} else if (b == (byte) 0xe2 && i + 2 < end && bytes[i + 1] == (byte) 0x80
+					&& (bytes[i + 2] == (byte) 0xa8 || bytes[i + 2] == (byte) 0xa9)) {
+				// the UTF-8 encoding of U+2028 and U+2029
+				replacement = bytes[i + 2] == (byte) 0xa8 ? LINE_SEPARATOR : PARAGRAPH_SEPARATOR;
+				length = 3;
+			} else {
+				continue;
+			}
+			if (replacement != null) {
+				utf8.writeUtf8(bytes, last, i - last);
+				utf8.write(replacement, 0, replacement.length);
+				i += length - 1;
+				last = i + 1;
+			}
+		}
+		utf8.writeUtf8(bytes, last, end - last);
+	}
+
+	private static char[] replacement(char c) {
+		if (c < 128) {
+			return REPLACEMENTS[c];
+		} else if (c == '\u2028') {
+			return LINE_SEPARATOR;
+		} else if (c == '\u2029') {
+			return PARAGRAPH_SEPARATOR;
+		}
+		return null;
+	}
+
+	private void write(char[] chars) throws IOException {
+		write(chars, 0, chars.length);
+	}
+
+	private void write(char c) throws IOException {
+		if (position == buffer.length) {
+			drain();
+		}
+		buffer[position++] = c;
+	}
+
+	private void write(char[] chars, int offset, int length) throws IOException {
+		while (length > 0) {
+			if (position == buffer.length) {
+				drain();
+			}
+			int count = Math.min(length, buffer.length - position);
+			System.arraycopy(chars, offset, buffer, position, count);
+			position += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	private void write(String text, int from, int to) throws IOException {
+		while (from < to) {
+			if (position == buffer.length) {
+				drain();
+			}
+			int count = Math.min(to - from, buffer.length - position);
+			text.getChars(from, from + count, buffer, position);
+			position += count;
+			from += count;
+		}
+	}
+
+	private void drain() throws IOException {
+		if (position > 0) {
+			writer.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	private static char[] indentation(int levels) {
+		char[] chars = new char[1 + levels * INDENT.length()];
+		Arrays.fill(chars, ' ');
+		chars[0] = '\n';
+		return chars;
+	}
+}
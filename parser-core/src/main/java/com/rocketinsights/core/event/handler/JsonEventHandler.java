@@ -2,22 +2,29 @@ package com.rocketinsights.core.event.handler;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.LinkedList;
-import java.util.List;
-
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.stream.JsonWriter;
+import java.util.Arrays;
+
 import com.rocketinsights.core.event.Event;
-import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.Utf8Slice;
 import com.rocketinsights.core.exception.ProcessingException;
 
 /**
  * Translates series of {@link Event}s to a JSON object.
  * 
+ * The output is written through a {@link JsonEmitter} as events arrive. Only
+ * the stack of open nodes is kept, so memory does not depend on the size of
+ * the document. The document looks like:
+ * 
+ * <pre>
+ * {"root": [{"a": [{"b": {"c": "value", "d": {...}}}]}]}
+ * </pre>
+ * 
+ * That is, first level nodes hold an array of objects, one per second level
+ * node, and deeper nodes are plain objects. Consecutive values of a node, such
+ * as the pieces of a text cut at an entity reference or the items of an array,
+ * are joined in a single string. A node holding both values and other nodes
+ * has no such translation, and is rejected.
+ * 
  * @author fbonecco
  *
  */
@@ -25,13 +32,26 @@ public class JsonEventHandler extends DocumentEventHandler {
 
 	private static final String ROOT_NODE = "root";
 
-	private JsonWriter jsonWriter;
+	// a node whose content is not known yet
+	private static final byte PENDING = 0;
+
+	// a node holding a value, whose string is still open
+	private static final byte VALUE = 1;
+
+	// a node holding other nodes
+	private static final byte OBJECT = 2;
+
+	private JsonEmitter emitter;
+
+	// state of each open node, by depth
+	private byte[] nodes;
 
-	private List<Event> events;
+	private int depth;
 
-	private Gson gson;
+	// name of the node on top of the stack, until it is written
+	private String pendingName;
 
-	private JsonArray mainHolder;
+	private int pendingSymbol;
 
 	public JsonEventHandler(Writer writer) {
 		super(writer);
@@ -40,109 +60,142 @@ public class JsonEventHandler extends DocumentEventHandler {
 	}
 
 	private void init() {
-		gson = new GsonBuilder().setPrettyPrinting().create();
-		jsonWriter = new JsonWriter(writer);
-		jsonWriter.setIndent("  ");
+		emitter = new JsonEmitter(writer);
+		nodes = new byte[16];
 	}
 
 	@Override
-	protected void handleDocumentStarted(Event event, Writer writer) throws IOException, ProcessingException {
-		jsonWriter.beginObject();
-		jsonWriter.name(ROOT_NODE);
-		mainHolder = new JsonArray();
-		events = new LinkedList<>();
+	protected void handleDocumentStarted(Writer writer) throws IOException, ProcessingException {
+		emitter.beginObject();
+		emitter.name(ROOT_NODE);
+		emitter.beginArray();
+		depth = 0;
 	}
 
 	@Override
-	protected void handleDocumentEnded(Event event, Writer writer) throws IOException, ProcessingException {
-		gson.toJson(mainHolder, jsonWriter);
-		jsonWriter.endObject();
+	protected void handleDocumentEnded(Writer writer) throws IOException, ProcessingException {
+		emitter.endArray();
+		emitter.endObject();
+		emitter.flush();
 	}
 
 	@Override
-	protected void handleNodeOpened(Event event, Writer writer) throws IOException, ProcessingException {
-		events.add(event);
-	}
-
-	private boolean isEnclosingNode(Event event, List<Event> list) {
-
-		return list.get(0).getName().equals(event.getName())
-				&& list.get(list.size() - 1).getName().equals(event.getName());
+	protected void handleNodeOpened(String name, int symbol, Writer writer)
+			throws IOException, ProcessingException {
+		if (depth > 0 && nodes[depth - 1] == PENDING) {
+			// the parent turns out to hold other nodes
+			openObject(depth);
+			nodes[depth - 1] = OBJECT;
+		} else if (depth > 0 && nodes[depth - 1] == VALUE) {
+			throw mixedContent();
+		}
+		if (depth == nodes.length) {
+			nodes = Arrays.copyOf(nodes, depth * 2);
+		}
+		nodes[depth++] = PENDING;
+		pendingName = name;
+		pendingSymbol = symbol;
 	}
 
-	private int findNextObjectBound(int from, List<Event> list) {
-		Event target = list.get(from);
-		for (int x = from + 1; x < list.size(); x++) {
-			if (target.getName().equals(list.get(x).getName())) {
-				return x;
+	@Override
+	protected void handleNodeClosed(String name, int symbol, Writer writer)
+			throws IOException, ProcessingException {
+		if (depth == 0) {
+			return;
+		}
+		byte state = nodes[--depth];
+		int level = depth + 1;
+		if (state == OBJECT) {
+			if (level == 1) {
+				emitter.endArray();
+				emitter.endObject();
+			} else if (level == 2) {
+				emitter.endObject();
+				emitter.endObject();
+			} else {
+				emitter.endObject();
+			}
+		} else if (state == VALUE) {
+			emitter.endString();
+			if (level <= 2) {
+				emitter.endObject();
 			}
 		}
-		return -1;
+		// empty nodes are skipped
+		pendingName = null;
 	}
 
-	private void parseNode(List<Event> subList, JsonElement holder) {
-		if (subList.size() > 2) {
-			Event event = subList.get(0);
-			if (isEnclosingNode(event, subList) && !isValue(subList, event)) {
-
-				if (holder instanceof JsonArray) {
-					JsonObject obj = new JsonObject();
-					JsonObject newObjHolder = new JsonObject();
-					obj.add(event.getName(), newObjHolder);
-					((JsonArray) holder).add(obj);
-					holder = newObjHolder;
-				} else {
-					JsonObject auxHolder = new JsonObject();
-					((JsonObject) holder).add(event.getName(), auxHolder);
-					holder = auxHolder;
-				}
-				subList = subList.subList(1, subList.size() - 1);
-			} else if (isValue(subList, event)) {
-				Event value = subList.get(1);
-				((JsonObject) holder).addProperty(event.getName(), value.getData());
-				subList = subList.subList(3, subList.size());
-			}
-			parseNode(subList, holder);
+	@Override
+	protected void handleValueAdded(String data, Writer writer) throws IOException, ProcessingException {
+		if (beginValue()) {
+			emitter.stringPart(data);
 		}
-
 	}
 
-	private boolean isValue(List<Event> subList, Event event) {
-		boolean isValue = false;
-		if (subList.size() >= 3) {
-			isValue = event.getEventType().equals(EventType.NODE_OPENED)
-					&& subList.get(1).getEventType().equals(EventType.VALUE_ADDED)
-					&& subList.get(2).getEventType().equals(EventType.NODE_CLOSED);
+	@Override
+	protected void handleValueAdded(Utf8Slice data, Writer writer) throws IOException, ProcessingException {
+		if (beginValue()) {
+			emitter.stringPart(data);
 		}
-		return isValue;
 	}
 
 	@Override
-	protected void handleNodeClosed(Event event, Writer writer) throws IOException, ProcessingException {
-		events.add(event);
-		if (isEnclosingNode(event, events)) {
-			// once we detect that a closing node
-			// denotes the end of a loop,
-			// we start building the JSON object and its children
-			JsonObject obj = new JsonObject();
-			JsonElement holder = new JsonArray();
-			obj.add(event.getName(), holder);
-
-			int from = 1;
-			int y = findNextObjectBound(from, events);
-			while (y > 0 && from < events.size()) {
-				parseNode(events.subList(from, y + 1), holder);
-				from = y + 1;
-				y = findNextObjectBound(from, events);
+	protected void handleValueFragment(String data, boolean first, boolean last, Writer writer)
+			throws IOException, ProcessingException {
+		// fragments are joined like any other consecutive values
+		handleValueAdded(data, writer);
+	}
+
+	@Override
+	protected void handleValueFragment(Utf8Slice data, boolean first, boolean last, Writer writer)
+			throws IOException, ProcessingException {
+		handleValueAdded(data, writer);
+	}
+
+	/**
+	 * Opens the string of the node on top of the stack, writing its name, unless
+	 * it is already open.
+	 * 
+	 * @return whether the value is to be written, values outside of any node are
+	 *         not
+	 */
+	private boolean beginValue() throws IOException, ProcessingException {
+		if (depth == 0) {
+			return false;
+		}
+		byte state = nodes[depth - 1];
+		if (state == PENDING) {
+			if (depth <= 2) {
+				emitter.beginObject();
 			}
-			mainHolder.add(obj);
-			events.clear();
+			emitter.name(pendingName, pendingSymbol);
+			emitter.beginString();
+			nodes[depth - 1] = VALUE;
+			pendingName = null;
+		} else if (state == OBJECT) {
+			throw mixedContent();
 		}
+		return true;
 	}
 
-	@Override
-	protected void handleValueAdded(Event event, Writer writer) throws IOException, ProcessingException {
-		events.add(event);
+	private ProcessingException mixedContent() {
+		return new ProcessingException("A node holding both values and other nodes can't be translated to JSON.");
+	}
+
+	private void openObject(int level) throws IOException {
+		if (level == 1) {
+			emitter.beginObject();
+			emitter.name(pendingName, pendingSymbol);
+			emitter.beginArray();
+		} else if (level == 2) {
+			emitter.beginObject();
+			emitter.name(pendingName, pendingSymbol);
+			emitter.beginObject();
+		} else {
+			emitter.name(pendingName, pendingSymbol);
+			emitter.beginObject();
+		}
+		pendingName = null;
 	}
 
 }
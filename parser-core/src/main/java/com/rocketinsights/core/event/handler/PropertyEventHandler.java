@@ -2,78 +2,229 @@ package com.rocketinsights.core.event.handler;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Stack;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import com.rocketinsights.core.event.Event;
 import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.SymbolTable;
+import com.rocketinsights.core.event.Utf8Slice;
 import com.rocketinsights.core.exception.ProcessingException;
 
 /**
  * Translates series of {@link Event}s to properties-like structure.
+ * <p>
+ * The key of the current node is kept in a reusable prefix buffer which is
+ * extended when a node opens and truncated when it closes, so writing a
+ * property doesn't allocate regardless of how deep it is. When the writer is a
+ * {@link Utf8Writer} the prefix is kept encoded, and names given along with a
+ * symbol are encoded once per symbol and copied from then on.
  * 
  * @author fbonecco
  *
  */
 public class PropertyEventHandler extends DocumentEventHandler {
 
-	private static final String NEW_LINE = "\n";
+	private static final char NEW_LINE = '\n';
+	private static final char SEPARATOR = '.';
+	private static final String ASSIGNMENT = " = \"";
+	private static final String QUOTE = "\"";
+	private static final int INITIAL_DEPTH = 16;
+	private static final int INITIAL_PREFIX_LENGTH = 256;
 
-	private Stack<String> currentProperty;
+	// the writer, when it takes UTF-8 bytes as they are
+	private final Utf8Writer utf8;
+
+	// the prefix, unless it is kept encoded
+	private char[] prefix;
+
+	// the prefix, encoded when the writer is a Utf8Writer
+	private byte[] prefixBytes;
+
+	private int prefixLength;
+
+	private String[] names = new String[INITIAL_DEPTH];
+
+	private int[] symbols = new int[INITIAL_DEPTH];
+
+	private int[] prefixEnds = new int[INITIAL_DEPTH];
+
+	private int depth;
+
+	private String[] cachedNames = new String[0];
+
+	private byte[][] encodedNames = new byte[0][];
 
 	public PropertyEventHandler(Writer writer) {
 		super(writer);
+		this.utf8 = writer instanceof Utf8Writer ? (Utf8Writer) writer : null;
+		if (utf8 != null) {
+			prefixBytes = new byte[INITIAL_PREFIX_LENGTH];
+		} else {
+			prefix = new char[INITIAL_PREFIX_LENGTH];
+		}
+	}
+
+	@Override
+	protected void handleDocumentStarted(Writer writer) throws IOException, ProcessingException {
+		Arrays.fill(names, 0, depth, null);
+		depth = 0;
+		prefixLength = 0;
 	}
 
 	@Override
-	protected void handleDocumentStarted(Event event, Writer writer) throws IOException, ProcessingException {
-		currentProperty = new Stack<>();
+	protected void handleDocumentEnded(Writer writer) throws IOException, ProcessingException {
 	}
 
 	@Override
-	protected void handleDocumentEnded(Event event, Writer writer) throws IOException, ProcessingException {
+	protected void handleNodeOpened(String name, int symbol, Writer writer)
+			throws IOException, ProcessingException {
+		if (EventType.NODE_CLOSED.equals(lastEventType)) {
+			writer.write(NEW_LINE);
+			if (utf8 != null) {
+				utf8.writeUtf8(prefixBytes, 0, prefixLength);
+			} else {
+				writer.write(prefix, 0, prefixLength);
+			}
+		}
+		if (depth > 0) {
+			writer.write(SEPARATOR);
+		}
+		if (utf8 != null) {
+			byte[] encoded = encode(name, symbol);
+			utf8.writeUtf8(encoded, 0, encoded.length);
+			push(name, symbol, encoded);
+		} else {
+			writer.write(name);
+			push(name, symbol, null);
+		}
 	}
 
 	@Override
-	protected void handleNodeOpened(Event event, Writer writer) throws IOException, ProcessingException {
-		StringBuilder node = new StringBuilder();
-		if (last != null && EventType.NODE_CLOSED.equals(last.getEventType())) {
-			node.append(NEW_LINE);
-			currentProperty.forEach(e -> {
-				if (node.length() > NEW_LINE.length()) {
-					node.append(".");
-				}
-				node.append(e);
-			});
+	protected void handleNodeClosed(String name, int symbol, Writer writer)
+			throws IOException, ProcessingException {
+		if (depth > 0 && isLastOpened(name, symbol)) {
+			names[--depth] = null;
+			prefixLength = depth > 0 ? prefixEnds[depth - 1] : 0;
 		}
-		if (currentProperty.size() > 0) {
-			node.append(".");
+	}
+
+	@Override
+	protected void handleValueAdded(String data, Writer writer) throws IOException, ProcessingException {
+		if (depth > 0) {
+			writer.write(ASSIGNMENT);
+			writer.write(data);
+			writer.write(QUOTE);
 		}
-		node.append(event.getName());
-		writer.write(node.toString());
-		currentProperty.add(event.getName());
 	}
 
 	@Override
-	protected void handleNodeClosed(Event event, Writer writer) throws IOException, ProcessingException {
-		if (!currentProperty.isEmpty() && currentProperty.peek().equals(event.getName())) {
-			currentProperty.pop();
+	protected void handleValueAdded(Utf8Slice data, Writer writer) throws IOException, ProcessingException {
+		if (!(writer instanceof Utf8Writer)) {
+			handleValueAdded(data.toString(), writer);
+		} else if (depth > 0) {
+			writer.write(ASSIGNMENT);
+			((Utf8Writer) writer).writeUtf8(data);
+			writer.write(QUOTE);
 		}
-		if (currentProperty.isEmpty()) {
-			currentProperty.clear();
+	}
+
+	@Override
+	protected void handleValueFragment(String data, boolean first, boolean last, Writer writer)
+			throws IOException, ProcessingException {
+		if (depth > 0) {
+			if (first) {
+				writer.write(ASSIGNMENT);
+			}
+			writer.write(data);
+			if (last) {
+				writer.write(QUOTE);
+			}
 		}
 	}
 
 	@Override
-	protected void handleValueAdded(Event event, Writer writer) throws IOException, ProcessingException {
-		if (!currentProperty.isEmpty()) {
-			StringBuilder value = new StringBuilder();
-			value.append(" = ");
-			value.append("\"");
-			value.append(event.getData());
-			value.append("\"");
-
-			writer.write(value.toString());
+	protected void handleValueFragment(Utf8Slice data, boolean first, boolean last, Writer writer)
+			throws IOException, ProcessingException {
+		if (!(writer instanceof Utf8Writer)) {
+			handleValueFragment(data.toString(), first, last, writer);
+		} else if (depth > 0) {
+			if (first) {
+				writer.write(ASSIGNMENT);
+			}
+			((Utf8Writer) writer).writeUtf8(data);
+			if (last) {
+				writer.write(QUOTE);
+			}
+		}
+	}
+
+	/**
+	 * @return whether a node is the last one opened, comparing symbols when both
+	 *         have one
+	 */
+	private boolean isLastOpened(String name, int symbol) {
+		int last = symbols[depth - 1];
+		if (symbol != SymbolTable.NO_SYMBOL && last != SymbolTable.NO_SYMBOL) {
+			return symbol == last;
+		}
+		return names[depth - 1].equals(name);
+	}
+
+	/**
+	 * @param encoded the name encoded, when the prefix is kept encoded
+	 */
+	private void push(String name, int symbol, byte[] encoded) {
+		if (depth == names.length) {
+			names = Arrays.copyOf(names, depth * 2);
+			symbols = Arrays.copyOf(symbols, depth * 2);
+			prefixEnds = Arrays.copyOf(prefixEnds, depth * 2);
+		}
+		if (encoded != null) {
+			int required = prefixLength + encoded.length + 1;
+			if (required > prefixBytes.length) {
+				prefixBytes = Arrays.copyOf(prefixBytes, Math.max(required, prefixBytes.length * 2));
+			}
+			if (prefixLength > 0) {
+				prefixBytes[prefixLength++] = (byte) SEPARATOR;
+			}
+			System.arraycopy(encoded, 0, prefixBytes, prefixLength, encoded.length);
+			prefixLength += encoded.length;
+		} else {
+			int required = prefixLength + name.length() + 1;
+			if (required > prefix.length) {
+				prefix = Arrays.copyOf(prefix, Math.max(required, prefix.length * 2));
+			}
+			if (prefixLength > 0) {
+				prefix[prefixLength++] = SEPARATOR;
+			}
+			name.getChars(0, name.length(), prefix, prefixLength);
+			prefixLength += name.length();
+		}
+		names[depth] = name;
+		symbols[depth] = symbol;
+		prefixEnds[depth++] = prefixLength;
+	}
+
+	/**
+	 * @return the name encoded as UTF-8, cached for names given along with a
+	 *         symbol
+	 */
+	private byte[] encode(String name, int symbol) {
+		if (symbol < 0) {
+			return name.getBytes(StandardCharsets.UTF_8);
+		}
+		if (symbol >= cachedNames.length) {
+			int capacity = Math.max(symbol + 1, cachedNames.length * 2);
+			cachedNames = Arrays.copyOf(cachedNames, capacity);
+			encodedNames = Arrays.copyOf(encodedNames, capacity);
+		}
+		// names are interned, so a symbol keeps pointing to the same instance
+		if (cachedNames[symbol] != name) {
+			cachedNames[symbol] = name;
+			encodedNames[symbol] = name.getBytes(StandardCharsets.UTF_8);
 		}
+		return encodedNames[symbol];
 	}
 
 }
@@ -0,0 +1,203 @@
+package com.rocketinsights.core.event.handler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import com.rocketinsights.core.event.Utf8Slice;
+
+/**
+ * A {@link Writer} encoding characters to UTF-8 straight into a byte buffer,
+ * which is handed to an {@link OutputStream} in large blocks. Besides
+ * characters it takes bytes already encoded as UTF-8, such as a
+ * {@link Utf8Slice} of a value read from the input, and copies them as they
+ * are, so values can go from the input to the output without being decoded
+ * and encoded back.
+ * <p>
+ * Malformed surrogate pairs are written as <code>?</code>, as an
+ * {@link java.io.OutputStreamWriter} would. Unlike the latter, this writer is
+ * not thread safe.
+ *
+ * @author fbonecco
+ *
+ */
+public class Utf8Writer extends Writer {
+
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private final OutputStream out;
+
+	private final byte[] buffer;
+
+	private int position;
+
+	// high surrogate written last, until the char after it is known
+	private char pendingSurrogate;
+
+	private boolean closed;
+
+	public Utf8Writer(OutputStream out) {
+		this(out, DEFAULT_BUFFER_SIZE);
+	}
+
+	public Utf8Writer(OutputStream out, int bufferSize) {
+		if (bufferSize < 4) {
+			throw new IllegalArgumentException(String.format("Invalid buffer size [%d].", bufferSize));
+		}
+		this.out = out;
+		this.buffer = new byte[bufferSize];
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		ensureOpen();
+		encode((char) c);
+	}
+
+	@Override
+	public void write(char[] chars, int offset, int length) throws IOException {
+		ensureOpen();
+		int i = offset;
+		int end = offset + length;
+		while (i < end) {
+			if (position == buffer.length) {
+				drain();
+			}
+			// ASCII is copied in runs, up to the room left in the buffer
+			int stop = Math.min(end, i + buffer.length - position);
+			if (pendingSurrogate == 0) {
+				while (i < stop && chars[i] < 0x80) {
+					buffer[position++] = (byte) chars[i++];
+				}
+			}
+			if (i < stop) {
+				encode(chars[i++]);
+			}
+		}
+	}
+
+	@Override
+	public void write(String text, int offset, int length) throws IOException {
+		ensureOpen();
+		int i = offset;
+		int end = offset + length;
+		while (i < end) {
+			if (position == buffer.length) {
+				drain();
+			}
+			int stop = Math.min(end, i + buffer.length - position);
+			if (pendingSurrogate == 0) {
+				char c;
+				while (i < stop && (c = text.charAt(i)) < 0x80) {
+					buffer[position++] = (byte) c;
+					i++;
+				}
+			}
+			if (i < stop) {
+				encode(text.charAt(i++));
+			}
+		}
+	}
+
+	/**
+	 * Writes bytes already encoded as UTF-8, as they are.
+	 */
+	public void writeUtf8(byte[] bytes, int offset, int length) throws IOException {
+		ensureOpen();
+		endSurrogate();
+		if (length >= buffer.length) {
+			drain();
+			out.write(bytes, offset, length);
+			return;
+		}
+		if (length > buffer.length - position) {
+			drain();
+		}
+		System.arraycopy(bytes, offset, buffer, position, length);
+		position += length;
+	}
+
+	public void writeUtf8(Utf8Slice slice) throws IOException {
+		writeUtf8(slice.bytes(), slice.offset(), slice.length());
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		drain();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			endSurrogate();
+			drain();
+		} finally {
+			closed = true;
+			out.close();
+		}
+	}
+
+	private void encode(char c) throws IOException {
+		if (buffer.length - position < 4) {
+			drain();
+		}
+		if (pendingSurrogate != 0) {
+			char high = pendingSurrogate;
+			pendingSurrogate = 0;
+			if (Character.isLowSurrogate(c)) {
+				int codePoint = Character.toCodePoint(high, c);
+				buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+				buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+				return;
+			}
+			buffer[position++] = '?';
+		}
+		if (c < 0x80) {
+			buffer[position++] = (byte) c;
+		} else if (c < 0x800) {
+			buffer[position++] = (byte) (0xc0 | (c >> 6));
+			buffer[position++] = (byte) (0x80 | (c & 0x3f));
+		} else if (Character.isHighSurrogate(c)) {
+			pendingSurrogate = c;
+		} else if (Character.isLowSurrogate(c)) {
+			buffer[position++] = '?';
+		} else {
+			buffer[position++] = (byte) (0xe0 | (c >> 12));
+			buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+			buffer[position++] = (byte) (0x80 | (c & 0x3f));
+		}
+	}
+
+	/**
+	 * Writes a high surrogate left without its pair.
+	 */
+	private void endSurrogate() throws IOException {
+		if (pendingSurrogate != 0) {
+			pendingSurrogate = 0;
+			if (position == buffer.length) {
+				drain();
+			}
+			buffer[position++] = '?';
+		}
+	}
+
+	private void drain() throws IOException {
+		if (position > 0) {
+			out.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+}
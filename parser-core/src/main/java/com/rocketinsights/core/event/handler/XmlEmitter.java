@@ -0,0 +1,312 @@
+package com.rocketinsights.core.event.handler;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import com.rocketinsights.core.event.SymbolTable;
+import com.rocketinsights.core.event.Utf8Slice;
+
+/**
+ * Minimal streaming XML writer producing tab-indented output. Markup and text
+ * are assembled in a reusable character buffer which is handed to the
+ * underlying {@link Writer} in large blocks, so emitting an element or a value
+ * allocates nothing.
+ * <p>
+ * The layout matches the one produced by an indenting
+ * {@link javax.xml.stream.XMLStreamWriter}: every start tag goes on its own
+ * line, and an end tag is only moved to a new line when the element contains
+ * other elements. Text content gets <code>&lt;</code>, <code>&gt;</code> and
+ * <code>&amp;</code> escaped; every other character is written as is. The
+ * tags of elements given along with a symbol are built once per symbol and
+ * copied from then on.
+ *
+ * @author fbonecco
+ *
+ */
+public class XmlEmitter implements Flushable {
+
+	private static final int DEFAULT_BUFFER_SIZE = 8192;
+	private static final int INITIAL_DEPTH = 16;
+	private static final char TAB = '\t';
+	private static final char[] LT = "&lt;".toCharArray();
+	private static final char[] GT = "&gt;".toCharArray();
+	private static final char[] AMP = "&amp;".toCharArray();
+	private static final byte[] LT_BYTES = { '&', 'l', 't', ';' };
+	private static final byte[] GT_BYTES = { '&', 'g', 't', ';' };
+	private static final byte[] AMP_BYTES = { '&', 'a', 'm', 'p', ';' };
+
+	private final Writer writer;
+
+	// the writer, when it takes UTF-8 bytes as they are
+	private final Utf8Writer utf8;
+
+	private final char[] buffer;
+
+	private int position;
+
+	/**
+	 * A line feed followed by enough tabs for the deepest element seen so far.
+	 * Indenting to any depth is a single copy of its first depth + 1 chars.
+	 */
+	private char[] indentation;
+
+	private String[] names;
+
+	private int[] symbols;
+
+	private int depth;
+
+	private String[] cachedNames = new String[0];
+
+	private char[][] startTags = new char[0][];
+
+	private char[][] endTags = new char[0][];
+
+	private boolean startTagOpen;
+
+	private boolean elementSeen;
+
+	public XmlEmitter(Writer writer) {
+		this(writer, DEFAULT_BUFFER_SIZE);
+	}
+
+	public XmlEmitter(Writer writer, int bufferSize) {
+		if (bufferSize < LT.length + AMP.length) {
+			throw new IllegalArgumentException(String.format("Invalid buffer size [%d].", bufferSize));
+		}
+		this.writer = writer;
+		this.utf8 = writer instanceof Utf8Writer ? (Utf8Writer) writer : null;
+		this.buffer = new char[bufferSize];
+		this.names = new String[INITIAL_DEPTH];
+		this.symbols = new int[INITIAL_DEPTH];
+		this.indentation = indentation(INITIAL_DEPTH);
+	}
+
+	public void startDocument(String version, String encoding) throws IOException {
+		write("<?xml version=\"");
+		write(version);
+		write("\" encoding=\"");
+		write(encoding);
+		write("\"?>\n");
+	}
+
+	public void startElement(String name) throws IOException {
+		startElement(name, SymbolTable.NO_SYMBOL);
+	}
+
+	/**
+	 * @param symbol the symbol of the name, or {@link SymbolTable#NO_SYMBOL} to
+	 *               build the tags every time
+	 */
+	public void startElement(String name, int symbol) throws IOException {
+		closeStartTag();
+		if (depth > 0) {
+			indent(depth);
+		}
+		if (depth == names.length) {
+			names = Arrays.copyOf(names, depth * 2);
+			symbols = Arrays.copyOf(symbols, depth * 2);
+		}
+		names[depth] = name;
+		symbols[depth++] = symbol;
+		if (cache(name, symbol)) {
+			write(startTags[symbol]);
+		} else {
+			write('<');
+			write(name);
+		}
+		startTagOpen = true;
+		elementSeen = false;
+	}
+
+	public void endElement() throws IOException {
+		if (depth == 0) {
+			throw new IllegalStateException("There is no element to close.");
+		}
+		closeStartTag();
+		String name = names[--depth];
+		int symbol = symbols[depth];
+		names[depth] = null;
+		if (elementSeen) {
+			indent(depth);
+		}
+		if (cache(name, symbol)) {
+			write(endTags[symbol]);
+		} else {
+			write('<');
+			write('/');
+			write(name);
+			write('>');
+		}
+		elementSeen = true;
+	}
+
+	public void characters(String text) throws IOException {
+		closeStartTag();
+		int length = text.length();
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			char[] entity;
+			switch (text.charAt(i)) {
+			case '<':
+				entity = LT;
+				break;
+			case '>':
+				entity = GT;
+				break;
+			case '&':
+				entity = AMP;
+				break;
+			default:
+				continue;
+			}
+			write(text, start, i);
+			write(entity);
+			start = i + 1;
+		}
+		write(text, start, length);
+		elementSeen = false;
+	}
+
+	/**
+	 * Same as {@link #characters(String)} for text given as UTF-8 bytes. When the
+	 * underlying writer is a {@link Utf8Writer} they are escaped and copied as
+	 * they are, otherwise they are decoded first.
+	 */
+	public void characters(Utf8Slice text) throws IOException {
+		if (utf8 == null) {
+			characters(text.toString());
+			return;
+		}
+		closeStartTag();
+		drain();
+		byte[] bytes = text.bytes();
+		int start = text.offset();
+		int end = start + text.length();
+		// bytes of multi-byte characters are never ASCII
+		for (int i = start; i < end; i++) {
+			byte[] entity;
+			switch (bytes[i]) {
+			case '<':
+				entity = LT_BYTES;
+				break;
+			case '>':
+				entity = GT_BYTES;
+				break;
+			case '&':
+				entity = AMP_BYTES;
+				break;
+			default:
+				continue;
+			}
+			utf8.writeUtf8(bytes, start, i - start);
+			utf8.writeUtf8(entity, 0, entity.length);
+			start = i + 1;
+		}
+		utf8.writeUtf8(bytes, start, end - start);
+		elementSeen = false;
+	}
+
+	/**
+	 * Hands the buffered output to the underlying {@link Writer} and flushes it.
+	 */
+	@Override
+	public void flush() throws IOException {
+		drain();
+		writer.flush();
+	}
+
+	/**
+	 * Makes sure the tags of a symbol are cached.
+	 * 
+	 * @return false if the name has no symbol
+	 */
+	private boolean cache(String name, int symbol) {
+		if (symbol < 0) {
+			return false;
+		}
+		if (symbol >= cachedNames.length) {
+			int capacity = Math.max(symbol + 1, cachedNames.length * 2);
+			cachedNames = Arrays.copyOf(cachedNames, capacity);
+			startTags = Arrays.copyOf(startTags, capacity);
+			endTags = Arrays.copyOf(endTags, capacity);
+		}
+		// names are interned, so a symbol keeps pointing to the same instance
+		if (cachedNames[symbol] != name) {
+			cachedNames[symbol] = name;
+			startTags[symbol] = ("<" + name).toCharArray();
+			endTags[symbol] = ("</" + name + ">").toCharArray();
+		}
+		return true;
+	}
+
+	private void closeStartTag() throws IOException {
+		if (startTagOpen) {
+			write('>');
+			startTagOpen = false;
+		}
+	}
+
+	private void indent(int level) throws IOException {
+		if (level >= indentation.length) {
+			indentation = indentation(Math.max(level + 1, indentation.length * 2));
+		}
+		write(indentation, 0, level + 1);
+	}
+
+	private void write(char c) throws IOException {
+		if (position == buffer.length) {
+			drain();
+		}
+		buffer[position++] = c;
+	}
+
+	private void write(char[] chars) throws IOException {
+		write(chars, 0, chars.length);
+	}
+
+	private void write(char[] chars, int offset, int length) throws IOException {
+		while (length > 0) {
+			if (position == buffer.length) {
+				drain();
+			}
+			int count = Math.min(length, buffer.length - position);
+			System.arraycopy(chars, offset, buffer, position, count);
+			position += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	private void write(String text) throws IOException {
+		write(text, 0, text.length());
+	}
+
+	private void write(String text, int from, int to) throws IOException {
+		while (from < to) {
+			if (position == buffer.length) {
+				drain();
+			}
+			int count = Math.min(to - from, buffer.length - position);
+			text.getChars(from, from + count, buffer, position);
+			position += count;
+			from += count;
+		}
+	}
+
+	private void drain() throws IOException {
+		if (position > 0) {
+			writer.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	private static char[] indentation(int levels) {
+		char[] chars = new char[levels + 1];
+		Arrays.fill(chars, TAB);
+		chars[0] = '\n';
+		return chars;
+	}
+}
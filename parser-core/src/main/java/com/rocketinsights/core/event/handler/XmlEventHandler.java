@@ -3,12 +3,8 @@ package com.rocketinsights.core.event.handler;
 import java.io.IOException;
 import java.io.Writer;
 
-import javax.xml.stream.XMLOutputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
-
-import com.sun.xml.txw2.output.IndentingXMLStreamWriter;
 import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.Utf8Slice;
 import com.rocketinsights.core.exception.ProcessingException;
 
 /**
@@ -22,71 +18,57 @@ public class XmlEventHandler extends DocumentEventHandler {
 	private static final String ROOT_NODE = "root";
 	private static final String VERSION = "1.0";
 	private static final String ENCODING = "UTF-8";
-	private static final String TAB = "\t";
 
-	private XMLStreamWriter streamWriter;
+	private final XmlEmitter emitter;
 
 	public XmlEventHandler(Writer writer) throws IOException {
 		super(writer);
-		init();
+		this.emitter = new XmlEmitter(writer);
 	}
 
-	private void init() throws IOException {
-		XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
-		try {
-			streamWriter = new IndentingXMLStreamWriter(outputFactory.createXMLStreamWriter(writer));
-			((IndentingXMLStreamWriter) streamWriter).setIndentStep(TAB);
-		} catch (XMLStreamException e) {
-			throw new IOException("Can't setup handler.", e);
-		}
-
+	@Override
+	protected void handleDocumentStarted(Writer writer) throws IOException, ProcessingException {
+		emitter.startDocument(VERSION, ENCODING);
+		emitter.startElement(ROOT_NODE);
 	}
 
 	@Override
-	protected void handleDocumentStarted(Event event, Writer writer) throws IOException, ProcessingException {
-		try {
-			streamWriter.writeStartDocument(ENCODING, VERSION);
-			streamWriter.writeStartElement(ROOT_NODE);
-		} catch (XMLStreamException e) {
-			throw new ProcessingException(String.format("There was an error handling the event [%s].", event), e);
-		}
+	protected void handleDocumentEnded(Writer writer) throws IOException, ProcessingException {
+		emitter.endElement();
+		emitter.flush();
+	}
 
+	@Override
+	protected void handleNodeOpened(String name, int symbol, Writer writer)
+			throws IOException, ProcessingException {
+		emitter.startElement(name, symbol);
 	}
 
 	@Override
-	protected void handleDocumentEnded(Event event, Writer writer) throws IOException, ProcessingException {
-		try {
-			streamWriter.writeEndElement();
-		} catch (XMLStreamException e) {
-			throw new ProcessingException(String.format("There was an error handling the event [%s].", event), e);
-		}
+	protected void handleNodeClosed(String name, int symbol, Writer writer)
+			throws IOException, ProcessingException {
+		emitter.endElement();
 	}
 
 	@Override
-	protected void handleNodeOpened(Event event, Writer writer) throws IOException, ProcessingException {
-		try {
-			streamWriter.writeStartElement(event.getName());
-		} catch (XMLStreamException e) {
-			throw new ProcessingException(String.format("There was an error handling the event [%s].", event), e);
-		}
+	protected void handleValueAdded(String data, Writer writer) throws IOException, ProcessingException {
+		emitter.characters(data);
+	}
 
+	@Override
+	protected void handleValueAdded(Utf8Slice data, Writer writer) throws IOException, ProcessingException {
+		emitter.characters(data);
 	}
 
 	@Override
-	protected void handleNodeClosed(Event event, Writer writer) throws IOException, ProcessingException {
-		try {
-			streamWriter.writeEndElement();
-		} catch (XMLStreamException e) {
-			throw new ProcessingException(String.format("There was an error handling the event [%s].", event), e);
-		}
+	protected void handleValueFragment(String data, boolean first, boolean last, Writer writer)
+			throws IOException, ProcessingException {
+		emitter.characters(data);
 	}
 
 	@Override
-	protected void handleValueAdded(Event event, Writer writer) throws IOException, ProcessingException {
-		try {
-			streamWriter.writeCharacters(event.getData());
-		} catch (XMLStreamException e) {
-			throw new ProcessingException(String.format("There was an error handling the event [%s].", event), e);
-		}
+	protected void handleValueFragment(Utf8Slice data, boolean first, boolean last, Writer writer)
+			throws IOException, ProcessingException {
+		emitter.characters(data);
 	}
 }
@@ -0,0 +1,172 @@
+package com.rocketinsights.core.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The compressions a file may come in. A file is taken as gzip compressed when
+ * its name ends with {@value #GZIP_SUFFIX}, otherwise its compression is told
+ * by its first two bytes: <code>1f 8b</code> for gzip, or a zlib header such
+ * as <code>78 9c</code> for deflate. Either way the contents are inflated as
+ * they are read, the file is never decompressed whole.
+ *
+ * @author fbonecco
+ *
+ */
+public enum Compression {
+
+	NONE {
+
+		@Override
+		public InputStream decompress(InputStream stream) {
+			return stream;
+		}
+
+		@Override
+		public OutputStream compress(OutputStream stream) {
+			return stream;
+		}
+	},
+
+	GZIP {
+
+		@Override
+		public InputStream decompress(InputStream stream) throws IOException {
+			// reads every member of a multi-member stream
+			return new GZIPInputStream(stream, BUFFER_SIZE);
+		}
+
+		@Override
+		public OutputStream compress(OutputStream stream) throws IOException {
+			return new GZIPOutputStream(stream, BUFFER_SIZE);
+		}
+	},
+
+	DEFLATE {
+
+		@Override
+		public InputStream decompress(InputStream stream) {
+			Inflater inflater = new Inflater();
+			return new InflaterInputStream(stream, inflater, BUFFER_SIZE) {
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						inflater.end();
+					}
+				}
+			};
+		}
+
+		@Override
+		public OutputStream compress(OutputStream stream) {
+			Deflater deflater = new Deflater();
+			return new DeflaterOutputStream(stream, deflater, BUFFER_SIZE) {
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						deflater.end();
+					}
+				}
+			};
+		}
+	};
+
+	public static final String GZIP_SUFFIX = ".gz";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int GZIP_MAGIC = 0x1f8b;
+
+	// deflate with a 32K window
+	private static final int ZLIB_METHOD = 0x78;
+
+	/**
+	 * Wraps a stream so that it reads the contents of a file inflated, as told by
+	 * the name of the file or else by its first bytes.
+	 */
+	public static InputStream decompressing(Path path, InputStream stream) throws IOException {
+		if (fromName(path.toString()) == GZIP) {
+			return GZIP.decompress(stream);
+		}
+		PushbackInputStream pushback = new PushbackInputStream(stream, 2);
+		byte[] magic = new byte[2];
+		int length = 0;
+		int n;
+		while (length < magic.length && (n = pushback.read(magic, length, magic.length - length)) > 0) {
+			length += n;
+		}
+		pushback.unread(magic, 0, length);
+		return (length < magic.length ? NONE : fromMagic(magic[0] & 0xff, magic[1] & 0xff)).decompress(pushback);
+	}
+
+	/**
+	 * @return the compression of a file, as told by its name or else by its first
+	 *         bytes
+	 */
+	public static Compression of(Path path) throws IOException {
+		Compression compression = fromName(path.toString());
+		if (compression != NONE) {
+			return compression;
+		}
+		try (InputStream stream = Files.newInputStream(path)) {
+			int first = stream.read();
+			int second = stream.read();
+			return second < 0 ? NONE : fromMagic(first, second);
+		}
+	}
+
+	/**
+	 * @return {@link #GZIP} if the name ends with {@value #GZIP_SUFFIX},
+	 *         {@link #NONE} otherwise
+	 */
+	public static Compression fromName(String name) {
+		return name.toLowerCase(Locale.ROOT).endsWith(GZIP_SUFFIX) ? GZIP : NONE;
+	}
+
+	/**
+	 * @return the name without the suffix telling its compression, if any
+	 */
+	public static String stripSuffix(String name) {
+		return fromName(name) == GZIP ? name.substring(0, name.length() - GZIP_SUFFIX.length()) : name;
+	}
+
+	private static Compression fromMagic(int first, int second) {
+		if ((first << 8 | second) == GZIP_MAGIC) {
+			return GZIP;
+		}
+		// the zlib headers written at each compression level, other valid headers
+		// would take the first bytes of too many plain text files
+		if (first == ZLIB_METHOD && (second == 0x01 || second == 0x5e || second == 0x9c || second == 0xda)) {
+			return DEFLATE;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Wraps a stream so that it reads the contents inflated.
+	 */
+	public abstract InputStream decompress(InputStream stream) throws IOException;
+
+	/**
+	 * Wraps a stream so that what is written to it is compressed. Closing the
+	 * returned stream finishes the compressed data.
+	 */
+	public abstract OutputStream compress(OutputStream stream) throws IOException;
+}
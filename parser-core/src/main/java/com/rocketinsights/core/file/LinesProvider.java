@@ -1,29 +1,47 @@
 package com.rocketinsights.core.file;
 
-import java.io.File;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.LinkedList;
-import java.util.List;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.LineIterator;
 
-public class LinesProvider implements FileContentProvider<List<String>> {
+/**
+ * Provides the lines of a file lazily. Lines are pulled from the underlying
+ * stream one at a time as the returned {@link LineIterator} is consumed, so the
+ * whole file is never held in memory. Blank lines are skipped. The bytes are
+ * pulled from the given stream provider, {@link StreamProvider} by default,
+ * which inflates compressed files on the fly.
+ * 
+ * Callers are responsible for closing the returned {@link LineIterator}.
+ * 
+ * @author fbonecco
+ *
+ */
+public class LinesProvider implements FileContentProvider<LineIterator> {
 
-	private static final String ENCODING = "UTF-8";
+	private FileContentProvider<? extends InputStream> streamProvider;
+
+	public LinesProvider() {
+		this(new StreamProvider());
+	}
+
+	public LinesProvider(FileContentProvider<? extends InputStream> streamProvider) {
+		this.streamProvider = streamProvider;
+	}
 
 	@Override
-	public List<String> readContents(Path path) throws IOException {
-		File file = path.toFile();
-		List<String> lines = new LinkedList<>();
-		try (LineIterator iterator = FileUtils.lineIterator(file, ENCODING)) {
-			iterator.forEachRemaining(l -> {
-				if (!l.trim().isEmpty()) {
-					lines.add(l);
-				}
-			});
-		}
-		return lines;
+	public LineIterator readContents(Path path) throws IOException {
+		InputStream stream = streamProvider.readContents(path);
+		return new LineIterator(new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+
+			@Override
+			protected boolean isValidLine(String line) {
+				return !line.trim().isEmpty();
+			}
+		};
 	}
 }
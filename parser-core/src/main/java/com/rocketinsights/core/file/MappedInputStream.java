@@ -0,0 +1,150 @@
+package com.rocketinsights.core.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An {@link InputStream} backed by a memory-mapped file. Instead of copying the
+ * file contents through heap buffers, the file is mapped in rolling windows of
+ * a fixed size, so files larger than 2 GB can be read as well. Only one window
+ * is mapped at a time.
+ * 
+ * Besides the regular {@link InputStream} methods, the contents can be consumed
+ * directly as {@link ByteBuffer}s through {@link #nextWindow()}.
+ * 
+ * @author fbonecco
+ *
+ */
+public class MappedInputStream extends InputStream {
+
+	public static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+
+	private final FileChannel channel;
+
+	private final long size;
+
+	private final long windowSize;
+
+	private long windowOffset;
+
+	private MappedByteBuffer window;
+
+	public MappedInputStream(Path path) throws IOException {
+		this(path, DEFAULT_WINDOW_SIZE);
+	}
+
+	public MappedInputStream(Path path, long windowSize) throws IOException {
+		if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(String.format("Invalid window size [%d].", windowSize));
+		}
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.size = channel.size();
+		this.windowSize = windowSize;
+		this.windowOffset = 0L;
+	}
+
+	/**
+	 * Returns the unread bytes of the current window as a read-only
+	 * {@link ByteBuffer}, mapping the next window if the current one was fully
+	 * consumed. The returned bytes are considered read.
+	 * 
+	 * @return the next chunk of the file, or null when the end was reached
+	 * @throws IOException
+	 */
+	public ByteBuffer nextWindow() throws IOException {
+		if (!ensureRemaining()) {
+			return null;
+		}
+		ByteBuffer slice = window.slice().asReadOnlyBuffer();
+		window.position(window.limit());
+		return slice;
+	}
+
+	/**
+	 * @return the size of the mapped file
+	 */
+	public long size() {
+		return size;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!ensureRemaining()) {
+			return -1;
+		}
+		return window.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (!ensureRemaining()) {
+			return -1;
+		}
+		int count = Math.min(len, window.remaining());
+		window.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		if (n <= 0) {
+			return 0L;
+		}
+		long current = position();
+		long target = Math.min(size, current + n);
+		if (window != null && target < windowOffset + window.limit()) {
+			window.position((int) (target - windowOffset));
+		} else if (target < size) {
+			map(target);
+		} else {
+			window = null;
+			windowOffset = size;
+		}
+		return target - current;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(Integer.MAX_VALUE, size - position());
+	}
+
+	@Override
+	public void close() throws IOException {
+		// mapped buffers are released once they become unreachable
+		window = null;
+		channel.close();
+	}
+
+	private long position() {
+		return window == null ? windowOffset : windowOffset + window.position();
+	}
+
+	private boolean ensureRemaining() throws IOException {
+		if (window != null && window.hasRemaining()) {
+			return true;
+		}
+		long next = window == null ? windowOffset : windowOffset + window.limit();
+		if (next >= size) {
+			return false;
+		}
+		map(next);
+		return true;
+	}
+
+	private void map(long offset) throws IOException {
+		windowOffset = offset;
+		window = channel.map(MapMode.READ_ONLY, offset, Math.min(windowSize, size - offset));
+	}
+}
@@ -0,0 +1,30 @@
+package com.rocketinsights.core.file;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Provides the contents of a file through a {@link MappedInputStream}, avoiding
+ * the copies made by regular streams. Intended for very large inputs.
+ * 
+ * @author fbonecco
+ *
+ */
+public class MappedStreamProvider implements FileContentProvider<MappedInputStream> {
+
+	private final long windowSize;
+
+	public MappedStreamProvider() {
+		this(MappedInputStream.DEFAULT_WINDOW_SIZE);
+	}
+
+	public MappedStreamProvider(long windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	@Override
+	public MappedInputStream readContents(Path path) throws IOException {
+		return new MappedInputStream(path, windowSize);
+	}
+
+}
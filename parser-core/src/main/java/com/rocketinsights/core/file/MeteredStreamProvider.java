@@ -0,0 +1,43 @@
+package com.rocketinsights.core.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import org.apache.commons.io.input.ProxyInputStream;
+
+import com.rocketinsights.core.metrics.ParserMetrics;
+
+/**
+ * Reports the bytes pulled from the streams of another provider to a
+ * {@link ParserMetrics}, as they are read. For compressed files these are the
+ * bytes inflated.
+ * 
+ * @author fbonecco
+ *
+ */
+public class MeteredStreamProvider implements FileContentProvider<InputStream> {
+
+	private final FileContentProvider<? extends InputStream> streamProvider;
+
+	private final ParserMetrics metrics;
+
+	public MeteredStreamProvider(FileContentProvider<? extends InputStream> streamProvider, ParserMetrics metrics) {
+		this.streamProvider = streamProvider;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public InputStream readContents(Path path) throws IOException {
+		return new ProxyInputStream(streamProvider.readContents(path)) {
+
+			@Override
+			protected void afterRead(int n) {
+				if (n > 0) {
+					metrics.bytesRead(n);
+				}
+			}
+		};
+	}
+
+}
@@ -0,0 +1,291 @@
+package com.rocketinsights.core.file;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An {@link OutputStream} compressing what is written to it as gzip on several
+ * threads, in the manner of pigz. The bytes are cut in blocks of a fixed size,
+ * each block is compressed on its own by an {@link Executor} into a complete
+ * gzip member, and the members are written in the order of their blocks. The
+ * result is a multi-member gzip stream, which any gzip reader inflates back to
+ * the bytes written.
+ * <p>
+ * At most the given number of blocks are compressed or waiting to be written at
+ * once, filling one more block waits for the oldest of them to be written.
+ * Blocks are reused along with their compressors, so the memory taken is
+ * bounded by the number of blocks in flight. Compressing the blocks
+ * independently costs some ratio, as no block refers to the data of the
+ * previous one.
+ * <p>
+ * Like a {@link java.util.zip.GZIPOutputStream}, flushing does not cut the
+ * block being filled, it only writes the blocks already compressed. The data
+ * is complete once the stream is closed. This stream is not thread safe.
+ *
+ * @author fbonecco
+ *
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+	public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+	private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+	private static final int TRAILER_SIZE = 8;
+
+	private final OutputStream out;
+
+	private final int blockSize;
+
+	private final Executor executor;
+
+	private final int maxInFlight;
+
+	// blocks compressed or being compressed, oldest first
+	private final ArrayDeque<Block> inFlight = new ArrayDeque<>();
+
+	private final ArrayDeque<Block> free = new ArrayDeque<>();
+
+	private Block current;
+
+	private boolean empty = true;
+
+	private boolean closed;
+
+	/**
+	 * @param blockSize   number of bytes compressed at once
+	 * @param executor    compresses the blocks
+	 * @param maxInFlight maximum number of blocks compressed or waiting to be
+	 *                    written at once
+	 */
+	public ParallelGzipOutputStream(OutputStream out, int blockSize, Executor executor, int maxInFlight) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid block size [%d].", blockSize));
+		}
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid number of blocks in flight [%d].", maxInFlight));
+		}
+		this.out = out;
+		this.blockSize = blockSize;
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+		this.current = new Block(blockSize);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		if (current.length == blockSize) {
+			submit();
+		}
+		current.data[current.length++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		ensureOpen();
+		while (length > 0) {
+			if (current.length == blockSize) {
+				submit();
+			}
+			int count = Math.min(length, blockSize - current.length);
+			System.arraycopy(bytes, offset, current.data, current.length, count);
+			current.length += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Writes the blocks already compressed and flushes the underlying stream.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		writeCompressed();
+		out.flush();
+	}
+
+	/**
+	 * Compresses the last block, writes every block left and closes the
+	 * underlying stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			// an empty stream still gets a member, or it would not be gzip
+			if (current.length > 0 || empty) {
+				dispatch();
+			}
+			while (!inFlight.isEmpty()) {
+				write(inFlight.poll());
+			}
+		} finally {
+			closed = true;
+			try {
+				// after a failure the compressors may still be running
+				for (Block block : inFlight) {
+					block.await();
+				}
+			} finally {
+				for (Block block : inFlight) {
+					block.deflater.end();
+				}
+				for (Block block : free) {
+					block.deflater.end();
+				}
+				if (current != null) {
+					current.deflater.end();
+				}
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Hands the current block to the executor and takes the next one, waiting
+	 * for the oldest block to be written if too many are in flight.
+	 */
+	private void submit() throws IOException {
+		dispatch();
+		try {
+			writeCompressed();
+			if (inFlight.size() == maxInFlight) {
+				write(inFlight.poll());
+			}
+		} finally {
+			current = free.isEmpty() ? new Block(blockSize) : free.poll();
+		}
+	}
+
+	private void dispatch() {
+		Block block = current;
+		current = null;
+		block.task = new FutureTask<>(block, null);
+		inFlight.add(block);
+		empty = false;
+		executor.execute(block.task);
+	}
+
+	/**
+	 * Writes the oldest blocks as long as they are compressed.
+	 */
+	private void writeCompressed() throws IOException {
+		while (!inFlight.isEmpty() && inFlight.peek().task.isDone()) {
+			write(inFlight.poll());
+		}
+	}
+
+	/**
+	 * Writes a block once compressed, making it free to be reused.
+	 */
+	private void write(Block block) throws IOException {
+		try {
+			block.task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			inFlight.addFirst(block);
+			throw new InterruptedIOException("Interrupted while compressing.");
+		} catch (ExecutionException e) {
+			block.length = 0;
+			free.add(block);
+			throw new IOException("A block could not be compressed.", e.getCause());
+		}
+		block.length = 0;
+		free.add(block);
+		out.write(block.output, 0, block.outputLength);
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	/**
+	 * Bytes to compress, along with what compresses them and the gzip member they
+	 * end up in.
+	 */
+	private static class Block implements Runnable {
+
+		private final byte[] data;
+
+		private int length;
+
+		private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+		private final CRC32 crc = new CRC32();
+
+		private byte[] output;
+
+		private int outputLength;
+
+		private FutureTask<Void> task;
+
+		private Block(int size) {
+			this.data = new byte[size];
+			// grows if the data does not compress, and keeps its size from then on
+			this.output = new byte[size / 2 + HEADER.length + TRAILER_SIZE];
+		}
+
+		@Override
+		public void run() {
+			System.arraycopy(HEADER, 0, output, 0, HEADER.length);
+			outputLength = HEADER.length;
+			deflater.reset();
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+			while (!deflater.finished()) {
+				if (outputLength == output.length) {
+					output = Arrays.copyOf(output, output.length + output.length / 2);
+				}
+				outputLength += deflater.deflate(output, outputLength, output.length - outputLength);
+			}
+			if (output.length - outputLength < TRAILER_SIZE) {
+				output = Arrays.copyOf(output, outputLength + TRAILER_SIZE);
+			}
+			crc.reset();
+			crc.update(data, 0, length);
+			writeInt((int) crc.getValue());
+			writeInt(length);
+		}
+
+		private void writeInt(int value) {
+			// little endian, as gzip wants it
+			for (int i = 0; i < 4; i++) {
+				output[outputLength++] = (byte) (value >>> (i * 8));
+			}
+		}
+
+		/**
+		 * Waits for the block to be compressed, whether it succeeds or not.
+		 */
+		private void await() {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					task.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					break;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
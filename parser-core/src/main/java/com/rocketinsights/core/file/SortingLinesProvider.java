@@ -0,0 +1,311 @@
+package com.rocketinsights.core.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.LineIterator;
+
+/**
+ * Provides the lines of a properties file sorted by key path, so properties
+ * sharing a prefix end up next to each other. Sorting is done with bounded
+ * memory: lines are buffered until the memory budget is reached, then the
+ * buffer is sorted and spilled to a temporary file (a run). Runs are finally
+ * k-way merged while the returned {@link LineIterator} is consumed.
+ * 
+ * Temporary files are removed once the returned {@link LineIterator} is
+ * closed.
+ * 
+ * @author fbonecco
+ *
+ */
+public class SortingLinesProvider implements FileContentProvider<LineIterator> {
+
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+	// rough memory used by a buffered line, without its characters
+	private static final int LINE_OVERHEAD = 64;
+
+	// maximum number of runs merged at once
+	private static final int MAX_FAN_IN = 128;
+
+	private static final String RUN_PREFIX = "properties-run-";
+
+	private static final String RUN_SUFFIX = ".tmp";
+
+	/**
+	 * Compares lines by their key. Keys are made of word characters and points,
+	 * and the point sorts before any other of them, so comparing keys as strings
+	 * orders them path segment by path segment.
+	 */
+	static final Comparator<String> BY_KEY = (a, b) -> {
+		int lengthA = keyLength(a);
+		int lengthB = keyLength(b);
+		int length = Math.min(lengthA, lengthB);
+		for (int x = 0; x < length; x++) {
+			int diff = a.charAt(x) - b.charAt(x);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return lengthA - lengthB;
+	};
+
+	private final FileContentProvider<LineIterator> linesProvider;
+
+	private final long memoryBudget;
+
+	private final Path tempDirectory;
+
+	public SortingLinesProvider() {
+		this(new LinesProvider(), DEFAULT_MEMORY_BUDGET, null);
+	}
+
+	/**
+	 * @param linesProvider provides the unsorted lines
+	 * @param memoryBudget  approximate number of bytes of lines buffered before
+	 *                      spilling a run to disk
+	 * @param tempDirectory where runs are written, or null to use the default
+	 *                      temporary-file directory
+	 */
+	public SortingLinesProvider(FileContentProvider<LineIterator> linesProvider, long memoryBudget,
+			Path tempDirectory) {
+		if (memoryBudget <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid memory budget [%d].", memoryBudget));
+		}
+		this.linesProvider = linesProvider;
+		this.memoryBudget = memoryBudget;
+		this.tempDirectory = tempDirectory;
+	}
+
+	@Override
+	public LineIterator readContents(Path path) throws IOException {
+		List<Path> runs = new ArrayList<>();
+		try {
+			List<String> buffer = new ArrayList<>();
+			long used = 0L;
+			try (LineIterator lines = linesProvider.readContents(path)) {
+				while (lines.hasNext()) {
+					String line = lines.next();
+					buffer.add(line);
+					used += LINE_OVERHEAD + 2L * line.length();
+					if (used >= memoryBudget) {
+						buffer.sort(BY_KEY);
+						runs.add(spill(buffer.iterator()));
+						buffer.clear();
+						used = 0L;
+					}
+				}
+			} catch (IllegalStateException e) {
+				// LineIterator wraps IO errors found while pulling lines
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw e;
+			}
+			buffer.sort(BY_KEY);
+
+			while (runs.size() + 1 > MAX_FAN_IN) {
+				runs = mergeRuns(runs);
+			}
+			List<Iterator<String>> sources = new ArrayList<>();
+			List<Closeable> resources = new ArrayList<>();
+			for (Path run : runs) {
+				LineIterator iterator = FileUtils.lineIterator(run.toFile(), StandardCharsets.UTF_8.name());
+				sources.add(iterator);
+				resources.add(iterator);
+				resources.add(() -> Files.deleteIfExists(run));
+			}
+			// the last buffer is merged straight from memory
+			sources.add(buffer.iterator());
+			return new LineIterator(new LinesReader(new MergeIterator(sources), resources));
+		} catch (IOException | RuntimeException e) {
+			for (Path run : runs) {
+				Files.deleteIfExists(run);
+			}
+			throw e;
+		}
+	}
+
+	private List<Path> mergeRuns(List<Path> runs) throws IOException {
+		List<Path> merged = new ArrayList<>();
+		for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+			List<Path> group = runs.subList(from, Math.min(from + MAX_FAN_IN, runs.size()));
+			List<Iterator<String>> sources = new ArrayList<>();
+			List<LineIterator> iterators = new ArrayList<>();
+			try {
+				for (Path run : group) {
+					LineIterator iterator = FileUtils.lineIterator(run.toFile(), StandardCharsets.UTF_8.name());
+					iterators.add(iterator);
+					sources.add(iterator);
+				}
+				merged.add(spill(new MergeIterator(sources)));
+			} finally {
+				for (LineIterator iterator : iterators) {
+					iterator.close();
+				}
+			}
+			for (Path run : group) {
+				Files.delete(run);
+			}
+		}
+		return merged;
+	}
+
+	private Path spill(Iterator<String> lines) throws IOException {
+		Path run = tempDirectory == null ? Files.createTempFile(RUN_PREFIX, RUN_SUFFIX)
+				: Files.createTempFile(tempDirectory, RUN_PREFIX, RUN_SUFFIX);
+		try (Writer writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+			while (lines.hasNext()) {
+				writer.write(lines.next());
+				writer.write('\n');
+			}
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(run);
+			throw e;
+		}
+		return run;
+	}
+
+	private static int keyLength(String line) {
+		int x = 0;
+		while (x < line.length()) {
+			char c = line.charAt(x);
+			if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '.')) {
+				break;
+			}
+			x++;
+		}
+		return x;
+	}
+
+	/**
+	 * Merges several sorted sources of lines. Lines with the same key are taken
+	 * in the order of their sources, so the sort is stable.
+	 */
+	private static class MergeIterator implements Iterator<String> {
+
+		private final PriorityQueue<Cursor> queue;
+
+		MergeIterator(List<Iterator<String>> sources) {
+			queue = new PriorityQueue<>(Math.max(sources.size(), 1));
+			for (int x = 0; x < sources.size(); x++) {
+				Cursor cursor = new Cursor(sources.get(x), x);
+				if (cursor.advance()) {
+					queue.add(cursor);
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !queue.isEmpty();
+		}
+
+		@Override
+		public String next() {
+			Cursor cursor = queue.poll();
+			if (cursor == null) {
+				throw new NoSuchElementException();
+			}
+			String line = cursor.current;
+			if (cursor.advance()) {
+				queue.add(cursor);
+			}
+			return line;
+		}
+
+		private static class Cursor implements Comparable<Cursor> {
+
+			private final Iterator<String> source;
+
+			private final int index;
+
+			private String current;
+
+			Cursor(Iterator<String> source, int index) {
+				this.source = source;
+				this.index = index;
+			}
+
+			boolean advance() {
+				current = source.hasNext() ? source.next() : null;
+				return current != null;
+			}
+
+			@Override
+			public int compareTo(Cursor o) {
+				int diff = BY_KEY.compare(current, o.current);
+				return diff != 0 ? diff : index - o.index;
+			}
+		}
+	}
+
+	/**
+	 * Exposes lines as a character stream, one line per row, so they can be read
+	 * back through a {@link LineIterator}.
+	 */
+	private static class LinesReader extends Reader {
+
+		private final Iterator<String> lines;
+
+		private final List<Closeable> resources;
+
+		private String current;
+
+		private int position;
+
+		LinesReader(Iterator<String> lines, List<Closeable> resources) {
+			this.lines = lines;
+			this.resources = resources;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (current == null || position > current.length()) {
+				if (!lines.hasNext()) {
+					return -1;
+				}
+				current = lines.next();
+				position = 0;
+			}
+			int count = Math.min(len, current.length() - position);
+			current.getChars(position, position + count, cbuf, off);
+			position += count;
+			if (count < len && position == current.length()) {
+				cbuf[off + count++] = '\n';
+				position++;
+			}
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			IOException failure = null;
+			for (Closeable resource : resources) {
+				try {
+					resource.close();
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+}
@@ -7,12 +7,26 @@ import java.nio.file.Path;
 
 import org.apache.commons.io.FileUtils;
 
+/**
+ * Provides the contents of a file through a regular stream. Compressed files
+ * are inflated as they are read, see {@link Compression}.
+ * 
+ * @author fbonecco
+ *
+ */
 public class StreamProvider implements FileContentProvider<InputStream> {
 
 	@Override
 	public InputStream readContents(Path path) throws IOException {
 		File file = path.toFile();
-		return FileUtils.openInputStream(file);
+		InputStream stream = FileUtils.openInputStream(file);
+		try {
+			return Compression.decompressing(path, stream);
+		} catch (IOException e) {
+			// such as a bad gzip header
+			stream.close();
+			throw e;
+		}
 	}
 
 }
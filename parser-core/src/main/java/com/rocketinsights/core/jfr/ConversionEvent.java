@@ -0,0 +1,61 @@
+package com.rocketinsights.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning a whole conversion, from the input file being
+ * opened to the last output file being closed.
+ *
+ * @author fbonecco
+ *
+ */
+@Name(ConversionEvent.NAME)
+@Label("Conversion")
+@Category({ "Rocket Insights", "Parser" })
+@Description("An input file converted to one or several formats")
+public class ConversionEvent extends Event {
+
+	public static final String NAME = "com.rocketinsights.parser.Conversion";
+
+	@Label("Input File")
+	private String inputFile;
+
+	@Label("Input Size")
+	@DataAmount
+	private long inputSize;
+
+	@Label("Formats")
+	@Description("Comma separated formats the input is converted to")
+	private String formats;
+
+	@Label("Pipelined")
+	private boolean pipelined;
+
+	@Label("Succeeded")
+	private boolean succeeded;
+
+	public void setInputFile(String inputFile) {
+		this.inputFile = inputFile;
+	}
+
+	public void setInputSize(long inputSize) {
+		this.inputSize = inputSize;
+	}
+
+	public void setFormats(String formats) {
+		this.formats = formats;
+	}
+
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+
+	public void setSucceeded(boolean succeeded) {
+		this.succeeded = succeeded;
+	}
+}
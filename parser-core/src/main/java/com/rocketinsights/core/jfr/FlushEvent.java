@@ -0,0 +1,47 @@
+package com.rocketinsights.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning the output being flushed, either by a handler
+ * once the document ends or by the parser closing the output file.
+ *
+ * @author fbonecco
+ *
+ */
+@Name(FlushEvent.NAME)
+@Label("Flush")
+@Category({ "Rocket Insights", "Parser" })
+@Description("Output flushed by a handler, or an output file closed")
+public class FlushEvent extends Event {
+
+	public static final String NAME = "com.rocketinsights.parser.Flush";
+
+	@Label("Target")
+	@Description("The handler flushing, or the output file closed")
+	private String target;
+
+	@Label("Close")
+	private boolean close;
+
+	@Label("Output Size")
+	@DataAmount
+	private long outputSize;
+
+	public void setTarget(String target) {
+		this.target = target;
+	}
+
+	public void setClose(boolean close) {
+		this.close = close;
+	}
+
+	public void setOutputSize(long outputSize) {
+		this.outputSize = outputSize;
+	}
+}
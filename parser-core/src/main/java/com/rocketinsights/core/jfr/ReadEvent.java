@@ -0,0 +1,71 @@
+package com.rocketinsights.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event spanning the reading of a file, from the first event
+ * pulled to the last one. As events are usually handled as they are read, the
+ * time spent within the reader itself is recorded apart.
+ *
+ * @author fbonecco
+ *
+ */
+@Name(ReadEvent.NAME)
+@Label("Read")
+@Category({ "Rocket Insights", "Parser" })
+@Description("A file read by a reader")
+public class ReadEvent extends Event {
+
+	public static final String NAME = "com.rocketinsights.parser.Read";
+
+	@Label("Reader")
+	private String reader;
+
+	@Label("File")
+	private String file;
+
+	@Label("File Size")
+	@DataAmount
+	private long fileSize;
+
+	@Label("Event Count")
+	private long eventCount;
+
+	@Label("Read Time")
+	@Description("Time spent parsing, leaving out the time the caller took to handle the events")
+	@Timespan
+	private long readTime;
+
+	@Label("Succeeded")
+	private boolean succeeded;
+
+	public void setReader(String reader) {
+		this.reader = reader;
+	}
+
+	public void setFile(String file) {
+		this.file = file;
+	}
+
+	public void setFileSize(long fileSize) {
+		this.fileSize = fileSize;
+	}
+
+	public void setEventCount(long eventCount) {
+		this.eventCount = eventCount;
+	}
+
+	public void setReadTime(long readTime) {
+		this.readTime = readTime;
+	}
+
+	public void setSucceeded(boolean succeeded) {
+		this.succeeded = succeeded;
+	}
+}
@@ -0,0 +1,63 @@
+package com.rocketinsights.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event spanning the validation of the properties of a file
+ * against a {@link com.rocketinsights.core.tree.PathTree}. Validation is
+ * interleaved with reading, so the time spent within the tree is recorded
+ * apart.
+ *
+ * @author fbonecco
+ *
+ */
+@Name(ValidationEvent.NAME)
+@Label("Validation")
+@Category({ "Rocket Insights", "Parser" })
+@Description("The properties of a file checked for collisions")
+public class ValidationEvent extends Event {
+
+	public static final String NAME = "com.rocketinsights.parser.Validation";
+
+	@Label("File")
+	private String file;
+
+	@Label("Tree")
+	private String tree;
+
+	@Label("Property Count")
+	private long propertyCount;
+
+	@Label("Tree Time")
+	@Description("Time spent adding the properties to the tree")
+	@Timespan
+	private long treeTime;
+
+	@Label("Succeeded")
+	private boolean succeeded;
+
+	public void setFile(String file) {
+		this.file = file;
+	}
+
+	public void setTree(String tree) {
+		this.tree = tree;
+	}
+
+	public void setPropertyCount(long propertyCount) {
+		this.propertyCount = propertyCount;
+	}
+
+	public void setTreeTime(long treeTime) {
+		this.treeTime = treeTime;
+	}
+
+	public void setSucceeded(boolean succeeded) {
+		this.succeeded = succeeded;
+	}
+}
@@ -0,0 +1,37 @@
+package com.rocketinsights.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning the writing of a document by a handler, from
+ * the event starting the document to the one ending it.
+ *
+ * @author fbonecco
+ *
+ */
+@Name(WriteEvent.NAME)
+@Label("Write")
+@Category({ "Rocket Insights", "Parser" })
+@Description("A document written by a handler")
+public class WriteEvent extends Event {
+
+	public static final String NAME = "com.rocketinsights.parser.Write";
+
+	@Label("Handler")
+	private String handler;
+
+	@Label("Event Count")
+	private long eventCount;
+
+	public void setHandler(String handler) {
+		this.handler = handler;
+	}
+
+	public void setEventCount(long eventCount) {
+		this.eventCount = eventCount;
+	}
+}
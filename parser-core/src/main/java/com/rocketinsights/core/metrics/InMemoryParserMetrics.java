@@ -0,0 +1,147 @@
+package com.rocketinsights.core.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.rocketinsights.core.event.EventType;
+
+/**
+ * {@link ParserMetrics} adding up the measures of every conversion in memory.
+ * Counters are striped, so threads reporting at once don't contend. The totals
+ * can be read at any time, from Java or through JMX.
+ *
+ * @author fbonecco
+ *
+ */
+public class InMemoryParserMetrics implements ParserMetrics, ParserMetricsMXBean {
+
+	private final LongAdder bytesRead = new LongAdder();
+
+	private final LongAdder[] eventsRead = new LongAdder[EventType.values().length];
+
+	private final ConcurrentMap<String, LongAdder> handlerNanos = new ConcurrentHashMap<>();
+
+	private final LongAdder bytesWritten = new LongAdder();
+
+	private final AtomicLong lastTimeToFirstByte = new AtomicLong();
+
+	private final LongAccumulator maxTimeToFirstByte = new LongAccumulator(Math::max, 0L);
+
+	private final LongAccumulator peakBufferedEvents = new LongAccumulator(Math::max, 0L);
+
+	public InMemoryParserMetrics() {
+		for (int i = 0; i < eventsRead.length; i++) {
+			eventsRead[i] = new LongAdder();
+		}
+	}
+
+	@Override
+	public void bytesRead(long bytes) {
+		bytesRead.add(bytes);
+	}
+
+	@Override
+	public void eventsRead(EventType eventType, long count) {
+		eventsRead[eventType.ordinal()].add(count);
+	}
+
+	@Override
+	public void handlerTime(String handler, long nanos) {
+		LongAdder total = handlerNanos.get(handler);
+		if (total == null) {
+			total = handlerNanos.computeIfAbsent(handler, name -> new LongAdder());
+		}
+		total.add(nanos);
+	}
+
+	@Override
+	public void bytesWritten(long bytes) {
+		bytesWritten.add(bytes);
+	}
+
+	@Override
+	public void timeToFirstByte(long nanos) {
+		lastTimeToFirstByte.set(nanos);
+		maxTimeToFirstByte.accumulate(nanos);
+	}
+
+	@Override
+	public void peakBufferedEvents(long count) {
+		peakBufferedEvents.accumulate(count);
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	/**
+	 * @return number of events of the given type read
+	 */
+	public long getEventsRead(EventType eventType) {
+		return eventsRead[eventType.ordinal()].sum();
+	}
+
+	@Override
+	public Map<String, Long> getEventsRead() {
+		Map<String, Long> events = new LinkedHashMap<>();
+		for (EventType eventType : EventType.values()) {
+			events.put(eventType.name(), getEventsRead(eventType));
+		}
+		return events;
+	}
+
+	@Override
+	public Map<String, Long> getHandlerNanos() {
+		Map<String, Long> nanos = new TreeMap<>();
+		handlerNanos.forEach((handler, total) -> nanos.put(handler, total.sum()));
+		return nanos;
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	@Override
+	public long getLastTimeToFirstByteNanos() {
+		return lastTimeToFirstByte.get();
+	}
+
+	@Override
+	public long getMaxTimeToFirstByteNanos() {
+		return maxTimeToFirstByte.get();
+	}
+
+	@Override
+	public long getPeakBufferedEvents() {
+		return peakBufferedEvents.get();
+	}
+
+	@Override
+	public void reset() {
+		bytesRead.reset();
+		for (LongAdder events : eventsRead) {
+			events.reset();
+		}
+		handlerNanos.clear();
+		bytesWritten.reset();
+		lastTimeToFirstByte.set(0L);
+		maxTimeToFirstByte.reset();
+		peakBufferedEvents.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "InMemoryParserMetrics [bytesRead=" + getBytesRead() + ", eventsRead=" + getEventsRead()
+				+ ", handlerNanos=" + getHandlerNanos() + ", bytesWritten=" + getBytesWritten()
+				+ ", lastTimeToFirstByteNanos=" + getLastTimeToFirstByteNanos() + ", peakBufferedEvents="
+				+ getPeakBufferedEvents() + "]";
+	}
+}
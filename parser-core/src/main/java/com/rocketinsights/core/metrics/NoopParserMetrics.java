@@ -0,0 +1,48 @@
+package com.rocketinsights.core.metrics;
+
+import com.rocketinsights.core.event.EventType;
+
+/**
+ * {@link ParserMetrics} discarding every measure, used by default. Components
+ * seeing it disabled skip the measures altogether, and the calls left are empty
+ * and get inlined away.
+ *
+ * @author fbonecco
+ *
+ */
+public final class NoopParserMetrics implements ParserMetrics {
+
+	public static final NoopParserMetrics INSTANCE = new NoopParserMetrics();
+
+	private NoopParserMetrics() {
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return false;
+	}
+
+	@Override
+	public void bytesRead(long bytes) {
+	}
+
+	@Override
+	public void eventsRead(EventType eventType, long count) {
+	}
+
+	@Override
+	public void handlerTime(String handler, long nanos) {
+	}
+
+	@Override
+	public void bytesWritten(long bytes) {
+	}
+
+	@Override
+	public void timeToFirstByte(long nanos) {
+	}
+
+	@Override
+	public void peakBufferedEvents(long count) {
+	}
+}
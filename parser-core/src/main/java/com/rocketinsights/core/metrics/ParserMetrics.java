@@ -0,0 +1,62 @@
+package com.rocketinsights.core.metrics;
+
+import com.rocketinsights.core.event.EventType;
+
+/**
+ * Receives the measures taken along a conversion: readers report the bytes and
+ * events they read, {@link com.rocketinsights.core.event.EventLog}s the events
+ * they buffer, handlers the time they take and the parser what ends up written.
+ * <p>
+ * Implementations are called from the reading and the writing threads at once
+ * when conversions are pipelined, so they have to be thread-safe. Components
+ * only take measures that cost something, like reading the clock, when
+ * {@link #isEnabled()} says so; {@link NoopParserMetrics} is used when no
+ * metrics are wanted.
+ *
+ * @author fbonecco
+ *
+ */
+public interface ParserMetrics {
+
+	/**
+	 * @return false if the measures are discarded, so there is no point in taking
+	 *         them
+	 */
+	public default boolean isEnabled() {
+		return true;
+	}
+
+	/**
+	 * @param bytes number of bytes pulled from an input file
+	 */
+	public void bytesRead(long bytes);
+
+	/**
+	 * @param eventType type of the events read from an input file
+	 * @param count     number of events of that type
+	 */
+	public void eventsRead(EventType eventType, long count);
+
+	/**
+	 * @param handler name of the handler, usually its simple class name
+	 * @param nanos   time the handler took to handle some events
+	 */
+	public void handlerTime(String handler, long nanos);
+
+	/**
+	 * @param bytes number of bytes written to an output file
+	 */
+	public void bytesWritten(long bytes);
+
+	/**
+	 * @param nanos time between the start of a conversion and the first byte of
+	 *              an output file being written
+	 */
+	public void timeToFirstByte(long nanos);
+
+	/**
+	 * @param count highest number of events a log held at once, waiting to be
+	 *              handled
+	 */
+	public void peakBufferedEvents(long count);
+}
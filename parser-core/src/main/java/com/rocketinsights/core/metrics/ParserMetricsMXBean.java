@@ -0,0 +1,42 @@
+package com.rocketinsights.core.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link InMemoryParserMetrics}, so the measures can be
+ * read through JMX. Registering an {@link InMemoryParserMetrics} in the
+ * platform MBean server, or declaring it as a bean of a Spring application with
+ * JMX enabled, is enough to expose them.
+ *
+ * @author fbonecco
+ *
+ */
+public interface ParserMetricsMXBean {
+
+	public static final String OBJECT_NAME = "com.rocketinsights.parser:type=ParserMetrics";
+
+	public long getBytesRead();
+
+	/**
+	 * @return number of events read for each event type
+	 */
+	public Map<String, Long> getEventsRead();
+
+	/**
+	 * @return time spent by each handler, in nanoseconds
+	 */
+	public Map<String, Long> getHandlerNanos();
+
+	public long getBytesWritten();
+
+	public long getLastTimeToFirstByteNanos();
+
+	public long getMaxTimeToFirstByteNanos();
+
+	public long getPeakBufferedEvents();
+
+	/**
+	 * Sets every measure back to zero.
+	 */
+	public void reset();
+}
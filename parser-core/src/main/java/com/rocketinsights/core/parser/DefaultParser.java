@@ -1,26 +1,40 @@
 package com.rocketinsights.core.parser;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.io.Writer;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
+import org.apache.commons.io.output.ProxyOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.rocketinsights.core.event.AsyncEventLog;
 import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.EventCursor;
 import com.rocketinsights.core.event.EventLog;
 import com.rocketinsights.core.event.EventType;
 import com.rocketinsights.core.event.SimpleEventLog;
+import com.rocketinsights.core.event.WaitStrategy;
 import com.rocketinsights.core.event.handler.DocumentEventHandler;
 import com.rocketinsights.core.event.handler.DocumentEventHandlerFactory;
 import com.rocketinsights.core.event.handler.EventHandler;
+import com.rocketinsights.core.event.handler.Utf8Writer;
 import com.rocketinsights.core.exception.ProcessingException;
+import com.rocketinsights.core.file.Compression;
+import com.rocketinsights.core.file.ParallelGzipOutputStream;
+import com.rocketinsights.core.jfr.ConversionEvent;
+import com.rocketinsights.core.jfr.FlushEvent;
+import com.rocketinsights.core.metrics.NoopParserMetrics;
+import com.rocketinsights.core.metrics.ParserMetrics;
+import com.rocketinsights.core.reader.PathProjection;
 import com.rocketinsights.core.reader.Reader;
 import com.rocketinsights.core.reader.ReaderFactory;
 
@@ -30,36 +44,210 @@ public class DefaultParser implements Parser, EventHandler {
 
 	private Writer writer;
 
+	private ReaderFactory readerFactory;
+
+	private int pipelineCapacity;
+
+	private WaitStrategy waitStrategy;
+
+	private PathProjection projection;
+
+	private ParserMetrics metrics = NoopParserMetrics.INSTANCE;
+
+	private int compressionBlockSize;
+
+	public DefaultParser() {
+		this(new ReaderFactory());
+	}
+
+	/**
+	 * @param readerFactory creates the readers for the input files, allowing to
+	 *                      tune how they are read
+	 */
+	public DefaultParser(ReaderFactory readerFactory) {
+		this.readerFactory = readerFactory;
+	}
+
+	/**
+	 * Makes this parser read the input files and write the output files on
+	 * separate threads, handing events over through an {@link AsyncEventLog}.
+	 * When converting to several targets, each one gets a thread of its own.
+	 * 
+	 * @param capacity     number of events read ahead of the writer, a power of
+	 *                     two
+	 * @param waitStrategy how the reading and writing threads wait for each other
+	 * @return this parser
+	 */
+	public DefaultParser pipelined(int capacity, WaitStrategy waitStrategy) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException(String.format("Invalid capacity [%d].", capacity));
+		}
+		this.pipelineCapacity = capacity;
+		this.waitStrategy = waitStrategy;
+		return this;
+	}
+
+	/**
+	 * Makes this parser convert only the parts of the input files selected by a
+	 * projection, the rest is skipped by the readers.
+	 * 
+	 * @param projection the parts of the input files to convert, or null to
+	 *                   convert them whole
+	 * @return this parser
+	 */
+	public DefaultParser projecting(PathProjection projection) {
+		this.projection = projection;
+		return this;
+	}
+
+	/**
+	 * Makes this parser report what it reads, buffers, handles and writes to the
+	 * given metrics. The reader factory of this parser is set to report to them as
+	 * well.
+	 * 
+	 * @return this parser
+	 */
+	public DefaultParser metering(ParserMetrics metrics) {
+		this.metrics = metrics;
+		this.readerFactory.metering(metrics);
+		return this;
+	}
+
+	/**
+	 * Makes this parser compress the gzip output files on the common
+	 * {@link ForkJoinPool}, cutting them in blocks compressed independently by a
+	 * {@link ParallelGzipOutputStream}. Up to twice as many blocks as the pool
+	 * has threads are compressed at once.
+	 * 
+	 * @param blockSize number of bytes compressed at once
+	 * @return this parser
+	 */
+	public DefaultParser compressingInParallel(int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid block size [%d].", blockSize));
+		}
+		this.compressionBlockSize = blockSize;
+		return this;
+	}
+
 	@Override
 	public void parse(String inputFile, String outputFile, SupportedFormat format)
 			throws ProcessingException, IOException {
+		ConversionEvent conversion = new ConversionEvent();
+		conversion.begin();
+		long start = System.nanoTime();
 		boolean failed = false;
 		try {
-			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(Paths.get(outputFile).toFile()),
-					StandardCharsets.UTF_8));
+			writer = createWriter(outputFile, start);
 
-			DocumentEventHandler documentHandler = new DocumentEventHandlerFactory().createEventHandler(format, writer);
+			DocumentEventHandler documentHandler = new DocumentEventHandlerFactory().createEventHandler(format, writer)
+					.metering(metrics);
 			LOG.info("Document handler [{}] found for format [{}]", documentHandler.getClass().getSimpleName(), format);
+
+			// pull events from the file & write them as they come
+			Reader reader = readerFactory.createReader(inputFile);
+			LOG.info("Document reader [{}] found for file [{}]", reader.getClass().getSimpleName(), inputFile);
+			if (waitStrategy == null) {
+				try (EventCursor cursor = reader.open(Paths.get(inputFile), projection)) {
+					while (cursor.next()) {
+						documentHandler.handle(cursor);
+						if (EventType.DOC_ENDED.equals(cursor.eventType())) {
+							writer.flush();
+						}
+					}
+				}
+			} else {
+				// read on this thread while the events are written on another one
+				try (AsyncEventLog eventLog = new AsyncEventLog(pipelineCapacity, waitStrategy, metrics)) {
+					eventLog.addHandler(documentHandler);
+					eventLog.addHandler(this);
+					try (EventCursor cursor = reader.open(Paths.get(inputFile), projection)) {
+						while (cursor.next()) {
+							eventLog.push(cursor);
+						}
+					}
+				}
+			}
+		} catch (ProcessingException | IOException | RuntimeException e) {
+			failed = true;
+			throw e;
+		} finally {
+			close(writer, outputFile);
+			removeOutput(outputFile, failed);
+			record(conversion, inputFile, format.name(), !failed);
+		}
+
+	}
+
+	@Override
+	public void parse(String inputFile, List<ParseTarget> targets) throws ProcessingException, IOException {
+		if (targets.isEmpty()) {
+			throw new IllegalArgumentException("At least one target is required.");
+		}
+		ConversionEvent conversion = new ConversionEvent();
+		conversion.begin();
+		long start = System.nanoTime();
+		List<Writer> writers = new ArrayList<>();
+		List<AsyncEventLog> targetLogs = new ArrayList<>();
+		boolean failed = false;
+		try {
+			// every target handles the events of a single log
 			EventLog eventLog = new SimpleEventLog();
-			eventLog.addHandler(documentHandler);
-			eventLog.addHandler(this);
+			for (ParseTarget target : targets) {
+				Writer targetWriter = createWriter(target.getOutputFile(), start);
+				writers.add(targetWriter);
 
-			// read the file & start writing events in the log
-			Reader reader = new ReaderFactory().createReader(inputFile);
+				DocumentEventHandler documentHandler = new DocumentEventHandlerFactory()
+						.createEventHandler(target.getFormat(), targetWriter).metering(metrics);
+				LOG.info("Document handler [{}] found for format [{}]", documentHandler.getClass().getSimpleName(),
+						target.getFormat());
+				EventHandler flushHandler = event -> {
+					if (EventType.DOC_ENDED.equals(event.getEventType())) {
+						targetWriter.flush();
+					}
+				};
+				if (waitStrategy == null) {
+					eventLog.addHandler(documentHandler);
+					eventLog.addHandler(flushHandler);
+				} else {
+					// the target is written on a thread of its own, behind a bounded buffer
+					AsyncEventLog targetLog = new AsyncEventLog(pipelineCapacity, waitStrategy, metrics);
+					targetLogs.add(targetLog);
+					targetLog.addHandler(documentHandler);
+					targetLog.addHandler(flushHandler);
+					eventLog.addHandler(new ForwardingEventHandler(targetLog));
+				}
+			}
+
+			Reader reader = readerFactory.createReader(inputFile);
 			LOG.info("Document reader [{}] found for file [{}]", reader.getClass().getSimpleName(), inputFile);
-			reader.read(Paths.get(inputFile), eventLog);
-		} catch (ProcessingException | IOException e) {
+			reader.read(Paths.get(inputFile), eventLog, projection);
+			for (AsyncEventLog targetLog : targetLogs) {
+				targetLog.close();
+			}
+		} catch (ProcessingException | IOException | RuntimeException e) {
 			failed = true;
 			throw e;
 		} finally {
-			writer.close();
-			File file = Paths.get(outputFile).toFile();
-			if ((file.exists() && file.length() == 0L) || failed) {
-				LOG.debug("Will try to remove the output file [{}] as the process failed at some point", outputFile);
-				Files.delete(file.toPath());
+			for (AsyncEventLog targetLog : targetLogs) {
+				try {
+					targetLog.close();
+				} catch (ProcessingException e) {
+					// the process already failed, the first error is the one thrown
+					LOG.debug("A target failed as well", e);
+				}
+			}
+			boolean closed = false;
+			try {
+				closeOutputs(writers,
+						targets.stream().map(ParseTarget::getOutputFile).collect(Collectors.toList()), failed);
+				closed = true;
+			} finally {
+				record(conversion, inputFile,
+						targets.stream().map(target -> target.getFormat().name()).collect(Collectors.joining(",")),
+						!failed && closed);
 			}
 		}
-
 	}
 
 	@Override
@@ -69,4 +257,146 @@ public class DefaultParser implements Parser, EventHandler {
 		}
 	}
 
+	/**
+	 * Output files named with a {@value Compression#GZIP_SUFFIX} suffix are
+	 * written gzip compressed. The bytes reported as written are those before
+	 * compression, as for the bytes read.
+	 * 
+	 * @param start when the conversion started, as given by
+	 *              {@link System#nanoTime()}
+	 */
+	private Writer createWriter(String outputFile, long start) throws IOException {
+		OutputStream file = new FileOutputStream(Paths.get(outputFile).toFile());
+		Compression compression = Compression.fromName(outputFile);
+		OutputStream stream;
+		try {
+			stream = compression == Compression.GZIP && compressionBlockSize > 0
+					? new ParallelGzipOutputStream(file, compressionBlockSize, ForkJoinPool.commonPool(),
+							2 * ForkJoinPool.getCommonPoolParallelism())
+					: compression.compress(file);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		if (metrics.isEnabled()) {
+			stream = new ProxyOutputStream(stream) {
+
+				private boolean written;
+
+				@Override
+				protected void afterWrite(int n) {
+					if (!written) {
+						written = true;
+						metrics.timeToFirstByte(System.nanoTime() - start);
+					}
+					metrics.bytesWritten(n);
+				}
+			};
+		}
+		return new Utf8Writer(stream);
+	}
+
+	/**
+	 * Closes the writer of an output file, recording it as a {@link FlushEvent}.
+	 */
+	private static void close(Writer writer, String outputFile) throws IOException {
+		FlushEvent flush = new FlushEvent();
+		flush.begin();
+		writer.close();
+		flush.end();
+		if (flush.shouldCommit()) {
+			flush.setTarget(outputFile);
+			flush.setClose(true);
+			flush.setOutputSize(Paths.get(outputFile).toFile().length());
+			flush.commit();
+		}
+	}
+
+	/**
+	 * Closes the writers of several output files, each one whatever happens to
+	 * the others, and removes every output file if the process failed or any of
+	 * them could not be closed. The first error is thrown once all of them are
+	 * dealt with, along with the next ones as suppressed, unless the process
+	 * already failed.
+	 * 
+	 * @param writers     the writers of the first output files, as many as were
+	 *                    created
+	 * @param outputFiles every output file
+	 */
+	static void closeOutputs(List<Writer> writers, List<String> outputFiles, boolean failed) throws IOException {
+		IOException failure = null;
+		for (int i = 0; i < writers.size(); i++) {
+			try {
+				close(writers.get(i), outputFiles.get(i));
+			} catch (IOException e) {
+				failure = suppress(failure, e);
+			}
+		}
+		boolean remove = failed || failure != null;
+		for (String outputFile : outputFiles) {
+			try {
+				removeOutput(outputFile, remove);
+			} catch (IOException e) {
+				failure = suppress(failure, e);
+			}
+		}
+		if (failure != null) {
+			if (!failed) {
+				throw failure;
+			}
+			// the process already failed, the first error is the one thrown
+			LOG.debug("An output file could not be closed or removed as well", failure);
+		}
+	}
+
+	private static IOException suppress(IOException first, IOException next) {
+		if (first == null) {
+			return next;
+		}
+		first.addSuppressed(next);
+		return first;
+	}
+
+	private void record(ConversionEvent conversion, String inputFile, String formats, boolean succeeded) {
+		conversion.end();
+		if (conversion.shouldCommit()) {
+			conversion.setInputFile(inputFile);
+			conversion.setInputSize(Paths.get(inputFile).toFile().length());
+			conversion.setFormats(formats);
+			conversion.setPipelined(waitStrategy != null);
+			conversion.setSucceeded(succeeded);
+			conversion.commit();
+		}
+	}
+
+	private static void removeOutput(String outputFile, boolean failed) throws IOException {
+		File file = Paths.get(outputFile).toFile();
+		if ((file.exists() && file.length() == 0L) || failed) {
+			LOG.debug("Will try to remove the output file [{}] as the process failed at some point", outputFile);
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	/**
+	 * Hands the events it receives over to another {@link EventLog}.
+	 */
+	private static class ForwardingEventHandler implements EventHandler {
+
+		private final EventLog eventLog;
+
+		ForwardingEventHandler(EventLog eventLog) {
+			this.eventLog = eventLog;
+		}
+
+		@Override
+		public void handle(Event event) throws ProcessingException {
+			eventLog.push(event);
+		}
+
+		@Override
+		public void handleBatch(Event[] events, int from, int to) throws ProcessingException {
+			eventLog.pushBatch(events, from, to);
+		}
+	}
+
 }
@@ -0,0 +1,35 @@
+package com.rocketinsights.core.parser;
+
+/**
+ * One of the outputs of a conversion: a file and the format to write it in.
+ *
+ * @author fbonecco
+ *
+ */
+public class ParseTarget {
+
+	private final SupportedFormat format;
+
+	private final String outputFile;
+
+	public ParseTarget(SupportedFormat format, String outputFile) {
+		if (format == null || outputFile == null) {
+			throw new IllegalArgumentException("Both the format and the output file are required.");
+		}
+		this.format = format;
+		this.outputFile = outputFile;
+	}
+
+	public SupportedFormat getFormat() {
+		return format;
+	}
+
+	public String getOutputFile() {
+		return outputFile;
+	}
+
+	@Override
+	public String toString() {
+		return "ParseTarget [format=" + format + ", outputFile=" + outputFile + "]";
+	}
+}
@@ -1,6 +1,7 @@
 package com.rocketinsights.core.parser;
 
 import java.io.IOException;
+import java.util.List;
 
 import com.rocketinsights.core.exception.ProcessingException;
 
@@ -26,4 +27,16 @@ public interface Parser {
 	 */
 	public void parse(String inputFile, String outputFile, SupportedFormat format)
 			throws ProcessingException, IOException;
+
+	/**
+	 * Run the parsing process once for several outputs: the source file is read
+	 * a single time and every target is written from the same events. If any of
+	 * the targets fails, none of the output files is kept.
+	 * 
+	 * @param inputFile the source file
+	 * @param targets   the destination files, along with their formats
+	 * @throws ProcessingException
+	 * @throws IOException
+	 */
+	public void parse(String inputFile, List<ParseTarget> targets) throws ProcessingException, IOException;
 }
@@ -2,16 +2,15 @@ package com.rocketinsights.core.reader;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.file.Path;
-import java.util.Stack;
+import java.util.Arrays;
 
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.MalformedJsonException;
 import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.EventCursor;
 import com.rocketinsights.core.event.EventLog;
 import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.Utf8Slice;
 import com.rocketinsights.core.exception.ProcessingException;
 import com.rocketinsights.core.file.FileContentProvider;
 
@@ -25,81 +24,209 @@ import com.rocketinsights.core.file.FileContentProvider;
  */
 public class JsonFileReader implements Reader {
 	private static final String ROOT_NODE = "root";
-	private FileContentProvider<InputStream> fileContentProvider;
+	private FileContentProvider<? extends InputStream> fileContentProvider;
 
-	public JsonFileReader(FileContentProvider<InputStream> fileContentProvider) {
+	// maximum number of chars of a value reported at once, 0 for no limit
+	private final int chunkSize;
+
+	public JsonFileReader(FileContentProvider<? extends InputStream> fileContentProvider) {
+		this(fileContentProvider, 0);
+	}
+
+	/**
+	 * @param chunkSize the number of characters beyond which string values may
+	 *                  be reported in fragments of at most that size, see
+	 *                  {@link EventCursor#partial()}, or 0 to report them whole
+	 */
+	public JsonFileReader(FileContentProvider<? extends InputStream> fileContentProvider, int chunkSize) {
 		super();
+		if (chunkSize < 0 || chunkSize == 1) {
+			throw new IllegalArgumentException(String.format("Invalid chunk size [%d].", chunkSize));
+		}
 		this.fileContentProvider = fileContentProvider;
+		this.chunkSize = chunkSize;
 	}
 
 	/**
 	 * Pulls the data from a file, assuming it contains a JSON object. If the
-	 * structure within the file can't be parsed to a JSON object this method throws
+	 * structure within the file can't be parsed to a JSON object the cursor throws
 	 * a {@link ProcessingException}. If an IO error occurs, a {@link IOException}
 	 * is thrown instead.
+	 * 
+	 * The file is expected to be UTF-8 encoded and is tokenized straight from its
+	 * bytes by a {@link JsonScanner}. Values are only decoded if their data is
+	 * asked for, and nodes outside the projection are skipped without decoding
+	 * anything. Given a chunk size, longer strings are reported as a series of
+	 * fragments and never held whole.
 	 */
 	@Override
-	public void read(Path path, EventLog eventLog) throws IOException, ProcessingException {
-		try (JsonReader reader = new JsonReader(new InputStreamReader(fileContentProvider.readContents(path)))) {
+	public EventCursor open(Path path, PathProjection projection) throws IOException, ProcessingException {
+		return new JsonEventCursor(path, new JsonScanner(fileContentProvider.readContents(path)), projection);
+	}
 
-			initialValidation(reader, path);
+	private void initialValidation(JsonScanner scanner, Path path) throws IOException, ProcessingException {
+		scanner.beginObject();
+		if (scanner.peek() != JsonScanner.NAME) {
+			throw new MalformedJsonException(String
+					.format("The format of the file [%s] is invalid and does not match the specification.", path));
+		}
+		scanner.nextName();
+		if (!ROOT_NODE.equals(scanner.slice())) {
+			throw new MalformedJsonException(String
+					.format("The format of the file [%s] is invalid and does not match the specification.", path));
+		}
+	}
 
-			eventLog.push(new Event(EventType.DOC_STARTED, null, null));
 
-			Stack<String> nodes = new Stack<>();
-			while (!reader.peek().equals(JsonToken.END_DOCUMENT)) {
-				JsonToken next = reader.peek();
-				switch (next) {
-				case BEGIN_OBJECT:
-					reader.beginObject();
-					break;
-				case NAME:
-					String name = reader.nextName();
-					nodes.push(reader.getPath());
-					eventLog.push(new Event(EventType.NODE_OPENED, name, null));
+	private class JsonEventCursor extends ReaderCursor implements PendingValue {
+
+		private final Path path;
+
+		private final JsonScanner scanner;
+
+		// number of objects and arrays open, and that number when each open node
+		// was named, so a node ends once its value brings it back there
+		private int containers;
+
+		private int[] nodeContainers = new int[16];
+
+		private int nodes;
+
+		/**
+		 * Whether the value the cursor is positioned on closes its node, which is
+		 * reported next.
+		 */
+		private boolean closedByValue;
+
+		/**
+		 * Whether the value the cursor is positioned on is a fragment, whose rest
+		 * is reported next.
+		 */
+		private boolean valueContinued;
+
+		/**
+		 * Bytes of a string reported at once. A character takes at least one byte,
+		 * two for a surrogate pair, and the last one taken may make a fragment
+		 * exceed this size by one character.
+		 */
+		private final int maxBytes = chunkSize > 0 ? chunkSize - 1 : Integer.MAX_VALUE;
+
+		JsonEventCursor(Path path, JsonScanner scanner, PathProjection projection) {
+			super(JsonFileReader.this, path, projection);
+			this.path = path;
+			this.scanner = scanner;
+		}
+
+		@Override
+		public boolean next() throws IOException, ProcessingException {
+			try {
+				return super.next();
+			} catch (MalformedJsonException e) {
+				throw new ProcessingException(String.format(
+						"An error occured while processing the file [%s] due it has an invalid format.", path), e);
+			}
+		}
+
+		@Override
+		protected void start() throws IOException, ProcessingException {
+			initialValidation(scanner, path);
+		}
+
+		@Override
+		protected boolean advance() throws IOException, ProcessingException {
+			if (valueContinued) {
+				valueContinued = !scanner.nextValuePart(maxBytes);
+				closedByValue = !valueContinued && endsNode();
+				return emitValue(this, valueContinued);
+			}
+			if (closedByValue) {
+				closedByValue = false;
+				if (closeNode()) {
+					return true;
+				}
+			}
+			int token;
+			while ((token = scanner.peek()) != JsonScanner.END_DOCUMENT) {
+				switch (token) {
+				case JsonScanner.BEGIN_OBJECT:
+					scanner.beginObject();
+					containers++;
 					break;
-				case STRING:
-					eventLog.push(new Event(EventType.VALUE_ADDED, null, reader.nextString()));
-					closeNode(eventLog, reader, nodes);
+				case JsonScanner.NAME:
+					scanner.nextName();
+					int decision = openNode(scanner.internSlice(symbols));
+					if (decision == Projector.SKIP) {
+						scanner.skipValue();
+						break;
+					}
+					if (nodes == nodeContainers.length) {
+						nodeContainers = Arrays.copyOf(nodeContainers, nodes * 2);
+					}
+					nodeContainers[nodes++] = containers;
+					if (decision == Projector.EMIT) {
+						return true;
+					}
 					break;
-				case END_OBJECT:
-					closeNode(eventLog, reader, nodes);
-					reader.endObject();
+				case JsonScanner.STRING:
+				case JsonScanner.LITERAL:
+					if (valuesKept()) {
+						valueContinued = !scanner.nextValue(maxBytes);
+						closedByValue = !valueContinued && endsNode();
+						return emitValue(this, valueContinued);
+					}
+					scanner.skipValue();
+					if (endsNode() && closeNode()) {
+						return true;
+					}
 					break;
-				case BEGIN_ARRAY:
-					reader.beginArray();
+				case JsonScanner.END_OBJECT:
+					scanner.endObject();
+					containers--;
+					if (endsNode() && closeNode()) {
+						return true;
+					}
 					break;
-				case END_ARRAY:
-					reader.endArray();
+				case JsonScanner.BEGIN_ARRAY:
+					scanner.beginArray();
+					containers++;
 					break;
 				default:
+					scanner.endArray();
+					containers--;
+					if (endsNode() && closeNode()) {
+						return true;
+					}
 					break;
 				}
 			}
+			return false;
+		}
 
-			eventLog.push(new Event(EventType.DOC_ENDED, null, null));
-		} catch (MalformedJsonException e) {
-			throw new ProcessingException(String
-					.format("An error occured while processing the file [%s] due it has an invalid format.", path), e);
+		/**
+		 * @return whether a node ends at the current position
+		 */
+		private boolean endsNode() {
+			if (nodes > 0 && nodeContainers[nodes - 1] == containers) {
+				nodes--;
+				return true;
+			}
+			return false;
 		}
-	}
 
-	private void initialValidation(JsonReader reader, Path path) throws IOException, ProcessingException {
-		reader.beginObject();
-		if (!ROOT_NODE.equals(reader.nextName())) {
-			throw new MalformedJsonException(String
-					.format("The format of the file [%s] is invalid and does not match the specification.", path));
+		@Override
+		public String decode() {
+			return scanner.slice();
 		}
-	}
 
-	private void closeNode(EventLog eventBus, JsonReader reader, Stack<String> nodes) throws ProcessingException {
-		if (!nodes.isEmpty() && reader.getPath().equals(nodes.peek())) {
-			eventBus.push(new Event(EventType.NODE_CLOSED, getName(nodes.pop()), null));
+		@Override
+		public boolean slice(Utf8Slice slice) {
+			return scanner.rawSlice(slice);
 		}
-	}
 
-	private String getName(String pop) {
-		return pop.substring(pop.lastIndexOf(".") + 1);
+		@Override
+		public void close() throws IOException {
+			scanner.close();
+		}
 	}
 
 }
@@ -0,0 +1,749 @@
+package com.rocketinsights.core.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.google.gson.stream.MalformedJsonException;
+import com.rocketinsights.core.event.SymbolTable;
+import com.rocketinsights.core.event.Utf8Slice;
+
+/**
+ * Pulls the tokens of a UTF-8 encoded JSON document straight from its bytes,
+ * accepting the same documents as gson's JsonReader in its default, strict
+ * mode. Nesting is kept as a stack of ints, one per object or array open.
+ *
+ * Names and values are not decoded when consumed: the scanner only remembers
+ * where the last one lies in its buffer, which stays valid until the next
+ * token is peeked, and decodes it when asked to. Names are interned straight
+ * from the bytes.
+ *
+ * @author fbonecco
+ *
+ */
+class JsonScanner implements Closeable {
+
+	static final int BEGIN_OBJECT = 1;
+	static final int END_OBJECT = 2;
+	static final int BEGIN_ARRAY = 3;
+	static final int END_ARRAY = 4;
+	static final int NAME = 5;
+	static final int STRING = 6;
+
+	/**
+	 * A number, true, false or null.
+	 */
+	static final int LITERAL = 7;
+
+	static final int END_DOCUMENT = 8;
+
+	private static final int NONE = 0;
+
+	private static final String[] TOKEN_NAMES = { "NONE", "BEGIN_OBJECT", "END_OBJECT", "BEGIN_ARRAY", "END_ARRAY",
+			"NAME", "STRING", "LITERAL", "END_DOCUMENT" };
+
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_OBJECT = 2;
+	private static final int DANGLING_NAME = 3;
+	private static final int NONEMPTY_OBJECT = 4;
+	private static final int EMPTY_ARRAY = 5;
+	private static final int NONEMPTY_ARRAY = 6;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final InputStream in;
+
+	private byte[] buffer = new byte[BUFFER_SIZE];
+
+	private int pos;
+
+	private int limit;
+
+	// start of the bytes kept when the buffer is refilled, within a token
+	private int mark = -1;
+
+	// offset within the document of the first byte in the buffer
+	private long offset;
+
+	private int line = 1;
+
+	private long lineStart;
+
+	private int[] stack = new int[32];
+
+	private int stackSize = 1;
+
+	private int peeked = NONE;
+
+	private int sliceStart;
+
+	private int sliceEnd;
+
+	private boolean sliceEscaped;
+
+	private boolean sliceAscii;
+
+	JsonScanner(InputStream in) {
+		this.in = in;
+		stack[0] = EMPTY_DOCUMENT;
+	}
+
+	/**
+	 * @return the type of the next token, without consuming it
+	 */
+	int peek() throws IOException {
+		if (peeked == NONE) {
+			peeked = doPeek();
+		}
+		return peeked;
+	}
+
+	void beginObject() throws IOException {
+		expect(BEGIN_OBJECT);
+		push(EMPTY_OBJECT);
+	}
+
+	void endObject() throws IOException {
+		expect(END_OBJECT);
+		stackSize--;
+	}
+
+	void beginArray() throws IOException {
+		expect(BEGIN_ARRAY);
+		push(EMPTY_ARRAY);
+	}
+
+	void endArray() throws IOException {
+		expect(END_ARRAY);
+		stackSize--;
+	}
+
+	/**
+	 * Consumes a name, which becomes the current slice.
+	 */
+	void nextName() throws IOException {
+		expect(NAME);
+		readString(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Consumes a string or a literal, which becomes the current slice.
+	 */
+	void nextValue() throws IOException {
+		nextValue(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Same as {@link #nextValue()}, except that a string longer than the given
+	 * number of bytes is consumed in parts of about that size, each one ending on
+	 * a character boundary. The rest of the string is consumed by
+	 * {@link #nextValuePart(int)}, before peeking anything else.
+	 * 
+	 * @return false if only a part of the value was consumed
+	 */
+	boolean nextValue(int maxBytes) throws IOException {
+		int token = peek();
+		if (token == STRING) {
+			expect(STRING);
+			return readString(maxBytes);
+		}
+		expect(LITERAL);
+		readLiteral();
+		return true;
+	}
+
+	/**
+	 * Consumes the next part of a string, see {@link #nextValue(int)}.
+	 * 
+	 * @return false if the string goes on after this part
+	 */
+	boolean nextValuePart(int maxBytes) throws IOException {
+		return readString(maxBytes);
+	}
+
+	/**
+	 * Consumes the next value, objects and arrays included, without decoding
+	 * anything.
+	 */
+	void skipValue() throws IOException {
+		int count = 0;
+		do {
+			switch (peek()) {
+			case BEGIN_OBJECT:
+				beginObject();
+				count++;
+				break;
+			case BEGIN_ARRAY:
+				beginArray();
+				count++;
+				break;
+			case END_OBJECT:
+				endObject();
+				count--;
+				break;
+			case END_ARRAY:
+				endArray();
+				count--;
+				break;
+			case NAME:
+			case STRING:
+				peeked = NONE;
+				// in parts, so skipping a long string doesn't grow the buffer
+				while (!readString(BUFFER_SIZE / 2)) {
+					continue;
+				}
+				break;
+			case LITERAL:
+				peeked = NONE;
+				readLiteral();
+				break;
+			default:
+				throw syntaxError("Expected a value but was " + TOKEN_NAMES[peeked]);
+			}
+		} while (count != 0);
+	}
+
+	/**
+	 * @return the current slice, decoded
+	 */
+	String slice() {
+		if (!sliceEscaped) {
+			return new String(buffer, sliceStart, sliceEnd - sliceStart,
+					sliceAscii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+		}
+		return unescape();
+	}
+
+	/**
+	 * Points a slice to the bytes of the current slice, as long as decoding them
+	 * is all there is to it: no escapes and well formed UTF-8.
+	 * 
+	 * @return false if the slice has to be decoded by {@link #slice()}
+	 */
+	boolean rawSlice(Utf8Slice slice) {
+		if (sliceEscaped || (!sliceAscii && !isWellFormed(buffer, sliceStart, sliceEnd))) {
+			return false;
+		}
+		slice.set(buffer, sliceStart, sliceEnd - sliceStart);
+		return true;
+	}
+
+	/**
+	 * @return the symbol the current slice is interned as
+	 */
+	int internSlice(SymbolTable table) {
+		return sliceEscaped ? table.intern(unescape()) : table.intern(buffer, sliceStart, sliceEnd);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private void expect(int token) throws IOException {
+		if (peeked != token && peek() != token) {
+			throw syntaxError("Expected " + TOKEN_NAMES[token] + " but was " + TOKEN_NAMES[peeked]);
+		}
+		peeked = NONE;
+	}
+
+	private void push(int scope) {
+		if (stackSize == stack.length) {
+			stack = Arrays.copyOf(stack, stackSize * 2);
+		}
+		stack[stackSize++] = scope;
+	}
+
+	private int doPeek() throws IOException {
+		int scope = stack[stackSize - 1];
+		int c;
+		switch (scope) {
+		case EMPTY_ARRAY:
+			stack[stackSize - 1] = NONEMPTY_ARRAY;
+			break;
+		case NONEMPTY_ARRAY:
+			c = nextNonWhitespace();
+			if (c == ']') {
+				return END_ARRAY;
+			}
+			if (c != ',') {
+				throw syntaxError("Unterminated array");
+			}
+			break;
+		case EMPTY_OBJECT:
+		case NONEMPTY_OBJECT:
+			stack[stackSize - 1] = DANGLING_NAME;
+			if (scope == NONEMPTY_OBJECT) {
+				c = nextNonWhitespace();
+				if (c == '}') {
+					return END_OBJECT;
+				}
+				if (c != ',') {
+					throw syntaxError("Unterminated object");
+				}
+			}
+			c = nextNonWhitespace();
+			if (c == '"') {
+				return NAME;
+			}
+			if (c == '}' && scope == EMPTY_OBJECT) {
+				return END_OBJECT;
+			}
+			throw syntaxError("Expected name");
+		case DANGLING_NAME:
+			stack[stackSize - 1] = NONEMPTY_OBJECT;
+			if (nextNonWhitespace() != ':') {
+				throw syntaxError("Expected ':'");
+			}
+			break;
+		case EMPTY_DOCUMENT:
+			stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+			break;
+		default:
+			if (nextNonWhitespace() == -1) {
+				return END_DOCUMENT;
+			}
+			throw syntaxError("Expected the end of the document");
+		}
+
+		c = nextNonWhitespace();
+		switch (c) {
+		case -1:
+			throw syntaxError("End of input");
+		case ']':
+			if (scope == EMPTY_ARRAY) {
+				return END_ARRAY;
+			}
+			throw syntaxError("Expected value");
+		case '"':
+			return STRING;
+		case '{':
+			return BEGIN_OBJECT;
+		case '[':
+			return BEGIN_ARRAY;
+		case '-':
+		case 't':
+		case 'f':
+		case 'n':
+			pos--;
+			return LITERAL;
+		default:
+			if (c >= '0' && c <= '9') {
+				pos--;
+				return LITERAL;
+			}
+			throw syntaxError("Expected value");
+		}
+	}
+
+	/**
+	 * @return the next byte that is not whitespace, consumed, or -1 at the end
+	 *         of the document
+	 */
+	private int nextNonWhitespace() throws IOException {
+		while (true) {
+			byte[] bytes = buffer;
+			int p = pos;
+			int l = limit;
+			while (p < l) {
+				int c = bytes[p++] & 0xff;
+				if (c > ' ') {
+					pos = p;
+					if (c == '/' || c == '#') {
+						throw syntaxError("Comments are not allowed");
+					}
+					// a byte order mark may only open the document
+					if (c == 0xef && offset + p == 1 && skipByteOrderMark()) {
+						break;
+					}
+					return c;
+				}
+				if (c == '\n') {
+					line++;
+					lineStart = offset + p;
+				} else if (c != ' ' && c != '\t' && c != '\r') {
+					pos = p;
+					return c;
+				}
+			}
+			if (p == l) {
+				pos = p;
+				if (!fill()) {
+					return -1;
+				}
+			}
+		}
+	}
+
+	private boolean skipByteOrderMark() throws IOException {
+		mark = pos - 1;
+		while (limit - pos < 2) {
+			if (!fill()) {
+				mark = -1;
+				return false;
+			}
+		}
+		mark = -1;
+		if (buffer[pos] == (byte) 0xbb && buffer[pos + 1] == (byte) 0xbf) {
+			pos += 2;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the rest of a string whose opening quote was consumed, validating
+	 * its escapes, up to the given number of bytes. The string is only cut before
+	 * the first byte of a character, and never between the escapes of a
+	 * surrogate pair.
+	 * 
+	 * @return false if the string was cut
+	 */
+	private boolean readString(int maxBytes) throws IOException {
+		mark = pos;
+		boolean escaped = false;
+		boolean ascii = true;
+		boolean highSurrogate = false;
+		while (true) {
+			byte[] bytes = buffer;
+			int p = pos;
+			int l = limit;
+			int m = mark;
+			while (p < l) {
+				byte b = bytes[p];
+				if (b == '"') {
+					pos = p + 1;
+					endSlice(p, escaped, ascii);
+					return true;
+				}
+				if (p - m >= maxBytes && (b & 0xc0) != 0x80 && !highSurrogate) {
+					pos = p;
+					endSlice(p, escaped, ascii);
+					return false;
+				}
+				p++;
+				if (b == '\\') {
+					pos = p;
+					highSurrogate = readEscape();
+					escaped = true;
+					// the buffer may have been refilled
+					bytes = buffer;
+					p = pos;
+					l = limit;
+					m = mark;
+				} else {
+					highSurrogate = false;
+					if (b < 0) {
+						ascii = false;
+					}
+				}
+			}
+			pos = p;
+			if (!fill()) {
+				throw syntaxError("Unterminated string");
+			}
+		}
+	}
+
+	private void endSlice(int end, boolean escaped, boolean ascii) {
+		sliceStart = mark;
+		sliceEnd = end;
+		sliceEscaped = escaped;
+		sliceAscii = ascii;
+		mark = -1;
+	}
+
+	/**
+	 * @return whether the escape is the one of a high surrogate
+	 */
+	private boolean readEscape() throws IOException {
+		if (pos == limit && !fill()) {
+			throw syntaxError("Unterminated escape sequence");
+		}
+		switch (buffer[pos++]) {
+		case 'u':
+			while (limit - pos < 4) {
+				if (!fill()) {
+					throw syntaxError("Unterminated escape sequence");
+				}
+			}
+			int c = 0;
+			for (int i = 0; i < 4; i++) {
+				int digit = Character.digit(buffer[pos++], 16);
+				if (digit < 0) {
+					throw syntaxError("Invalid escape sequence");
+				}
+				c = (c << 4) | digit;
+			}
+			return Character.isHighSurrogate((char) c);
+		case '"':
+		case '\\':
+		case '/':
+		case '\'':
+		case 'b':
+		case 'f':
+		case 'n':
+		case 'r':
+		case 't':
+			break;
+		case '\n':
+			line++;
+			lineStart = offset + pos;
+			break;
+		default:
+			throw syntaxError("Invalid escape sequence");
+		}
+		return false;
+	}
+
+	/**
+	 * Reads a number, true, false or null.
+	 */
+	private void readLiteral() throws IOException {
+		mark = pos;
+		while (true) {
+			if (pos == limit && !fill()) {
+				break;
+			}
+			byte b = buffer[pos];
+			if ((b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '-' || b == '+'
+					|| b == '.') {
+				pos++;
+			} else {
+				break;
+			}
+		}
+		sliceStart = mark;
+		sliceEnd = pos;
+		sliceEscaped = false;
+		sliceAscii = true;
+		mark = -1;
+		if (!isKeyword() && !isNumber()) {
+			throw syntaxError("Expected value");
+		}
+	}
+
+	private boolean isKeyword() {
+		switch (sliceEnd - sliceStart) {
+		case 4:
+			return sliceEquals("true") || sliceEquals("null");
+		case 5:
+			return sliceEquals("false");
+		default:
+			return false;
+		}
+	}
+
+	private boolean sliceEquals(String keyword) {
+		for (int i = 0; i < keyword.length(); i++) {
+			if (buffer[sliceStart + i] != keyword.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether the current slice follows the grammar of JSON numbers
+	 */
+	private boolean isNumber() {
+		int p = sliceStart;
+		int end = sliceEnd;
+		if (p < end && buffer[p] == '-') {
+			p++;
+		}
+		if (p == end) {
+			return false;
+		}
+		if (buffer[p] == '0') {
+			p++;
+		} else {
+			int digits = digits(p, end);
+			if (digits == 0) {
+				return false;
+			}
+			p += digits;
+		}
+		if (p < end && buffer[p] == '.') {
+			int digits = digits(++p, end);
+			if (digits == 0) {
+				return false;
+			}
+			p += digits;
+		}
+		if (p < end && (buffer[p] == 'e' || buffer[p] == 'E')) {
+			p++;
+			if (p < end && (buffer[p] == '+' || buffer[p] == '-')) {
+				p++;
+			}
+			int digits = digits(p, end);
+			if (digits == 0) {
+				return false;
+			}
+			p += digits;
+		}
+		return p == end;
+	}
+
+	private int digits(int from, int end) {
+		int p = from;
+		while (p < end && buffer[p] >= '0' && buffer[p] <= '9') {
+			p++;
+		}
+		return p - from;
+	}
+
+	/**
+	 * @return whether the bytes between start and end are UTF-8 the JDK would
+	 *         decode without replacing anything
+	 */
+	private static boolean isWellFormed(byte[] bytes, int start, int end) {
+		int p = start;
+		while (p < end) {
+			int lead = bytes[p] & 0xff;
+			if (lead < 0x80) {
+				p++;
+				continue;
+			}
+			int length;
+			int min;
+			if (lead >= 0xc2 && lead <= 0xdf) {
+				length = 2;
+				min = 0x80;
+			} else if (lead >= 0xe0 && lead <= 0xef) {
+				length = 3;
+				min = 0x800;
+			} else if (lead >= 0xf0 && lead <= 0xf4) {
+				length = 4;
+				min = 0x10000;
+			} else {
+				return false;
+			}
+			if (end - p < length) {
+				return false;
+			}
+			int codePoint = lead & (0xff >> (length + 1));
+			for (int i = 1; i < length; i++) {
+				int next = bytes[p + i] & 0xff;
+				if ((next & 0xc0) != 0x80) {
+					return false;
+				}
+				codePoint = (codePoint << 6) | (next & 0x3f);
+			}
+			if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+					|| (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+				return false;
+			}
+			p += length;
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes the current slice, which holds escape sequences already
+	 * validated.
+	 */
+	private String unescape() {
+		char[] chars = new char[sliceEnd - sliceStart];
+		int length = 0;
+		int run = sliceStart;
+		int p = sliceStart;
+		while (p < sliceEnd) {
+			byte b = buffer[p];
+			if (b != '\\') {
+				if (sliceAscii) {
+					chars[length++] = (char) b;
+				}
+				p++;
+				continue;
+			}
+			if (!sliceAscii) {
+				length = decode(run, p, chars, length);
+			}
+			byte escape = buffer[p + 1];
+			p += 2;
+			switch (escape) {
+			case 'u':
+				chars[length++] = (char) ((Character.digit(buffer[p], 16) << 12)
+						| (Character.digit(buffer[p + 1], 16) << 8) | (Character.digit(buffer[p + 2], 16) << 4)
+						| Character.digit(buffer[p + 3], 16));
+				p += 4;
+				break;
+			case 'b':
+				chars[length++] = '\b';
+				break;
+			case 'f':
+				chars[length++] = '\f';
+				break;
+			case 'n':
+				chars[length++] = '\n';
+				break;
+			case 'r':
+				chars[length++] = '\r';
+				break;
+			case 't':
+				chars[length++] = '\t';
+				break;
+			default:
+				chars[length++] = (char) escape;
+				break;
+			}
+			run = p;
+		}
+		if (!sliceAscii) {
+			length = decode(run, sliceEnd, chars, length);
+		}
+		return new String(chars, 0, length);
+	}
+
+	/**
+	 * Decodes the UTF-8 bytes between from and to into chars, which never
+	 * outnumber them.
+	 *
+	 * @return the length of chars once decoded
+	 */
+	private int decode(int from, int to, char[] chars, int length) {
+		String decoded = new String(buffer, from, to - from, StandardCharsets.UTF_8);
+		decoded.getChars(0, decoded.length(), chars, length);
+		return length + decoded.length();
+	}
+
+	/**
+	 * Reads more of the document into the buffer, moving the bytes from the mark
+	 * on, if there is one, to its beginning. The buffer grows when a single token
+	 * doesn't fit in it.
+	 *
+	 * @return false at the end of the document
+	 */
+	private boolean fill() throws IOException {
+		int keep = mark >= 0 ? mark : pos;
+		if (keep > 0) {
+			System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+			offset += keep;
+			limit -= keep;
+			pos -= keep;
+			if (mark >= 0) {
+				mark = 0;
+			}
+		} else if (limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		int read;
+		do {
+			read = in.read(buffer, limit, buffer.length - limit);
+		} while (read == 0);
+		if (read < 0) {
+			return false;
+		}
+		limit += read;
+		return true;
+	}
+
+	private MalformedJsonException syntaxError(String message) {
+		return new MalformedJsonException(
+				String.format("%s at line %d column %d", message, line, offset + pos - lineStart));
+	}
+}
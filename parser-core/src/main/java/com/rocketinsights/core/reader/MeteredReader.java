@@ -0,0 +1,96 @@
+package com.rocketinsights.core.reader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import com.rocketinsights.core.event.EventCursor;
+import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.Utf8Slice;
+import com.rocketinsights.core.exception.ProcessingException;
+import com.rocketinsights.core.metrics.ParserMetrics;
+
+/**
+ * Counts the events of each type read by another {@link Reader}. Counts are
+ * kept by the cursor and reported to the {@link ParserMetrics} once it's
+ * closed, so reading an event costs no more than an increment.
+ * 
+ * @author fbonecco
+ *
+ */
+class MeteredReader implements Reader {
+
+	private final Reader reader;
+
+	private final ParserMetrics metrics;
+
+	MeteredReader(Reader reader, ParserMetrics metrics) {
+		this.reader = reader;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public EventCursor open(Path path, PathProjection projection) throws IOException, ProcessingException {
+		return new MeteredCursor(reader.open(path, projection));
+	}
+
+	private class MeteredCursor implements EventCursor {
+
+		private final EventCursor cursor;
+
+		private final long[] counts = new long[EventType.values().length];
+
+		MeteredCursor(EventCursor cursor) {
+			this.cursor = cursor;
+		}
+
+		@Override
+		public boolean next() throws IOException, ProcessingException {
+			if (cursor.next()) {
+				counts[cursor.eventType().ordinal()]++;
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public EventType eventType() {
+			return cursor.eventType();
+		}
+
+		@Override
+		public String name() {
+			return cursor.name();
+		}
+
+		@Override
+		public int symbol() {
+			return cursor.symbol();
+		}
+
+		@Override
+		public String data() {
+			return cursor.data();
+		}
+
+		@Override
+		public Utf8Slice dataBytes() {
+			return cursor.dataBytes();
+		}
+
+		@Override
+		public boolean partial() {
+			return cursor.partial();
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (EventType eventType : EventType.values()) {
+				if (counts[eventType.ordinal()] > 0) {
+					metrics.eventsRead(eventType, counts[eventType.ordinal()]);
+					counts[eventType.ordinal()] = 0;
+				}
+			}
+			cursor.close();
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package com.rocketinsights.core.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selects the parts of a document a {@link Reader} reports. Paths are made of
+ * the names of the nodes below the root node separated by points, like the
+ * keys of a properties file, and a <code>*</code> segment matches any name.
+ * <p>
+ * When paths are included, only the nodes they match are reported, along with
+ * their content and the nodes leading to them. Nodes matched by an excluded
+ * path are never reported, nor is their content. Readers skip whatever falls
+ * outside the projection while parsing, so it is never turned into events.
+ *
+ * @author fbonecco
+ *
+ */
+public class PathProjection {
+
+	private static final int MAX_PATHS = Long.SIZE;
+
+	private static final char SEPARATOR = '.';
+
+	private static final String WILDCARD = "*";
+
+	private final List<String[]> includes = new ArrayList<>();
+
+	private final List<String[]> excludes = new ArrayList<>();
+
+	/**
+	 * Reports the nodes at the given path and their content.
+	 *
+	 * @return this projection
+	 */
+	public PathProjection include(String path) {
+		add(includes, path);
+		return this;
+	}
+
+	/**
+	 * Skips the nodes at the given path and their content.
+	 *
+	 * @return this projection
+	 */
+	public PathProjection exclude(String path) {
+		add(excludes, path);
+		return this;
+	}
+
+	/**
+	 * @return false if the properties file line is known to fall outside the
+	 *         projection just by looking at its key
+	 */
+	public boolean acceptsKey(String line) {
+		boolean inside = includes.isEmpty();
+		long includeMask = allOf(includes);
+		long excludeMask = allOf(excludes);
+		int start = 0;
+		int depth = 0;
+		int length = line.length();
+		for (int i = 0; i <= length; i++) {
+			if (i < length && isKeyChar(line.charAt(i))) {
+				continue;
+			}
+			// a segment ends on a point or on the first char not in the key
+			excludeMask = matching(excludes, excludeMask, depth, line, start, i);
+			if (ending(excludes, excludeMask, depth)) {
+				return false;
+			}
+			if (!inside) {
+				includeMask = matching(includes, includeMask, depth, line, start, i);
+				if (ending(includes, includeMask, depth)) {
+					inside = true;
+				} else if (includeMask == 0L) {
+					return false;
+				}
+			}
+			if (i == length || line.charAt(i) != SEPARATOR) {
+				break;
+			}
+			start = i + 1;
+			depth++;
+		}
+		return inside;
+	}
+
+	boolean hasIncludes() {
+		return !includes.isEmpty();
+	}
+
+	long allIncludes() {
+		return allOf(includes);
+	}
+
+	long allExcludes() {
+		return allOf(excludes);
+	}
+
+	/**
+	 * @return the included paths of a mask whose segment at the given depth
+	 *         matches a name
+	 */
+	long matchingIncludes(long mask, int depth, String name) {
+		return matching(includes, mask, depth, name, 0, name.length());
+	}
+
+	long matchingExcludes(long mask, int depth, String name) {
+		return matching(excludes, mask, depth, name, 0, name.length());
+	}
+
+	/**
+	 * @return whether any included path of a mask ends at the given depth
+	 */
+	boolean endingInclude(long mask, int depth) {
+		return ending(includes, mask, depth);
+	}
+
+	boolean endingExclude(long mask, int depth) {
+		return ending(excludes, mask, depth);
+	}
+
+	private static long matching(List<String[]> paths, long mask, int depth, String name, int start, int end) {
+		long matches = 0L;
+		for (long remaining = mask; remaining != 0L; remaining &= remaining - 1) {
+			int index = Long.numberOfTrailingZeros(remaining);
+			String[] segments = paths.get(index);
+			if (depth < segments.length) {
+				String segment = segments[depth];
+				if (WILDCARD.equals(segment) || (segment.length() == end - start
+						&& segment.regionMatches(0, name, start, end - start))) {
+					matches |= 1L << index;
+				}
+			}
+		}
+		return matches;
+	}
+
+	private static boolean ending(List<String[]> paths, long mask, int depth) {
+		for (long remaining = mask; remaining != 0L; remaining &= remaining - 1) {
+			if (paths.get(Long.numberOfTrailingZeros(remaining)).length == depth + 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static long allOf(List<String[]> paths) {
+		return paths.size() == MAX_PATHS ? -1L : (1L << paths.size()) - 1;
+	}
+
+	private static void add(List<String[]> paths, String path) {
+		if (path == null || path.isEmpty() || path.charAt(0) == SEPARATOR
+				|| path.charAt(path.length() - 1) == SEPARATOR) {
+			throw new IllegalArgumentException(String.format("Invalid path [%s].", path));
+		}
+		if (paths.size() == MAX_PATHS) {
+			throw new IllegalArgumentException(String.format("At most %d paths can be given.", MAX_PATHS));
+		}
+		String[] segments = path.split("\\.");
+		for (String segment : segments) {
+			if (segment.isEmpty()) {
+				throw new IllegalArgumentException(String.format("Invalid path [%s].", path));
+			}
+		}
+		paths.add(segments);
+	}
+
+	private static boolean isKeyChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("PathProjection [includes=");
+		append(builder, includes);
+		builder.append(", excludes=");
+		append(builder, excludes);
+		return builder.append("]").toString();
+	}
+
+	private static void append(StringBuilder builder, List<String[]> paths) {
+		builder.append('[');
+		for (int i = 0; i < paths.size(); i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(String.join(".", paths.get(i)));
+		}
+		builder.append(']');
+	}
+}
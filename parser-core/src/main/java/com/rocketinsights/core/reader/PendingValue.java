@@ -0,0 +1,29 @@
+package com.rocketinsights.core.reader;
+
+import com.rocketinsights.core.event.Utf8Slice;
+
+/**
+ * A value a {@link ReaderCursor} is positioned on, left as it is found in the
+ * document until its data is asked for. It is only meaningful until the cursor
+ * moves.
+ * 
+ * @author fbonecco
+ *
+ */
+interface PendingValue {
+
+	/**
+	 * @return the value, decoded
+	 */
+	String decode();
+
+	/**
+	 * Points a slice to the UTF-8 bytes of the value, if it is found as such in
+	 * the document.
+	 * 
+	 * @return false if the value has to be decoded
+	 */
+	default boolean slice(Utf8Slice slice) {
+		return false;
+	}
+}
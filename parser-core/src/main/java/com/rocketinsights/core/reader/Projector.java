@@ -0,0 +1,156 @@
+package com.rocketinsights.core.reader;
+
+import java.util.Arrays;
+
+import com.rocketinsights.core.event.SymbolTable;
+
+/**
+ * Keeps track of the nodes open while a cursor walks a document, applying a
+ * {@link PathProjection} to them if there is one. Nodes leading to an included
+ * path are held back until a node within the projection shows up below them,
+ * so branches leading nowhere are never reported.
+ *
+ * @author fbonecco
+ *
+ */
+class Projector {
+
+	/**
+	 * The node falls outside the projection, along with its content.
+	 */
+	static final int SKIP = 0;
+
+	/**
+	 * The node leads to an included path, it is reported once something inside
+	 * the projection is found below it.
+	 */
+	static final int DEFER = 1;
+
+	/**
+	 * The node is within the projection, it has to be reported right away along
+	 * with the nodes held back before it.
+	 */
+	static final int EMIT = 2;
+
+	private final PathProjection projection;
+
+	private int depth;
+
+	// number of open nodes already reported, from the top
+	private int reported;
+
+	private int[] symbols = new int[16];
+
+	private boolean[] inside = new boolean[16];
+
+	private long[] includeMasks = new long[16];
+
+	private long[] excludeMasks = new long[16];
+
+	/**
+	 * @param projection the projection to apply, or null to report every node
+	 */
+	Projector(PathProjection projection) {
+		this.projection = projection;
+	}
+
+	/**
+	 * Decides on a node being opened below the current one. Nodes not skipped
+	 * become the current node.
+	 * 
+	 * @param symbol the symbol the name of the node was interned as
+	 * @param name   the name of the node
+	 */
+	int open(int symbol, String name) {
+		if (projection == null) {
+			push(symbol, true, 0L, 0L);
+			return EMIT;
+		}
+		boolean parentInside;
+		long parentIncludes;
+		long parentExcludes;
+		if (depth == 0) {
+			parentInside = !projection.hasIncludes();
+			parentIncludes = projection.allIncludes();
+			parentExcludes = projection.allExcludes();
+		} else {
+			parentInside = inside[depth - 1];
+			parentIncludes = includeMasks[depth - 1];
+			parentExcludes = excludeMasks[depth - 1];
+		}
+		long excludeMask = projection.matchingExcludes(parentExcludes, depth, name);
+		if (projection.endingExclude(excludeMask, depth)) {
+			return SKIP;
+		}
+		boolean nodeInside = parentInside;
+		long includeMask = 0L;
+		if (!parentInside) {
+			includeMask = projection.matchingIncludes(parentIncludes, depth, name);
+			nodeInside = projection.endingInclude(includeMask, depth);
+			if (!nodeInside && includeMask == 0L) {
+				return SKIP;
+			}
+		}
+		push(symbol, nodeInside, includeMask, excludeMask);
+		return nodeInside ? EMIT : DEFER;
+	}
+
+	/**
+	 * @return the number of open nodes, reported or not
+	 */
+	int depth() {
+		return depth;
+	}
+
+	/**
+	 * @return whether some of the open nodes were not reported yet, while the
+	 *         current one has to
+	 */
+	boolean hasPendingOpens() {
+		return reported < depth && inside[depth - 1];
+	}
+
+	/**
+	 * @return the symbol of the next node to report as opened
+	 */
+	int nextPendingOpen() {
+		return symbols[reported++];
+	}
+
+	/**
+	 * Closes the current node.
+	 *
+	 * @return its symbol if it was reported as opened, otherwise
+	 *         {@link SymbolTable#NO_SYMBOL}
+	 */
+	int close() {
+		depth--;
+		if (reported > depth) {
+			reported = depth;
+			return symbols[depth];
+		}
+		return SymbolTable.NO_SYMBOL;
+	}
+
+	/**
+	 * @return whether values of the current node are within the projection
+	 */
+	boolean valuesKept() {
+		return depth == 0 ? projection == null || !projection.hasIncludes() : inside[depth - 1];
+	}
+
+	private void push(int symbol, boolean nodeInside, long includeMask, long excludeMask) {
+		if (depth == symbols.length) {
+			int capacity = depth * 2;
+			symbols = Arrays.copyOf(symbols, capacity);
+			inside = Arrays.copyOf(inside, capacity);
+			includeMasks = Arrays.copyOf(includeMasks, capacity);
+			excludeMasks = Arrays.copyOf(excludeMasks, capacity);
+		}
+		symbols[depth] = symbol;
+		inside[depth] = nodeInside;
+		includeMasks[depth] = includeMask;
+		excludeMasks[depth] = excludeMask;
+		depth++;
+	}
+}
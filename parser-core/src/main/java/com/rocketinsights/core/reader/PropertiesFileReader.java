@@ -2,16 +2,25 @@ package com.rocketinsights.core.reader;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import org.apache.commons.io.LineIterator;
 
 import com.rocketinsights.core.domain.Property;
 import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.EventCursor;
 import com.rocketinsights.core.event.EventLog;
 import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.SymbolTable;
 import com.rocketinsights.core.exception.InvalidFormatException;
 import com.rocketinsights.core.exception.ProcessingException;
 import com.rocketinsights.core.file.FileContentProvider;
-import com.rocketinsights.core.tree.Node;
+import com.rocketinsights.core.jfr.ValidationEvent;
+import com.rocketinsights.core.tree.PathTree;
 import com.rocketinsights.core.tree.PropertiesTree;
 
 /**
@@ -24,105 +33,373 @@ import com.rocketinsights.core.tree.PropertiesTree;
  */
 public class PropertiesFileReader implements Reader {
 
-	private FileContentProvider<List<String>> fileContentProvider;
+	private FileContentProvider<LineIterator> fileContentProvider;
+
+	/**
+	 * Number of lines tokenized together when reading in parallel.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 8192;
 
-	private PropertiesTree tree;
+	private Supplier<PathTree> treeSupplier;
 
-	public PropertiesFileReader(FileContentProvider<List<String>> fileContentProvider) {
+	private ForkJoinPool pool;
+
+	private int chunkSize;
+
+	public PropertiesFileReader(FileContentProvider<LineIterator> fileContentProvider) {
+		this(fileContentProvider, PropertiesTree::new);
+	}
+
+	/**
+	 * @param fileContentProvider provides the lines of the file
+	 * @param treeSupplier        creates the {@link PathTree} used to detect
+	 *                            collisions among properties, once per file read
+	 */
+	public PropertiesFileReader(FileContentProvider<LineIterator> fileContentProvider,
+			Supplier<PathTree> treeSupplier) {
+		this(fileContentProvider, treeSupplier, null, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a reader that tokenizes lines in parallel on the given pool. Lines
+	 * are still validated and pushed as events in their original order.
+	 * 
+	 * @param fileContentProvider provides the lines of the file
+	 * @param treeSupplier        creates the {@link PathTree} used to detect
+	 *                            collisions among properties, once per file read
+	 * @param pool                the pool lines are tokenized on, or null to
+	 *                            tokenize them on the calling thread
+	 * @param chunkSize           the number of lines tokenized together
+	 */
+	public PropertiesFileReader(FileContentProvider<LineIterator> fileContentProvider,
+			Supplier<PathTree> treeSupplier, ForkJoinPool pool, int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid chunk size [%d].", chunkSize));
+		}
 		this.fileContentProvider = fileContentProvider;
+		this.treeSupplier = treeSupplier;
+		this.pool = pool;
+		this.chunkSize = chunkSize;
 	}
 
 	/**
 	 * Pulls the data from a file, assuming it contains properties as key,values. If
-	 * this method found that the properties are invalids it will end throwing
-	 * throws a {@link ProcessingException}. If an IO error occurs, a
-	 * {@link IOException} is thrown instead.
+	 * the cursor finds that the properties are invalids it will end throwing a
+	 * {@link ProcessingException}. If an IO error occurs, a {@link IOException} is
+	 * thrown instead.
+	 * 
+	 * Lines are pulled one at a time, so events are available as soon as the first
+	 * line has been read and the file is never fully loaded in memory.
+	 * 
+	 * Lines whose key falls outside the projection are dropped before being
+	 * parsed, so they are neither validated nor checked for collisions.
 	 */
-	public void read(Path path, EventLog eventLog) throws IOException, ProcessingException {
-		List<String> properties;
-		properties = fileContentProvider.readContents(path);
+	@Override
+	public EventCursor open(Path path, PathProjection projection) throws IOException, ProcessingException {
+		return new PropertiesEventCursor(path, fileContentProvider.readContents(path), projection);
+	}
 
-		Property lastProperty = null;
-		eventLog.push(new Event(EventType.DOC_STARTED));
-		tree = new PropertiesTree();
-		tree.setRoot(new Node("root"));
+	private ParseTask submitChunk(LineIterator properties, PathProjection projection) {
+		List<String> chunk = new ArrayList<>(chunkSize);
+		while (chunk.size() < chunkSize && properties.hasNext()) {
+			chunk.add(properties.next());
+		}
+		if (chunk.isEmpty()) {
+			return null;
+		}
+		ParseTask task = new ParseTask(chunk, new Object[chunk.size()], projection, 0, chunk.size());
+		pool.execute(task);
+		return task;
+	}
 
-		for (String p : properties) {
-			Property currentProperty = null;
-			try {
-				currentProperty = Property.of(p);
-			} catch (InvalidFormatException e) {
-				throw new ProcessingException(String.format(
-						"An error occured while processing the file [%s] due it has an invalid format.", path), e);
+	private Property parse(Path path, String line, SymbolTable symbols) throws ProcessingException {
+		try {
+			return Property.of(line, symbols);
+		} catch (InvalidFormatException e) {
+			throw invalidFormat(path, e);
+		}
+	}
+
+	private ProcessingException invalidFormat(Path path, InvalidFormatException e) {
+		return new ProcessingException(
+				String.format("An error occured while processing the file [%s] due it has an invalid format.", path),
+				e);
+	}
+
+	private void validate(Path path, PathTree tree, Property currentProperty) throws ProcessingException {
+		boolean added;
+		try {
+			added = tree.add(currentProperty.getPath());
+		} catch (InvalidFormatException e) {
+			throw invalidFormat(path, e);
+		}
+		if (!added) {
+			throw new ProcessingException(String.format(
+					"An error occured while processing the file [%s] due it has an invalid format. The property [%s] collides with some other.",
+					path, currentProperty));
+		}
+	}
+
+	/**
+	 * @return the number of leading nodes both properties have in common
+	 */
+	private int commonDepth(Property lastProperty, Property currentProperty) {
+		int count = 0;
+		boolean keepMoving = lastProperty != null;
+		while (keepMoving) {
+			String lastPath = lastProperty.getPath().get(count);
+			String currentPath = currentProperty.getPath().get(count);
+			boolean areEquals = lastPath.equals(currentPath);
+			if (areEquals) {
+				count++;
 			}
+			keepMoving = areEquals && (count < lastProperty.getPath().size())
+					&& (count < currentProperty.getPath().size());
+		}
+		return count;
+	}
 
-			// check whether the property can be added
-			validate(path, currentProperty);
-
-			int count = 0;
-			boolean keepMoving = lastProperty != null;
-			while (keepMoving) {
-				String lastPath = lastProperty.getPath().get(count);
-				String currentPath = currentProperty.getPath().get(count);
-				boolean areEquals = lastPath.equals(currentPath);
-				if (areEquals) {
-					count++;
+	/**
+	 * Walks the properties of a file one line at a time. Each property closes the
+	 * nodes of the previous one it doesn't share, then opens its own nodes and
+	 * adds its value. When reading in parallel, lines are read in chunks and each
+	 * chunk is tokenized on the pool while the previous one is being walked, so
+	 * the events are the same as in sequential mode.
+	 */
+	private class PropertiesEventCursor extends ReaderCursor {
+
+		private final Path path;
+
+		private final LineIterator properties;
+
+		private final PathProjection projection;
+
+		private PathTree tree;
+
+		private ParseTask pending;
+
+		private Object[] parsed;
+
+		private int parsedIndex;
+
+		private Property lastProperty;
+
+		private Property currentProperty;
+
+		private int closeFrom = -1;
+
+		private int closeTo;
+
+		private int openFrom;
+
+		private boolean valuePending;
+
+		private final ValidationEvent validationEvent = new ValidationEvent();
+
+		// whether the time spent within the tree is measured, only when it's recorded
+		private final boolean validationTimed = validationEvent.isEnabled();
+
+		private long treeTime;
+
+		private long propertyCount;
+
+		PropertiesEventCursor(Path path, LineIterator properties, PathProjection projection) {
+			// lines are projected by key, before being parsed
+			super(PropertiesFileReader.this, path, null);
+			this.path = path;
+			this.properties = properties;
+			this.projection = projection;
+		}
+
+		@Override
+		public boolean next() throws IOException, ProcessingException {
+			try {
+				return super.next();
+			} catch (IllegalStateException e) {
+				// LineIterator wraps IO errors found while pulling lines
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
 				}
-				keepMoving = areEquals && (count < lastProperty.getPath().size())
-						&& (count < currentProperty.getPath().size());
+				throw e;
 			}
-			if (count > 0) {
-				closeAllNodesUp(lastProperty, lastProperty.getPath().size() - 1, count, eventLog);
-			} else if (lastProperty != null) {
-				closeAllNodesUp(lastProperty, eventLog);
+		}
+
+		@Override
+		protected void start() {
+			tree = treeSupplier.get();
+			validationEvent.begin();
+			if (pool != null) {
+				pending = submitChunk(properties, projection);
 			}
-			processNode(currentProperty, count, eventLog);
-			lastProperty = currentProperty;
 		}
 
-		closeAllNodesUp(lastProperty, eventLog);
+		@Override
+		protected boolean advance() throws ProcessingException {
+			while (true) {
+				if (closeFrom >= closeTo) {
+					return emit(EventType.NODE_CLOSED, symbol(lastProperty, closeFrom--));
+				}
+				if (currentProperty != null) {
+					if (openFrom < currentProperty.getPath().size()) {
+						return emit(EventType.NODE_OPENED, symbol(currentProperty, openFrom++));
+					}
+					if (valuePending) {
+						valuePending = false;
+						return emit(EventType.VALUE_ADDED, null, currentProperty.getValue());
+					}
+				}
 
-		eventLog.push(new Event(EventType.DOC_ENDED));
+				Property next = nextProperty();
+				if (next == null && currentProperty == null) {
+					return false;
+				}
+				moveTo(next);
+			}
+		}
 
-	}
+		/**
+		 * Prepares the events for the next property, or the ones closing the last
+		 * property when there are no more.
+		 */
+		private void moveTo(Property next) throws ProcessingException {
+			lastProperty = currentProperty;
+			currentProperty = next;
+			if (next == null) {
+				closeFrom = lastProperty.getPath().size() - 1;
+				closeTo = 0;
+				return;
+			}
+			// check whether the property can be added
+			long start = validationTimed ? System.nanoTime() : 0L;
+			validate(path, tree, next);
+			if (validationTimed) {
+				treeTime += System.nanoTime() - start;
+			}
+			propertyCount++;
 
-	private void validate(Path path, Property currentProperty) throws ProcessingException {
-		Node root = new Node(currentProperty.getPath().get(0));
-		Node parent = root;
-		for (int x = 1; x < currentProperty.getPath().size(); x++) {
-			Node node = new Node(currentProperty.getPath().get(x));
-			parent.addChild(node);
-			parent = node;
+			int count = commonDepth(lastProperty, next);
+			if (lastProperty != null) {
+				closeFrom = lastProperty.getPath().size() - 1;
+				closeTo = count;
+			}
+			openFrom = count;
+			valuePending = true;
 		}
 
-		if (!tree.add(root)) {
-			throw new ProcessingException(String.format(
-					"An error occured while processing the file [%s] due it has an invalid format. The property [%s] collides with some other.",
-					path, currentProperty));
+		/**
+		 * Properties tokenized on the pool are not interned, as the table belongs
+		 * to the thread walking the cursor; their segments are interned here.
+		 */
+		private int symbol(Property property, int index) {
+			int[] propertySymbols = property.getSymbols();
+			if (propertySymbols != null) {
+				return propertySymbols[index];
+			}
+			return symbols.intern(property.getPath().get(index));
 		}
-	}
 
-	private void closeAllNodesUp(Property lastProperty, int from, int to, EventLog eventBus)
-			throws ProcessingException {
-		for (int x = from; x >= to; x--) {
-			closeNode(lastProperty.getPath().get(x), eventBus);
+		private Property nextProperty() throws ProcessingException {
+			if (pool == null) {
+				while (properties.hasNext()) {
+					String line = properties.next();
+					if (projection == null || projection.acceptsKey(line)) {
+						return parse(path, line, symbols);
+					}
+				}
+				return null;
+			}
+			Object result = null;
+			while (result == null) {
+				while (parsed == null || parsedIndex == parsed.length) {
+					if (pending == null) {
+						return null;
+					}
+					ParseTask next = submitChunk(properties, projection);
+					pending.join();
+					parsed = pending.results;
+					parsedIndex = 0;
+					pending = next;
+				}
+				// lines outside the projection leave no result
+				result = parsed[parsedIndex];
+				parsed[parsedIndex++] = null;
+			}
+			if (result instanceof InvalidFormatException) {
+				throw invalidFormat(path, (InvalidFormatException) result);
+			}
+			return (Property) result;
 		}
 
-	}
+		@Override
+		protected void finished(boolean succeeded) {
+			if (tree == null) {
+				return;
+			}
+			validationEvent.end();
+			if (validationEvent.shouldCommit()) {
+				validationEvent.setFile(path.toString());
+				validationEvent.setTree(tree.getClass().getSimpleName());
+				validationEvent.setPropertyCount(propertyCount);
+				validationEvent.setTreeTime(treeTime);
+				validationEvent.setSucceeded(succeeded);
+				validationEvent.commit();
+			}
+		}
 
-	private void closeAllNodesUp(Property lastProperty, EventLog eventBus) throws ProcessingException {
-		closeAllNodesUp(lastProperty, lastProperty.getPath().size() - 1, 0, eventBus);
+		@Override
+		public void close() throws IOException {
+			properties.close();
+		}
 	}
 
-	private void closeNode(String name, EventLog eventBus) throws ProcessingException {
-		eventBus.push(new Event(EventType.NODE_CLOSED, name, null));
-	}
+	/**
+	 * Tokenizes a range of lines, splitting it among the pool's workers. Each
+	 * result is either a {@link Property}, the {@link InvalidFormatException}
+	 * raised by its line or null for lines outside the projection.
+	 */
+	private static class ParseTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -2380474163441620744L;
+
+		private static final int THRESHOLD = 256;
+
+		private final List<String> lines;
+
+		private final Object[] results;
+
+		private final PathProjection projection;
 
-	private void processNode(Property property, int from, EventLog eventBus) throws ProcessingException {
-		List<String> path = property.getPath();
-		for (String p : path.subList(from, path.size())) {
-			eventBus.push(new Event(EventType.NODE_OPENED, p, null));
+		private final int from;
+
+		private final int to;
+
+		ParseTask(List<String> lines, Object[] results, PathProjection projection, int from, int to) {
+			this.lines = lines;
+			this.results = results;
+			this.projection = projection;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				for (int x = from; x < to; x++) {
+					String line = lines.get(x);
+					if (projection != null && !projection.acceptsKey(line)) {
+						continue;
+					}
+					try {
+						results[x] = Property.of(line);
+					} catch (InvalidFormatException e) {
+						results[x] = e;
+					}
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ParseTask(lines, results, projection, from, middle),
+						new ParseTask(lines, results, projection, middle, to));
+			}
 		}
-		eventBus.push(new Event(EventType.VALUE_ADDED, null, property.getValue()));
 	}
 }
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 
 import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.EventCursor;
 import com.rocketinsights.core.event.EventLog;
 import com.rocketinsights.core.exception.ProcessingException;
 
@@ -22,5 +23,70 @@ import com.rocketinsights.core.exception.ProcessingException;
  */
 public interface Reader {
 
-	public void read(Path path, EventLog eventLog) throws IOException, ProcessingException;
+	/**
+	 * Number of events {@link #read(Path, EventLog)} pushes at once.
+	 */
+	public static final int BATCH_SIZE = 256;
+
+	/**
+	 * Opens a file for pulling its events one at a time. The file is parsed as the
+	 * cursor moves, so format errors are raised by {@link EventCursor#next()}.
+	 * The caller is responsible for closing the cursor.
+	 */
+	public default EventCursor open(Path path) throws IOException, ProcessingException {
+		return open(path, null);
+	}
+
+	/**
+	 * Same as {@link #open(Path)}, reporting only the parts of the document
+	 * selected by a projection. Whatever falls outside of it is skipped while
+	 * parsing.
+	 * 
+	 * @param projection the parts of the document to report, or null to report
+	 *                   all of it
+	 */
+	public EventCursor open(Path path, PathProjection projection) throws IOException, ProcessingException;
+
+	/**
+	 * Pushes all the events of a file to a {@link EventLog}, as they are pulled
+	 * from the cursor returned by {@link #open(Path)}. Events are pushed in
+	 * batches of up to {@link #BATCH_SIZE}; the events read before a format error
+	 * are still pushed before the error is thrown.
+	 */
+	public default void read(Path path, EventLog eventLog) throws IOException, ProcessingException {
+		read(path, eventLog, null);
+	}
+
+	/**
+	 * Same as {@link #read(Path, EventLog)}, pushing only the events of the parts
+	 * of the document selected by a projection.
+	 * 
+	 * @param projection the parts of the document to push, or null to push all of
+	 *                   it
+	 */
+	public default void read(Path path, EventLog eventLog, PathProjection projection)
+			throws IOException, ProcessingException {
+		Event[] batch = new Event[BATCH_SIZE];
+		try (EventCursor cursor = open(path, projection)) {
+			boolean more = true;
+			while (more) {
+				int size = 0;
+				try {
+					while (size < batch.length && (more = cursor.next())) {
+						batch[size++] = cursor.toEvent();
+					}
+				} catch (IOException | ProcessingException | RuntimeException e) {
+					try {
+						eventLog.pushBatch(batch, 0, size);
+					} catch (ProcessingException | RuntimeException suppressed) {
+						e.addSuppressed(suppressed);
+					}
+					throw e;
+				}
+				if (size > 0) {
+					eventLog.pushBatch(batch, 0, size);
+				}
+			}
+		}
+	}
 }
@@ -0,0 +1,310 @@
+package com.rocketinsights.core.reader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import com.rocketinsights.core.event.EventCursor;
+import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.SymbolTable;
+import com.rocketinsights.core.event.Utf8Slice;
+import com.rocketinsights.core.exception.ProcessingException;
+import com.rocketinsights.core.jfr.ReadEvent;
+
+/**
+ * Base {@link EventCursor} for readers. Takes care of the events opening and
+ * closing the document, so implementations only have to produce the events in
+ * between. Node names are interned in a {@link SymbolTable} owned by the
+ * cursor, so there is one table per document read.
+ * 
+ * Cursors walking a tree report nodes through {@link #openNode(String)} and
+ * {@link #closeNode()}, which apply the {@link PathProjection} the cursor was
+ * created with, and skip whatever is reported as being outside of it.
+ * 
+ * Reading a document is recorded as a {@link ReadEvent} when Flight Recorder
+ * is on.
+ * 
+ * @author fbonecco
+ *
+ */
+abstract class ReaderCursor implements EventCursor {
+
+	private static final int NEW = 0;
+	private static final int STARTED = 1;
+	private static final int ENDED = 2;
+	private static final int CLOSED = 3;
+
+	private int state = NEW;
+
+	private EventType eventType;
+
+	private String name;
+
+	private int symbol = SymbolTable.NO_SYMBOL;
+
+	private String data;
+
+	// the data of the current event while it is still to be decoded
+	private PendingValue pendingValue;
+
+	private boolean partial;
+
+	private final Utf8Slice dataBytes = new Utf8Slice();
+
+	protected final SymbolTable symbols = new SymbolTable();
+
+	private final Projector projector;
+
+	private final Reader reader;
+
+	private final Path path;
+
+	private final ReadEvent readEvent = new ReadEvent();
+
+	// whether the time spent reading is measured, only when it's recorded
+	private final boolean timed = readEvent.isEnabled();
+
+	private long readTime;
+
+	private long eventCount;
+
+	private boolean done;
+
+	/**
+	 * @param reader     the reader the cursor belongs to
+	 * @param path       the file read
+	 * @param projection the parts of the document to report, or null to report
+	 *                   all of it
+	 */
+	protected ReaderCursor(Reader reader, Path path, PathProjection projection) {
+		this.projector = new Projector(projection);
+		this.reader = reader;
+		this.path = path;
+		readEvent.begin();
+	}
+
+	@Override
+	public boolean next() throws IOException, ProcessingException {
+		long start = timed ? System.nanoTime() : 0L;
+		boolean positioned;
+		try {
+			positioned = move();
+		} catch (IOException | ProcessingException | RuntimeException e) {
+			finish(false);
+			throw e;
+		} finally {
+			if (timed) {
+				readTime += System.nanoTime() - start;
+			}
+		}
+		if (positioned) {
+			eventCount++;
+		} else {
+			finish(true);
+		}
+		return positioned;
+	}
+
+	private boolean move() throws IOException, ProcessingException {
+		switch (state) {
+		case NEW:
+			start();
+			state = STARTED;
+			return emit(EventType.DOC_STARTED, null, null);
+		case STARTED:
+			if (projector.hasPendingOpens()) {
+				return emit(EventType.NODE_OPENED, projector.nextPendingOpen());
+			}
+			if (advance()) {
+				return true;
+			}
+			state = ENDED;
+			return emit(EventType.DOC_ENDED, null, null);
+		default:
+			state = CLOSED;
+			eventType = null;
+			return false;
+		}
+	}
+
+	@Override
+	public EventType eventType() {
+		return eventType;
+	}
+
+	@Override
+	public String name() {
+		return name;
+	}
+
+	@Override
+	public int symbol() {
+		return symbol;
+	}
+
+	@Override
+	public String data() {
+		if (pendingValue != null) {
+			data = pendingValue.decode();
+			pendingValue = null;
+		}
+		return data;
+	}
+
+	@Override
+	public boolean partial() {
+		return partial;
+	}
+
+	@Override
+	public Utf8Slice dataBytes() {
+		if (pendingValue != null && pendingValue.slice(dataBytes)) {
+			return dataBytes;
+		}
+		return null;
+	}
+
+	/**
+	 * Called before the document is reported as started, typically to check the
+	 * content begins as expected.
+	 */
+	protected void start() throws IOException, ProcessingException {
+	}
+
+	/**
+	 * Called once, when the cursor moves past the last event or fails to move.
+	 */
+	protected void finished(boolean succeeded) {
+	}
+
+	private void finish(boolean succeeded) {
+		if (done) {
+			return;
+		}
+		done = true;
+		finished(succeeded);
+		readEvent.end();
+		if (readEvent.shouldCommit()) {
+			readEvent.setReader(reader.getClass().getSimpleName());
+			readEvent.setFile(path.toString());
+			readEvent.setFileSize(path.toFile().length());
+			readEvent.setEventCount(eventCount);
+			readEvent.setReadTime(readTime);
+			readEvent.setSucceeded(succeeded);
+			readEvent.commit();
+		}
+	}
+
+	/**
+	 * Positions the cursor on the next event within the document by calling one
+	 * of the emit methods.
+	 * 
+	 * @return false when the document has no more events
+	 */
+	protected abstract boolean advance() throws IOException, ProcessingException;
+
+	protected boolean emit(EventType eventType, String name, String data) {
+		this.eventType = eventType;
+		this.name = name;
+		this.symbol = SymbolTable.NO_SYMBOL;
+		this.data = data;
+		this.pendingValue = null;
+		this.partial = false;
+		return true;
+	}
+
+	/**
+	 * Positions the cursor on a value that is only decoded if its data is asked
+	 * for before the cursor moves again.
+	 * 
+	 * @param value   decodes the value
+	 * @param partial whether the value is a fragment of a longer one, see
+	 *                {@link EventCursor#partial()}
+	 */
+	protected boolean emitValue(PendingValue value, boolean partial) {
+		emit(EventType.VALUE_ADDED, null, null);
+		this.pendingValue = value;
+		this.partial = partial;
+		return true;
+	}
+
+	/**
+	 * Positions the cursor on a value, or a fragment of one, already decoded.
+	 */
+	protected boolean emitValue(String data, boolean partial) {
+		emit(EventType.VALUE_ADDED, null, data);
+		this.partial = partial;
+		return true;
+	}
+
+	/**
+	 * Opens a node found in the document, positioning the cursor on the event
+	 * opening it unless the projection says otherwise.
+	 * 
+	 * @return {@link Projector#EMIT} when the cursor was positioned on an event,
+	 *         {@link Projector#DEFER} when the node is held back and
+	 *         {@link Projector#SKIP} when the caller has to skip the node and its
+	 *         content
+	 */
+	protected int openNode(String name) {
+		return openNode(symbols.intern(name));
+	}
+
+	/**
+	 * Same as {@link #openNode(String)} for a name already interned in
+	 * {@link #symbols}.
+	 */
+	protected int openNode(int symbol) {
+		int decision = projector.open(symbol, symbols.name(symbol));
+		if (decision == Projector.EMIT) {
+			// nodes held back before this one come first
+			emit(EventType.NODE_OPENED, projector.nextPendingOpen());
+		}
+		return decision;
+	}
+
+	/**
+	 * Closes the last node opened and not skipped.
+	 * 
+	 * @return whether the cursor was positioned on the event closing it, which is
+	 *         not the case for nodes that were held back
+	 */
+	protected boolean closeNode() {
+		int reported = projector.close();
+		return reported != SymbolTable.NO_SYMBOL && emit(EventType.NODE_CLOSED, reported);
+	}
+
+	/**
+	 * @return the number of nodes opened and not closed yet
+	 */
+	protected int depth() {
+		return projector.depth();
+	}
+
+	/**
+	 * @return the number of events the cursor was positioned on so far
+	 */
+	protected long eventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * @return whether the values of the last node opened are to be reported
+	 */
+	protected boolean valuesKept() {
+		return projector.valuesKept();
+	}
+
+	/**
+	 * Positions the cursor on an event opening or closing the node named after a
+	 * symbol of {@link #symbols}.
+	 */
+	protected boolean emit(EventType eventType, int symbol) {
+		this.eventType = eventType;
+		this.name = symbols.name(symbol);
+		this.symbol = symbol;
+		this.data = null;
+		this.pendingValue = null;
+		this.partial = false;
+		return true;
+	}
+}
@@ -1,9 +1,28 @@
 package com.rocketinsights.core.reader;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.LineIterator;
 
+import com.rocketinsights.core.file.Compression;
+import com.rocketinsights.core.file.FileContentProvider;
 import com.rocketinsights.core.file.LinesProvider;
+import com.rocketinsights.core.file.MappedStreamProvider;
+import com.rocketinsights.core.file.MeteredStreamProvider;
+import com.rocketinsights.core.file.SortingLinesProvider;
 import com.rocketinsights.core.file.StreamProvider;
+import com.rocketinsights.core.metrics.NoopParserMetrics;
+import com.rocketinsights.core.metrics.ParserMetrics;
+import com.rocketinsights.core.tree.CompactPropertiesTree;
+import com.rocketinsights.core.tree.PathTree;
+import com.rocketinsights.core.tree.PropertiesTree;
+import com.rocketinsights.core.tree.SortedPathValidator;
 
 public class ReaderFactory {
 
@@ -13,18 +32,152 @@ public class ReaderFactory {
 
 	private static final String JSON_EXTENSION = "json";
 
+	/**
+	 * Files bigger than this size (in bytes) are read through memory-mapping.
+	 */
+	private static final long MAPPING_THRESHOLD = 64L * 1024 * 1024;
+
+	/**
+	 * Properties files bigger than this size (in bytes) are validated with a
+	 * {@link CompactPropertiesTree}.
+	 */
+	private static final long COMPACT_TREE_THRESHOLD = 256L * 1024 * 1024;
+
+	/**
+	 * Properties files bigger than this size (in bytes) are tokenized in parallel.
+	 */
+	private static final long PARALLEL_THRESHOLD = 16L * 1024 * 1024;
+
+	private long sortMemoryBudget = 0L;
+
+	private boolean sortedProperties = false;
+
+	private ParserMetrics metrics = NoopParserMetrics.INSTANCE;
+
+	private int chunkSize = 0;
+
+	/**
+	 * Makes the properties readers created by this factory sort the lines by key
+	 * path before reading them, so unsorted files produce correctly nested
+	 * events. Sorting spills to temporary files once the budget is reached.
+	 * 
+	 * @param memoryBudget approximate number of bytes of lines kept in memory
+	 *                     while sorting
+	 * @return this factory
+	 */
+	public ReaderFactory sortingProperties(long memoryBudget) {
+		if (memoryBudget <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid memory budget [%d].", memoryBudget));
+		}
+		this.sortMemoryBudget = memoryBudget;
+		return this;
+	}
+
+	/**
+	 * Declares that the properties files read are sorted by key path. Collisions
+	 * are then checked against the previous property only, with no tree and flat
+	 * memory, and reading fails on the first property found out of order. This is
+	 * implied by {@link #sortingProperties(long)}.
+	 * 
+	 * @return this factory
+	 */
+	public ReaderFactory sortedProperties() {
+		this.sortedProperties = true;
+		return this;
+	}
+
+	/**
+	 * Makes the XML and JSON readers created by this factory report values longer
+	 * than the given number of characters as a series of fragments, so that
+	 * neither the readers nor the handlers they feed hold a long value whole.
+	 * Properties are read line by line and their values are always whole.
+	 * 
+	 * @param chunkSize maximum number of characters of a fragment, at least 2 so a
+	 *                  surrogate pair fits
+	 * @return this factory
+	 */
+	public ReaderFactory chunkingValues(int chunkSize) {
+		if (chunkSize < 2) {
+			throw new IllegalArgumentException(String.format("Invalid chunk size [%d].", chunkSize));
+		}
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	/**
+	 * Makes the readers created by this factory report the bytes and the events
+	 * they read to the given metrics.
+	 * 
+	 * @return this factory
+	 */
+	public ReaderFactory metering(ParserMetrics metrics) {
+		this.metrics = metrics;
+		return this;
+	}
+
 	public Reader createReader(String path) {
-		String extension = FilenameUtils.getExtension(path);
+		Reader reader = createFileReader(path);
+		return metrics.isEnabled() ? new MeteredReader(reader, metrics) : reader;
+	}
+
+	/**
+	 * The reader is chosen by the extension of the file, that of the file within
+	 * when it is compressed: <code>config.xml.gz</code> is read as XML. The sizes
+	 * compared to the thresholds are those of the files on disk.
+	 */
+	private Reader createFileReader(String path) {
+		String extension = FilenameUtils.getExtension(Compression.stripSuffix(path));
+		long size = new File(path).length();
+		FileContentProvider<? extends InputStream> streamProvider = createStreamProvider(size, isCompressed(path));
 		if (PROPERTY_EXTENSION.equals(extension)) {
-			return new PropertiesFileReader(new LinesProvider());
+			return createPropertiesReader(streamProvider, size);
 		} else if (XML_EXTENSION.equals(extension)) {
-			return new XmlFileReader(new StreamProvider());
+			return new XmlFileReader(streamProvider, true, chunkSize);
 		} else if (JSON_EXTENSION.equals(extension)) {
-			return new JsonFileReader(new StreamProvider());
+			return new JsonFileReader(streamProvider, chunkSize);
 		}
 		throw new IllegalArgumentException(
 				String.format("There is no reader for files with extension [%s] within this factory.", extension));
 
 	}
 
+	private Reader createPropertiesReader(FileContentProvider<? extends InputStream> streamProvider, long size) {
+		Supplier<PathTree> treeSupplier;
+		if (sortedProperties || sortMemoryBudget > 0) {
+			treeSupplier = SortedPathValidator::new;
+		} else if (size > COMPACT_TREE_THRESHOLD) {
+			treeSupplier = CompactPropertiesTree::new;
+		} else {
+			treeSupplier = PropertiesTree::new;
+		}
+		ForkJoinPool pool = size > PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1
+				? ForkJoinPool.commonPool()
+				: null;
+		FileContentProvider<LineIterator> linesProvider = new LinesProvider(streamProvider);
+		if (sortMemoryBudget > 0) {
+			linesProvider = new SortingLinesProvider(linesProvider, sortMemoryBudget, null);
+		}
+		return new PropertiesFileReader(linesProvider, treeSupplier, pool, PropertiesFileReader.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param compressed whether the file is compressed, in which case it is read
+	 *                   through a {@link StreamProvider} inflating it
+	 */
+	private FileContentProvider<? extends InputStream> createStreamProvider(long size, boolean compressed) {
+		FileContentProvider<? extends InputStream> streamProvider = size > MAPPING_THRESHOLD && !compressed
+				? new MappedStreamProvider()
+				: new StreamProvider();
+		return metrics.isEnabled() ? new MeteredStreamProvider(streamProvider, metrics) : streamProvider;
+	}
+
+	private static boolean isCompressed(String path) {
+		try {
+			return Compression.of(Paths.get(path)) != Compression.NONE;
+		} catch (IOException e) {
+			// the reader fails to open the file later on
+			return false;
+		}
+	}
+
 }
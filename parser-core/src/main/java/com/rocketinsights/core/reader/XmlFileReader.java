@@ -10,8 +10,10 @@ import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.XMLEvent;
 
 import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.EventCursor;
 import com.rocketinsights.core.event.EventLog;
 import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.Utf8Slice;
 import com.rocketinsights.core.exception.ProcessingException;
 import com.rocketinsights.core.file.FileContentProvider;
 
@@ -28,31 +30,147 @@ public class XmlFileReader implements Reader {
 	private static final String ENCODING = "UTF-8";
 	private static final String ROOT_NODE = "root";
 
-	private FileContentProvider<InputStream> fileContentProvider;
+	// looking a factory up goes through the service loader, factories are
+	// thread safe once configured
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
 
-	public XmlFileReader(FileContentProvider<InputStream> fileContentProvider) {
+	private FileContentProvider<? extends InputStream> fileContentProvider;
+
+	private final boolean scanning;
+
+	// maximum number of chars of a value reported at once, 0 for no limit
+	private final int chunkSize;
+
+	public XmlFileReader(FileContentProvider<? extends InputStream> fileContentProvider) {
+		this(fileContentProvider, true);
+	}
+
+	/**
+	 * @param scanning whether documents are read by a {@link XmlScanner} first,
+	 *                 instead of going through StAX only
+	 */
+	public XmlFileReader(FileContentProvider<? extends InputStream> fileContentProvider, boolean scanning) {
+		this(fileContentProvider, scanning, 0);
+	}
+
+	/**
+	 * @param chunkSize the number of characters beyond which values are reported
+	 *                  in fragments of that size, see
+	 *                  {@link EventCursor#partial()}, or 0 to report them whole
+	 */
+	public XmlFileReader(FileContentProvider<? extends InputStream> fileContentProvider, boolean scanning,
+			int chunkSize) {
 		super();
+		if (chunkSize < 0 || chunkSize == 1) {
+			throw new IllegalArgumentException(String.format("Invalid chunk size [%d].", chunkSize));
+		}
 		this.fileContentProvider = fileContentProvider;
+		this.scanning = scanning;
+		this.chunkSize = chunkSize;
 	}
 
 	/**
 	 * Pulls the data from a file, assuming it contains a XML structure. If the
-	 * structure within the file can't be parsed (ie: the xml is malformed) this
-	 * method throws a {@link ProcessingException}. If an IO error occurs, a
+	 * structure within the file can't be parsed (ie: the xml is malformed) the
+	 * cursor throws a {@link ProcessingException}. If an IO error occurs, a
 	 * {@link IOException} is thrown instead.
+	 * 
+	 * Elements outside the projection are skipped up to their matching end
+	 * element.
+	 * 
+	 * Unless disabled, the file is read by a {@link XmlScanner}, which reports
+	 * the same events StAX does for the documents it supports. Once it finds
+	 * something it does not, the file is read again by StAX from the start and
+	 * the cursor goes on from where it was.
+	 * 
+	 * Values are the pieces of text StAX splits text into. Given a chunk size,
+	 * longer pieces are reported as a series of fragments, cut every chunk size
+	 * characters by both the scanner and StAX.
 	 */
 	@Override
-	public void read(Path path, EventLog eventLog) throws ProcessingException, IOException {
-		XMLInputFactory xmlif = XMLInputFactory.newInstance();
+	public EventCursor open(Path path, PathProjection projection) throws ProcessingException, IOException {
+		if (scanning) {
+			return new ScanningEventCursor(path, fileContentProvider.readContents(path), projection);
+		}
+		return openStax(path, fileContentProvider.readContents(path), projection);
+	}
 
-		XMLStreamReader reader = null;
+	private XmlEventCursor openStax(Path path, InputStream stream, PathProjection projection)
+			throws ProcessingException, IOException {
 		try {
-			reader = xmlif.createXMLStreamReader(fileContentProvider.readContents(path));
+			return new XmlEventCursor(path, stream, INPUT_FACTORY.createXMLStreamReader(stream), projection);
+		} catch (XMLStreamException e) {
+			stream.close();
+			throw invalidFormat(path, e);
+		}
+	}
+
+	private ProcessingException invalidFormat(Path path, XMLStreamException e) {
+		return new ProcessingException(
+				String.format("An error occured while processing the file [%s] due it has an invalid format.", path),
+				e);
+	}
+
+	private void initialValidation(XMLStreamReader reader, Path path) throws XMLStreamException, ProcessingException {
+		if (!VERSION.equals(reader.getVersion()) || !ENCODING.equals(reader.getEncoding())) {
+			throw new ProcessingException(String.format(
+					"The format of the file %s is invalid and does not match the specification. Check whether version [%s] and encoding [%s] attributes are correct.",
+					path, reader.getVersion(), reader.getEncoding()));
+		}
+
+		if (reader.hasNext()) {
+			int eventType = reader.next();
+			if (XMLEvent.START_ELEMENT == eventType && ROOT_NODE.equals(reader.getName().toString())) {
+				return;
+			}
+		}
+		throw new ProcessingException(
+				String.format("The format of the file %s is invalid and does not match the specification.", path));
+
+	}
 
-			initialValidation(reader, path);
+	private class XmlEventCursor extends ReaderCursor {
 
-			eventLog.push(new Event(EventType.DOC_STARTED, null, null));
-			int lastEvent = -1;
+		private final Path path;
+
+		private final InputStream stream;
+
+		private final XMLStreamReader reader;
+
+		private int lastEvent = -1;
+
+		// chars of the current text reported so far, -1 once all of it was
+		private int textOffset = -1;
+
+		XmlEventCursor(Path path, InputStream stream, XMLStreamReader reader, PathProjection projection) {
+			super(XmlFileReader.this, path, projection);
+			this.path = path;
+			this.stream = stream;
+			this.reader = reader;
+		}
+
+		@Override
+		protected void start() throws ProcessingException {
+			try {
+				initialValidation(reader, path);
+			} catch (XMLStreamException e) {
+				throw invalidFormat(path, e);
+			}
+		}
+
+		@Override
+		protected boolean advance() throws ProcessingException {
+			try {
+				return pull();
+			} catch (XMLStreamException e) {
+				throw invalidFormat(path, e);
+			}
+		}
+
+		private boolean pull() throws XMLStreamException, ProcessingException {
+			if (textOffset >= 0) {
+				return emitTextPart();
+			}
 			while (reader.hasNext()) {
 				int eventType = reader.next();
 				switch (eventType) {
@@ -61,58 +179,306 @@ public class XmlFileReader implements Reader {
 						throw new ProcessingException(String.format(
 								"An error occured while processing the file [%s] due it has an invalid format.", path));
 					}
-					eventLog.push(new Event(EventType.NODE_OPENED, reader.getName().toString(), null));
 					lastEvent = eventType;
+					int decision = openNode(elementName());
+					if (decision == Projector.SKIP) {
+						skipElement();
+						lastEvent = XMLEvent.END_ELEMENT;
+					} else if (decision == Projector.EMIT) {
+						return true;
+					}
 					break;
 
 				case XMLEvent.END_ELEMENT:
-					String name = reader.getName().toString();
-					if (!ROOT_NODE.equals(name)) {
-						eventLog.push(new Event(EventType.NODE_CLOSED, name, null));
-					}
 					lastEvent = eventType;
+					// the root element was opened by the initial validation
+					if (depth() > 0 && closeNode()) {
+						return true;
+					}
 					break;
 
 				case XMLEvent.CHARACTERS:
 					if (!reader.isWhiteSpace()) {
-						eventLog.push(new Event(EventType.VALUE_ADDED, null, reader.getText()));
 						lastEvent = eventType;
+						if (valuesKept()) {
+							if (chunkSize > 0 && reader.getTextLength() > chunkSize) {
+								textOffset = 0;
+								return emitTextPart();
+							}
+							return emit(EventType.VALUE_ADDED, null, reader.getText());
+						}
 					} else {
 						lastEvent = -1;
 					}
 					break;
 				}
 			}
-			eventLog.push(new Event(EventType.DOC_ENDED, null, null));
-		} catch (XMLStreamException e) {
-			throw new ProcessingException(String
-					.format("An error occured while processing the file [%s] due it has an invalid format.", path), e);
-		} finally {
-			try {
-				if (reader != null) {
-					reader.close();
+			return false;
+		}
+
+		/**
+		 * Reports the next fragment of the current text, without splitting a
+		 * surrogate pair.
+		 */
+		private boolean emitTextPart() {
+			char[] text = reader.getTextCharacters();
+			int start = reader.getTextStart();
+			int length = reader.getTextLength();
+			int end = Math.min(length, textOffset + chunkSize);
+			if (end < length && Character.isHighSurrogate(text[start + end - 1])) {
+				end--;
+			}
+			String part = new String(text, start + textOffset, end - textOffset);
+			boolean partial = end < length;
+			textOffset = partial ? end : -1;
+			return emitValue(part, partial);
+		}
+
+		/**
+		 * Names without a namespace are taken straight from the parser, which
+		 * already keeps a single instance of each, instead of going through a
+		 * {@link javax.xml.namespace.QName}.
+		 * 
+		 * @return the name of the current element
+		 */
+		private String elementName() {
+			String namespace = reader.getNamespaceURI();
+			if (namespace == null || namespace.isEmpty()) {
+				return reader.getLocalName();
+			}
+			return reader.getName().toString();
+		}
+
+		/**
+		 * Moves the parser to the end element matching the current start element.
+		 */
+		private void skipElement() throws XMLStreamException {
+			int level = 1;
+			while (level > 0) {
+				int eventType = reader.next();
+				if (eventType == XMLEvent.START_ELEMENT) {
+					level++;
+				} else if (eventType == XMLEvent.END_ELEMENT) {
+					level--;
 				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				reader.close();
 			} catch (XMLStreamException e) {
 				throw new IOException(e);
+			} finally {
+				// closing the XMLStreamReader does not close the underlying stream
+				stream.close();
 			}
 		}
 	}
 
-	private void initialValidation(XMLStreamReader reader, Path path) throws XMLStreamException, ProcessingException {
-		if (!VERSION.equals(reader.getVersion()) || !ENCODING.equals(reader.getEncoding())) {
-			throw new ProcessingException(String.format(
-					"The format of the file %s is invalid and does not match the specification. Check whether version [%s] and encoding [%s] attributes are correct.",
-					path, reader.getVersion(), reader.getEncoding()));
+	private class ScanningEventCursor extends ReaderCursor implements PendingValue {
+
+		private final Path path;
+
+		private final XmlScanner scanner;
+
+		private final PathProjection projection;
+
+		private int lastEvent = -1;
+
+		// whether the piece of text the cursor is on goes on in the next event
+		private boolean textContinued;
+
+		// the cursor events are taken from once the scanner gave up, if it did
+		private XmlEventCursor fallback;
+
+		// values reported by the scanner
+		private long values;
+
+		// characters of the values reported since the last other event
+		private long valueChars;
+
+		// whether the fallback cursor is on an event not reported yet
+		private boolean fallbackPending;
+
+		// the rest of a value of the fallback cursor partly reported by the scanner
+		private String valueRest;
+
+		ScanningEventCursor(Path path, InputStream stream, PathProjection projection) {
+			super(XmlFileReader.this, path, projection);
+			this.path = path;
+			this.scanner = new XmlScanner(stream, symbols);
+			this.projection = projection;
 		}
 
-		if (reader.hasNext()) {
-			int eventType = reader.next();
-			if (XMLEvent.START_ELEMENT == eventType && "root".equals(reader.getName().toString())) {
-				return;
+		@Override
+		protected void start() throws IOException, ProcessingException {
+			if (scanner.prolog() != XmlScanner.START) {
+				// StAX does the initial validation, the document started is skipped
+				fallBack(1, 0);
 			}
 		}
-		throw new ProcessingException(
-				String.format("The format of the file %s is invalid and does not match the specification.", path));
 
+		@Override
+		protected boolean advance() throws IOException, ProcessingException {
+			if (fallback != null) {
+				return pullFallback();
+			}
+			if (!EventType.VALUE_ADDED.equals(eventType())) {
+				valueChars = 0;
+			}
+			if (textContinued) {
+				textContinued = scanner.nextTextPart(chunkSize);
+				return emitTextValue(textContinued);
+			}
+			while (true) {
+				switch (scanner.next()) {
+				case XmlScanner.START:
+					if (lastEvent == XMLEvent.CHARACTERS) {
+						throw new ProcessingException(String.format(
+								"An error occured while processing the file [%s] due it has an invalid format.", path));
+					}
+					lastEvent = XMLEvent.START_ELEMENT;
+					int decision = openNode(scanner.symbol());
+					if (decision == Projector.SKIP) {
+						if (scanner.skipElement() != XmlScanner.END) {
+							return fallBack();
+						}
+						lastEvent = XMLEvent.END_ELEMENT;
+					} else if (decision == Projector.EMIT) {
+						return true;
+					}
+					break;
+				case XmlScanner.END:
+					lastEvent = XMLEvent.END_ELEMENT;
+					// the root element was opened by the prolog
+					if (depth() > 0 && closeNode()) {
+						return true;
+					}
+					break;
+				case XmlScanner.TEXT:
+					lastEvent = XMLEvent.CHARACTERS;
+					if (valuesKept()) {
+						textContinued = chunkSize > 0 && scanner.firstTextPart(chunkSize);
+						return emitTextValue(textContinued);
+					}
+					break;
+				case XmlScanner.WHITESPACE:
+					lastEvent = -1;
+					break;
+				case XmlScanner.END_DOCUMENT:
+					return false;
+				default:
+					return fallBack();
+				}
+			}
+		}
+
+		@Override
+		public String decode() {
+			return scanner.text();
+		}
+
+		@Override
+		public boolean slice(Utf8Slice slice) {
+			return scanner.rawText(slice);
+		}
+
+		private boolean emitTextValue(boolean partial) {
+			values++;
+			valueChars += scanner.textLength();
+			return emitValue(this, partial);
+		}
+
+		/**
+		 * Goes on with StAX from the current event.
+		 */
+		private boolean fallBack() throws IOException, ProcessingException {
+			fallBack(eventCount() - values, valueChars);
+			return pullFallback();
+		}
+
+		/**
+		 * Reads the document again with StAX, up to where the scanner got: past the
+		 * given number of events other than values, which both report alike, then
+		 * past the given number of characters of values. StAX may split text where
+		 * the scanner does not, so values are skipped by their characters rather
+		 * than by their number, and the rest of a value StAX split elsewhere is
+		 * reported first.
+		 * 
+		 * @param events number of events other than values reported so far
+		 * @param chars  number of characters of the values reported after them
+		 */
+		private void fallBack(long events, long chars) throws IOException, ProcessingException {
+			InputStream stream = scanner.replay();
+			if (stream == null) {
+				scanner.close();
+				stream = fileContentProvider.readContents(path);
+			}
+			fallback = openStax(path, stream, projection);
+			for (long i = 0; i < events;) {
+				if (!fallback.next()) {
+					throw fallbackMismatch();
+				}
+				if (!EventType.VALUE_ADDED.equals(fallback.eventType())) {
+					i++;
+				}
+			}
+			if (fallback.depth() != depth()) {
+				throw fallbackMismatch();
+			}
+			long skipped = 0;
+			while (skipped < chars) {
+				if (!fallback.next()) {
+					throw fallbackMismatch();
+				}
+				if (!EventType.VALUE_ADDED.equals(fallback.eventType())) {
+					// StAX dropped a piece of whitespace the scanner kept
+					fallbackPending = true;
+					return;
+				}
+				String data = fallback.data();
+				if (skipped + data.length() > chars) {
+					valueRest = data.substring((int) (chars - skipped));
+					fallbackPending = true;
+				}
+				skipped += data.length();
+			}
+		}
+
+		private ProcessingException fallbackMismatch() {
+			return new ProcessingException(String.format(
+					"An error occured while processing the file [%s] due StAX does not read it as it was read so far.",
+					path));
+		}
+
+		private boolean pullFallback() throws IOException, ProcessingException {
+			if (fallbackPending) {
+				fallbackPending = false;
+			} else if (!fallback.next()) {
+				return false;
+			}
+			if (EventType.DOC_ENDED.equals(fallback.eventType())) {
+				return false;
+			}
+			if (EventType.VALUE_ADDED.equals(fallback.eventType())) {
+				String data = valueRest != null ? valueRest : fallback.data();
+				valueRest = null;
+				return emitValue(data, fallback.partial());
+			}
+			return emit(fallback.eventType(), symbols.intern(fallback.name()));
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				scanner.close();
+			} finally {
+				if (fallback != null) {
+					fallback.close();
+				}
+			}
+		}
 	}
 }
@@ -0,0 +1,1034 @@
+package com.rocketinsights.core.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.rocketinsights.core.event.SymbolTable;
+import com.rocketinsights.core.event.Utf8Slice;
+
+/**
+ * Pulls the elements and the text of a UTF-8 encoded XML 1.0 document straight
+ * from its bytes. It is specialized for the documents this project reads:
+ * elements without namespaces, attributes that are ignored, text and comments.
+ * Text is split the way the JDK's StAX parser splits it, so both report the
+ * same events, and is only decoded when asked to; references are resolved
+ * only where an <code>&amp;</code> shows up. StAX may also split a piece of
+ * text that crosses the end of its own buffer, which depends on how the reads
+ * of the document happen to fall and is not reproduced: the values match once
+ * adjacent ones are joined.
+ *
+ * Whatever falls outside of that shape, a malformed document included, is
+ * reported as {@link #UNSUPPORTED}, leaving it to StAX.
+ *
+ * @author fbonecco
+ *
+ */
+class XmlScanner implements Closeable {
+
+	static final int START = 1;
+	static final int END = 2;
+
+	/**
+	 * A piece of text that is not only whitespace.
+	 */
+	static final int TEXT = 3;
+
+	static final int WHITESPACE = 4;
+	static final int END_DOCUMENT = 5;
+	static final int UNSUPPORTED = 6;
+
+	/**
+	 * Longest text, in bytes, reported the way StAX does. StAX splits longer text
+	 * wherever its own buffer happens to end.
+	 */
+	private static final int MAX_TEXT = 4096;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final byte[] DECLARATION = "<?xml".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] ROOT = "root".getBytes(StandardCharsets.US_ASCII);
+
+	// stands for the root element within the stack of open elements
+	private static final int ROOT_SYMBOL = -2;
+
+	private final InputStream in;
+
+	private final SymbolTable symbols;
+
+	private byte[] buffer = new byte[BUFFER_SIZE];
+
+	private int pos;
+
+	private int limit;
+
+	// start of the bytes kept when the buffer is refilled, within a token
+	private int mark = -1;
+
+	// offset within the document of the first byte in the buffer
+	private long offset;
+
+	private int[] elements = new int[32];
+
+	private int depth;
+
+	private boolean rootClosed;
+
+	private boolean emptyElement;
+
+	private int symbol;
+
+	// end of the text being split into pieces, -1 when there is none
+	private int textEnd = -1;
+
+	private int sliceStart;
+
+	private int sliceEnd;
+
+	private boolean sliceAscii;
+
+	private boolean pieceAscii;
+
+	private boolean pieceBlank;
+
+	// end of the piece of text being reported in parts
+	private int pieceEnd;
+
+	// the piece of text a reference stands for, null for raw text
+	private String reference;
+
+	/**
+	 * @param symbols the table element names are interned in
+	 */
+	XmlScanner(InputStream in, SymbolTable symbols) {
+		this.in = in;
+		this.symbols = symbols;
+	}
+
+	/**
+	 * Reads the XML declaration, which has to be for version 1.0 and UTF-8, and
+	 * the start of the root element.
+	 *
+	 * @return {@link #START} once positioned after the start of the root
+	 *         element, otherwise {@link #UNSUPPORTED}
+	 */
+	int prolog() throws IOException {
+		if (!require(DECLARATION.length + 1) || !matches(DECLARATION) || !isWhitespace(buffer[pos + 5])) {
+			return UNSUPPORTED;
+		}
+		pos += DECLARATION.length;
+		if (!declaration()) {
+			return UNSUPPORTED;
+		}
+		if (!skipWhitespace() || buffer[pos] != '<') {
+			return UNSUPPORTED;
+		}
+		pos++;
+		mark = pos;
+		if (!skipName() || pos - mark != ROOT.length || !matches(mark, ROOT)) {
+			return UNSUPPORTED;
+		}
+		mark = -1;
+		return startTag(ROOT_SYMBOL);
+	}
+
+	/**
+	 * @return the type of the next piece of the document, which is consumed
+	 */
+	int next() throws IOException {
+		return next(false);
+	}
+
+	/**
+	 * Consumes the content of the element just started, along with its end.
+	 *
+	 * @return {@link #END} when done, or {@link #UNSUPPORTED}
+	 */
+	int skipElement() throws IOException {
+		int level = 1;
+		while (level > 0) {
+			switch (next(true)) {
+			case START:
+				level++;
+				break;
+			case END:
+				level--;
+				break;
+			case UNSUPPORTED:
+			case END_DOCUMENT:
+				return UNSUPPORTED;
+			default:
+				break;
+			}
+		}
+		return END;
+	}
+
+	/**
+	 * @return the symbol of the element just started
+	 */
+	int symbol() {
+		return symbol;
+	}
+
+	/**
+	 * @return the piece of text just read, decoded
+	 */
+	String text() {
+		if (reference != null) {
+			return reference;
+		}
+		return new String(buffer, sliceStart, sliceEnd - sliceStart,
+				sliceAscii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return the number of characters of the piece of text, or the part of it,
+	 *         just read
+	 */
+	int textLength() {
+		if (reference != null) {
+			return reference.length();
+		}
+		if (sliceAscii) {
+			return sliceEnd - sliceStart;
+		}
+		// text beyond the BMP is left to StAX, every lead byte is a char
+		int chars = 0;
+		for (int p = sliceStart; p < sliceEnd; p++) {
+			if ((buffer[p] & 0xc0) != 0x80) {
+				chars++;
+			}
+		}
+		return chars;
+	}
+
+	/**
+	 * Points a slice to the piece of text just read, unless it is a reference.
+	 * 
+	 * @return false for a reference, whose text is only given by {@link #text()}
+	 */
+	boolean rawText(Utf8Slice slice) {
+		if (reference != null) {
+			return false;
+		}
+		slice.set(buffer, sliceStart, sliceEnd - sliceStart);
+		return true;
+	}
+
+	/**
+	 * Narrows the piece of text just read, unless it is a reference, to its
+	 * first characters, for text reported in parts. The parts that follow are
+	 * given by {@link #nextTextPart(int)}.
+	 * 
+	 * @return whether the piece goes on after the characters kept
+	 */
+	boolean firstTextPart(int maxChars) {
+		if (reference != null) {
+			return false;
+		}
+		pieceEnd = sliceEnd;
+		sliceEnd = cut(sliceStart, maxChars);
+		return sliceEnd < pieceEnd;
+	}
+
+	/**
+	 * Moves on to the next part of the piece of text just read.
+	 * 
+	 * @return whether the piece goes on after this part
+	 */
+	boolean nextTextPart(int maxChars) {
+		sliceStart = sliceEnd;
+		sliceEnd = cut(sliceStart, maxChars);
+		return sliceEnd < pieceEnd;
+	}
+
+	/**
+	 * @return the position after the given number of characters of the piece
+	 *         being reported in parts, which has none beyond the BMP
+	 */
+	private int cut(int from, int maxChars) {
+		if (pieceEnd - from <= maxChars) {
+			return pieceEnd;
+		}
+		if (sliceAscii) {
+			return from + maxChars;
+		}
+		int p = from;
+		int chars = 0;
+		while (p < pieceEnd) {
+			if ((buffer[p] & 0xc0) != 0x80) {
+				if (chars == maxChars) {
+					break;
+				}
+				chars++;
+			}
+			p++;
+		}
+		return p;
+	}
+
+	/**
+	 * @return the document from its start, as long as none of it was dropped
+	 *         from the buffer yet, otherwise null
+	 */
+	InputStream replay() {
+		if (offset > 0) {
+			return null;
+		}
+		return new ReplayStream();
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private int next(boolean skipping) throws IOException {
+		if (emptyElement) {
+			emptyElement = false;
+			return endElement();
+		}
+		if (textEnd >= 0) {
+			return nextPiece();
+		}
+		while (true) {
+			if (pos == limit && !fill()) {
+				return rootClosed ? END_DOCUMENT : UNSUPPORTED;
+			}
+			if (buffer[pos] != '<') {
+				if (rootClosed) {
+					if (!skipWhitespace()) {
+						return END_DOCUMENT;
+					}
+					if (buffer[pos] != '<') {
+						return UNSUPPORTED;
+					}
+				} else if (skipping) {
+					if (!skipText()) {
+						return UNSUPPORTED;
+					}
+					continue;
+				} else {
+					return readText();
+				}
+			}
+			if (!require(2)) {
+				return UNSUPPORTED;
+			}
+			byte b = buffer[pos + 1];
+			if (b == '!') {
+				if (!comment()) {
+					return UNSUPPORTED;
+				}
+				continue;
+			}
+			if (rootClosed) {
+				return UNSUPPORTED;
+			}
+			if (b == '/') {
+				pos += 2;
+				return endTag();
+			}
+			if (!isNameStart(b)) {
+				return UNSUPPORTED;
+			}
+			pos++;
+			mark = pos;
+			if (!skipName()) {
+				return UNSUPPORTED;
+			}
+			symbol = symbols.intern(buffer, mark, pos);
+			mark = -1;
+			return startTag(symbol);
+		}
+	}
+
+	/**
+	 * Reads the attributes of the XML declaration, after <code>&lt;?xml</code>.
+	 */
+	private boolean declaration() throws IOException {
+		if (!pseudoAttribute("version", "1.0") || !pseudoAttribute("encoding", "UTF-8")) {
+			return false;
+		}
+		int spaces = whitespace();
+		if (spaces > 0 && buffer[pos] == 's' && !pseudoAttribute("standalone", "yes", "no")) {
+			return false;
+		}
+		if (!skipWhitespace() || !require(2) || buffer[pos] != '?' || buffer[pos + 1] != '>') {
+			return false;
+		}
+		pos += 2;
+		return true;
+	}
+
+	/**
+	 * Reads a pseudo attribute of the XML declaration, which has to have one of
+	 * the given values, along with the whitespace before it.
+	 */
+	private boolean pseudoAttribute(String name, String... values) throws IOException {
+		byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+		if (whitespace() < 0 || !require(bytes.length) || !matches(bytes)) {
+			return false;
+		}
+		pos += bytes.length;
+		if (!skipWhitespace() || buffer[pos] != '=') {
+			return false;
+		}
+		pos++;
+		if (!skipWhitespace()) {
+			return false;
+		}
+		byte quote = buffer[pos];
+		if (quote != '"' && quote != '\'') {
+			return false;
+		}
+		pos++;
+		for (String value : values) {
+			if (require(value.length() + 1) && matches(value.getBytes(StandardCharsets.US_ASCII))
+					&& buffer[pos + value.length()] == quote) {
+				pos += value.length() + 1;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the attributes of a start tag, after its name, up to its end.
+	 */
+	private int startTag(int element) throws IOException {
+		// attribute names are compared to each other, the tag is kept whole
+		mark = pos;
+		int attributes = 0;
+		int[] names = null;
+		while (true) {
+			int spaces = whitespace();
+			if (spaces < 0) {
+				return UNSUPPORTED;
+			}
+			byte b = buffer[pos];
+			if (b == '>' || b == '/') {
+				if (b == '/') {
+					if (!require(2) || buffer[pos + 1] != '>') {
+						return UNSUPPORTED;
+					}
+					pos++;
+					emptyElement = true;
+				}
+				pos++;
+				mark = -1;
+				push(element);
+				return START;
+			}
+			if (spaces == 0 || !isNameStart(b)) {
+				return UNSUPPORTED;
+			}
+			int nameStart = pos;
+			if (!skipName()) {
+				return UNSUPPORTED;
+			}
+			// names are relative to the tag, as the buffer may move
+			int start = nameStart - mark;
+			int end = pos - mark;
+			if (isNamespaceDeclaration(nameStart, pos)) {
+				return UNSUPPORTED;
+			}
+			if (names == null) {
+				names = new int[8];
+			} else if (attributes * 2 == names.length) {
+				names = Arrays.copyOf(names, names.length * 2);
+			}
+			for (int i = 0; i < attributes; i++) {
+				if (sameName(mark + names[i * 2], mark + names[i * 2 + 1], mark + start, mark + end)) {
+					return UNSUPPORTED;
+				}
+			}
+			names[attributes * 2] = start;
+			names[attributes * 2 + 1] = end;
+			attributes++;
+			if (!skipWhitespace() || buffer[pos] != '=') {
+				return UNSUPPORTED;
+			}
+			pos++;
+			if (!skipWhitespace() || !attributeValue()) {
+				return UNSUPPORTED;
+			}
+		}
+	}
+
+	private boolean isNamespaceDeclaration(int start, int end) {
+		return end - start == 5 && buffer[start] == 'x' && buffer[start + 1] == 'm' && buffer[start + 2] == 'l'
+				&& buffer[start + 3] == 'n' && buffer[start + 4] == 's';
+	}
+
+	private boolean sameName(int start, int end, int otherStart, int otherEnd) {
+		if (end - start != otherEnd - otherStart) {
+			return false;
+		}
+		for (int i = 0; i < end - start; i++) {
+			if (buffer[start + i] != buffer[otherStart + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Skips a quoted attribute value. Values with references are left to StAX.
+	 */
+	private boolean attributeValue() throws IOException {
+		byte quote = buffer[pos];
+		if (quote != '"' && quote != '\'') {
+			return false;
+		}
+		pos++;
+		while (true) {
+			if (pos == limit && !fill()) {
+				return false;
+			}
+			byte b = buffer[pos];
+			if (b == quote) {
+				pos++;
+				return true;
+			}
+			if (b == '<' || b == '&' || !skipChar()) {
+				return false;
+			}
+		}
+	}
+
+	private int endTag() throws IOException {
+		mark = pos;
+		if (pos == limit && !fill()) {
+			return UNSUPPORTED;
+		}
+		if (!isNameStart(buffer[pos]) || !skipName()) {
+			return UNSUPPORTED;
+		}
+		int element = elements[depth - 1];
+		boolean matching = element == ROOT_SYMBOL ? pos - mark == ROOT.length && matches(mark, ROOT)
+				: symbols.intern(buffer, mark, pos) == element;
+		mark = -1;
+		if (!matching || !skipWhitespace() || buffer[pos] != '>') {
+			return UNSUPPORTED;
+		}
+		pos++;
+		return endElement();
+	}
+
+	private int endElement() {
+		depth--;
+		rootClosed = depth == 0;
+		return END;
+	}
+
+	/**
+	 * Skips a comment, which has to be well formed.
+	 */
+	private boolean comment() throws IOException {
+		if (!require(4) || buffer[pos + 2] != '-' || buffer[pos + 3] != '-') {
+			return false;
+		}
+		pos += 4;
+		while (true) {
+			if (pos == limit && !fill()) {
+				return false;
+			}
+			if (buffer[pos] == '-') {
+				if (!require(3)) {
+					return false;
+				}
+				if (buffer[pos + 1] == '-') {
+					if (buffer[pos + 2] != '>') {
+						return false;
+					}
+					pos += 3;
+					return true;
+				}
+			}
+			if (!skipChar()) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Reads the text up to the next markup, checking whether it can be split
+	 * like StAX does: StAX ends a piece of text at every reference, and
+	 * elsewhere only where its buffer ends, on carriage returns or around
+	 * characters beyond the BMP, which are all left to StAX, unless the text is
+	 * nothing but whitespace.
+	 */
+	private int readText() throws IOException {
+		mark = pos;
+		long start = offset + pos;
+		boolean blank = true;
+		boolean references = false;
+		boolean carriageReturns = false;
+		while (true) {
+			if (pos == limit && !fill()) {
+				// the root element is not closed
+				return UNSUPPORTED;
+			}
+			byte b = buffer[pos];
+			if (b == '<') {
+				break;
+			}
+			if (offset + pos - start > MAX_TEXT) {
+				if (!blank || references) {
+					return UNSUPPORTED;
+				}
+				// long whitespace doesn't need to be kept
+				mark = -1;
+			}
+			if (b == '&') {
+				if (reference() == 0) {
+					return UNSUPPORTED;
+				}
+				references = true;
+				continue;
+			}
+			if (b == '\r') {
+				carriageReturns = true;
+			} else if ((b & 0xf8) == 0xf0) {
+				// StAX ends a piece of text at characters beyond the BMP
+				return UNSUPPORTED;
+			} else if (!isWhitespace(b)) {
+				blank = false;
+				if (b == ']' && !checkCdataEnd()) {
+					return UNSUPPORTED;
+				}
+			}
+			if (!skipChar()) {
+				return UNSUPPORTED;
+			}
+		}
+		if (blank && !references) {
+			mark = -1;
+			return WHITESPACE;
+		}
+		if (carriageReturns || offset + pos - start > MAX_TEXT) {
+			return UNSUPPORTED;
+		}
+		// the text stays in the buffer, as no more is read until it is consumed
+		textEnd = pos;
+		pos = mark;
+		mark = -1;
+		return nextPiece();
+	}
+
+	/**
+	 * Reads the next piece of the text kept. Pieces are cut where StAX cuts
+	 * them: a reference is a piece of its own, otherwise a piece takes up to
+	 * two rounds of leading line feeds and characters up to the next line feed
+	 * or bracket, each of them followed by the brackets there, if any.
+	 */
+	private int nextPiece() throws IOException {
+		int start = pos;
+		if (buffer[start] == '&') {
+			int length = reference();
+			pos = start + length;
+			reference = resolve(start, pos);
+			sliceStart = start;
+			sliceEnd = pos;
+			if (pos == textEnd) {
+				textEnd = -1;
+			}
+			return isBlank(reference) ? WHITESPACE : TEXT;
+		}
+		reference = null;
+		pieceBlank = true;
+		pieceAscii = true;
+		int p = round(start);
+		if (p < textEnd && buffer[p] != '&') {
+			p = round(p);
+		}
+		pos = p;
+		sliceStart = start;
+		sliceEnd = p;
+		sliceAscii = pieceAscii;
+		if (p == textEnd) {
+			textEnd = -1;
+		}
+		return pieceBlank ? WHITESPACE : TEXT;
+	}
+
+	/**
+	 * Moves past the line feeds at the given position, the characters after them
+	 * up to a line feed, bracket or reference, and the brackets there.
+	 *
+	 * @return the position after them
+	 */
+	private int round(int p) {
+		while (p < textEnd && buffer[p] == '\n') {
+			p++;
+		}
+		while (p < textEnd) {
+			byte b = buffer[p];
+			if (b == '\n' || b == ']' || b == '&') {
+				break;
+			}
+			if (b < 0) {
+				pieceAscii = false;
+				pieceBlank = false;
+			} else if (!isWhitespace(b)) {
+				pieceBlank = false;
+			}
+			p++;
+		}
+		if (p < textEnd && buffer[p] == ']') {
+			pieceBlank = false;
+			while (p < textEnd && buffer[p] == ']') {
+				p++;
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Skips text within an element being skipped, which only has to be well
+	 * formed.
+	 */
+	private boolean skipText() throws IOException {
+		while (true) {
+			if (pos == limit && !fill()) {
+				return false;
+			}
+			byte b = buffer[pos];
+			if (b == '<') {
+				return true;
+			}
+			if (b == '&') {
+				if (reference() == 0) {
+					return false;
+				}
+				continue;
+			}
+			if ((b == ']' && !checkCdataEnd()) || !skipChar()) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * @return whether the bracket at the current position does not start the
+	 *         end of a CDATA section, which is not allowed in text
+	 */
+	private boolean checkCdataEnd() throws IOException {
+		return !require(3) || buffer[pos + 1] != ']' || buffer[pos + 2] != '>';
+	}
+
+	/**
+	 * Checks the reference at the current position, one of the predefined
+	 * entities or a character reference, and moves past it.
+	 *
+	 * @return its length, or 0 when it is not supported
+	 */
+	private int reference() throws IOException {
+		// the longest is &#x10FFFF;
+		for (int length = 3; length <= 10; length++) {
+			if (!require(length)) {
+				return 0;
+			}
+			if (buffer[pos + length - 1] == ';') {
+				if (resolve(pos, pos + length) == null) {
+					return 0;
+				}
+				pos += length;
+				return length;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return what the reference between start and end stands for, or null when
+	 *         it is not supported
+	 */
+	private String resolve(int start, int end) {
+		int length = end - start;
+		if (buffer[start + 1] == '#') {
+			int radix = 10;
+			int digits = start + 2;
+			if (digits < end - 1 && buffer[digits] == 'x') {
+				radix = 16;
+				digits++;
+			}
+			if (digits == end - 1) {
+				return null;
+			}
+			int codePoint = 0;
+			for (int i = digits; i < end - 1; i++) {
+				int digit = Character.digit(buffer[i], radix);
+				if (digit < 0) {
+					return null;
+				}
+				codePoint = codePoint * radix + digit;
+				if (codePoint > Character.MAX_CODE_POINT) {
+					return null;
+				}
+			}
+			if (!isXmlChar(codePoint)) {
+				return null;
+			}
+			return new String(Character.toChars(codePoint));
+		}
+		switch (length) {
+		case 4:
+			if (buffer[start + 1] == 'l' && buffer[start + 2] == 't') {
+				return "<";
+			}
+			if (buffer[start + 1] == 'g' && buffer[start + 2] == 't') {
+				return ">";
+			}
+			return null;
+		case 5:
+			return buffer[start + 1] == 'a' && buffer[start + 2] == 'm' && buffer[start + 3] == 'p' ? "&" : null;
+		case 6:
+			if (buffer[start + 1] == 'a' && buffer[start + 2] == 'p' && buffer[start + 3] == 'o'
+					&& buffer[start + 4] == 's') {
+				return "'";
+			}
+			if (buffer[start + 1] == 'q' && buffer[start + 2] == 'u' && buffer[start + 3] == 'o'
+					&& buffer[start + 4] == 't') {
+				return "\"";
+			}
+			return null;
+		default:
+			return null;
+		}
+	}
+
+	private static boolean isXmlChar(int codePoint) {
+		return codePoint == 0x9 || codePoint == 0xa || codePoint == 0xd || (codePoint >= 0x20 && codePoint <= 0xd7ff)
+				|| (codePoint >= 0xe000 && codePoint <= 0xfffd) || (codePoint >= 0x10000 && codePoint <= 0x10ffff);
+	}
+
+	private static boolean isBlank(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Moves past the character at the current position, which has to be valid
+	 * in XML 1.0 and, beyond ASCII, well encoded.
+	 */
+	private boolean skipChar() throws IOException {
+		byte b = buffer[pos];
+		if (b >= 0) {
+			if (b < 0x20 && b != '\t' && b != '\n' && b != '\r') {
+				return false;
+			}
+			pos++;
+			return true;
+		}
+		int lead = b & 0xff;
+		int length;
+		int min;
+		if (lead >= 0xc2 && lead <= 0xdf) {
+			length = 2;
+			min = 0x80;
+		} else if (lead >= 0xe0 && lead <= 0xef) {
+			length = 3;
+			min = 0x800;
+		} else if (lead >= 0xf0 && lead <= 0xf4) {
+			length = 4;
+			min = 0x10000;
+		} else {
+			return false;
+		}
+		if (!require(length)) {
+			return false;
+		}
+		int codePoint = lead & (0xff >> (length + 1));
+		for (int i = 1; i < length; i++) {
+			int next = buffer[pos + i] & 0xff;
+			if ((next & 0xc0) != 0x80) {
+				return false;
+			}
+			codePoint = (codePoint << 6) | (next & 0x3f);
+		}
+		if (codePoint < min || !isXmlChar(codePoint)) {
+			return false;
+		}
+		pos += length;
+		return true;
+	}
+
+	/**
+	 * Moves past an ASCII name, the only ones supported.
+	 */
+	private boolean skipName() throws IOException {
+		if (pos == limit && !fill()) {
+			return false;
+		}
+		if (!isNameStart(buffer[pos])) {
+			return false;
+		}
+		pos++;
+		while (true) {
+			if (pos == limit && !fill()) {
+				return false;
+			}
+			byte b = buffer[pos];
+			if (isNameStart(b) || (b >= '0' && b <= '9') || b == '-' || b == '.') {
+				pos++;
+			} else {
+				return b >= 0 && b != ':';
+			}
+		}
+	}
+
+	private static boolean isNameStart(byte b) {
+		return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_';
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+	}
+
+	/**
+	 * @return false at the end of the document, otherwise the current position
+	 *         is past any whitespace
+	 */
+	private boolean skipWhitespace() throws IOException {
+		return whitespace() >= 0;
+	}
+
+	/**
+	 * Moves past any whitespace.
+	 *
+	 * @return the number of whitespace bytes, -1 at the end of the document
+	 */
+	private int whitespace() throws IOException {
+		int count = 0;
+		while (true) {
+			if (pos == limit && !fill()) {
+				return -1;
+			}
+			if (!isWhitespace(buffer[pos])) {
+				return count;
+			}
+			pos++;
+			count++;
+		}
+	}
+
+	private boolean matches(byte[] bytes) {
+		return matches(pos, bytes);
+	}
+
+	private boolean matches(int start, byte[] bytes) {
+		if (limit - start < bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			if (buffer[start + i] != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void push(int element) {
+		if (depth == elements.length) {
+			elements = Arrays.copyOf(elements, depth * 2);
+		}
+		elements[depth++] = element;
+	}
+
+	/**
+	 * @return whether at least the given number of bytes are available from the
+	 *         current position
+	 */
+	private boolean require(int count) throws IOException {
+		while (limit - pos < count) {
+			if (!fill()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads more of the document into the buffer. Bytes are only dropped from the
+	 * buffer once it is full, those from the mark on, if there is one, are kept
+	 * and the buffer grows when they fill it.
+	 *
+	 * @return false at the end of the document
+	 */
+	private boolean fill() throws IOException {
+		if (limit == buffer.length) {
+			int keep = mark >= 0 ? mark : pos;
+			if (keep == 0) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			} else {
+				System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+				offset += keep;
+				limit -= keep;
+				pos -= keep;
+				if (mark >= 0) {
+					mark -= keep;
+				}
+			}
+		}
+		int read;
+		do {
+			read = in.read(buffer, limit, buffer.length - limit);
+		} while (read == 0);
+		if (read < 0) {
+			return false;
+		}
+		limit += read;
+		return true;
+	}
+
+	/**
+	 * The bytes in the buffer followed by the rest of the document. Reads are
+	 * filled as long as there is more to read, as a file would do: StAX splits
+	 * text where its reads happen to end, so it has to see them end where it
+	 * would have reading the document from the start.
+	 */
+	private class ReplayStream extends InputStream {
+
+		private int replayed;
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			int count = Math.min(len, limit - replayed);
+			System.arraycopy(buffer, replayed, b, off, count);
+			replayed += count;
+			while (count < len) {
+				int read = in.read(b, off + count, len - count);
+				if (read < 0) {
+					break;
+				}
+				count += read;
+			}
+			return count == 0 ? -1 : count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package com.rocketinsights.core.tree;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+
+/**
+ * A low-footprint alternative to {@link PropertiesTree}, meant for properties
+ * files with a very large number of keys.
+ * 
+ * Instead of one object per node, nodes are plain int ids. The children of all
+ * the nodes are kept in a single open-addressing hash table that maps (parent
+ * id, segment id) to the child id, and every distinct path segment is stored
+ * once in a dictionary. Each node costs a table slot of 12 bytes (plus the load
+ * factor slack), no matter how many children it has.
+ * 
+ * The table can optionally be allocated off-heap. Either way it is limited to
+ * 2^28 slots, which gives room for roughly 200 million nodes. As a buffer holds
+ * less than 2GB, the keys of a large table are spread over several buffers.
+ * 
+ * @author fbonecco
+ *
+ */
+public class CompactPropertiesTree implements PathTree {
+
+	private static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final int MAX_CAPACITY = 1 << 28;
+
+	// the most longs a buffer of less than 2GB holds, as a power of two
+	private static final int KEY_BUFFER_SLOTS = 1 << 27;
+
+	private static final float LOAD_FACTOR = 0.75f;
+
+	// rough size of a String holding a segment, without its characters
+	private static final int STRING_OVERHEAD = 56;
+
+	private final boolean offHeap;
+
+	// (parent id << 32 | segment id) for each slot, spread over buffers of
+	// keyBufferSlots slots
+	private LongBuffer[] keys;
+
+	private final int keyBufferShift;
+
+	private final int keyBufferMask;
+
+	// (child id << 1 | has children) for each slot, 0 when the slot is empty
+	private IntBuffer values;
+
+	private int capacity;
+
+	private int nodeCount;
+
+	private long keyCount;
+
+	private final SegmentDictionary segments;
+
+	public CompactPropertiesTree() {
+		this(DEFAULT_CAPACITY, false);
+	}
+
+	/**
+	 * @param expectedNodes the number of nodes expected, used to size the table
+	 *                      upfront and avoid rehashing
+	 * @param offHeap       whether the node table is allocated out of the Java
+	 *                      heap
+	 */
+	public CompactPropertiesTree(int expectedNodes, boolean offHeap) {
+		this(expectedNodes, offHeap, KEY_BUFFER_SLOTS);
+	}
+
+	/**
+	 * @param keyBufferSlots the number of keys held by each buffer, a power of
+	 *                       two
+	 */
+	CompactPropertiesTree(int expectedNodes, boolean offHeap, int keyBufferSlots) {
+		if (keyBufferSlots <= 0 || keyBufferSlots > KEY_BUFFER_SLOTS || Integer.bitCount(keyBufferSlots) != 1) {
+			throw new IllegalArgumentException(String.format("Invalid number of slots per buffer [%d].", keyBufferSlots));
+		}
+		this.offHeap = offHeap;
+		this.keyBufferShift = Integer.numberOfTrailingZeros(keyBufferSlots);
+		this.keyBufferMask = keyBufferSlots - 1;
+		this.segments = new SegmentDictionary();
+		allocate(tableSizeFor(expectedNodes));
+	}
+
+	@Override
+	public boolean add(List<String> path) {
+		int parent = 0;
+		int depth = path.size();
+		for (int x = 0; x < depth; x++) {
+			int segment = segments.intern(path.get(x));
+			int slot = find(parent, segment);
+			int value = values.get(slot);
+			if (value == 0) {
+				insert(path, x, parent);
+				return true;
+			}
+			if (x == depth - 1 || (value & 1) == 0) {
+				// either the path is a prefix of a stored one or the other way around
+				return false;
+			}
+			parent = value >>> 1;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of paths stored
+	 */
+	public long getKeyCount() {
+		return keyCount;
+	}
+
+	/**
+	 * @return the number of nodes stored
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return the number of distinct segments stored
+	 */
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * @return an estimation of the bytes used by this tree, both heap and
+	 *         off-heap
+	 */
+	public long getMemoryUsage() {
+		return (long) capacity * (Long.BYTES + Integer.BYTES) + segments.getMemoryUsage();
+	}
+
+	/**
+	 * @return the estimated bytes used for each path stored, useful for capacity
+	 *         planning
+	 */
+	public double getBytesPerKey() {
+		return keyCount == 0 ? 0d : (double) getMemoryUsage() / keyCount;
+	}
+
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CompactPropertiesTree [keys=%d, nodes=%d, segments=%d, bytes=%d, bytesPerKey=%.2f]",
+				keyCount, nodeCount, segments.size(), getMemoryUsage(), getBytesPerKey());
+	}
+
+	private void insert(List<String> path, int from, int parent) {
+		int depth = path.size();
+		for (int x = from; x < depth; x++) {
+			ensureCapacity();
+			int segment = segments.intern(path.get(x));
+			int slot = find(parent, segment);
+			int child = ++nodeCount;
+			putKey(slot, key(parent, segment));
+			values.put(slot, (child << 1) | (x < depth - 1 ? 1 : 0));
+			parent = child;
+		}
+		keyCount++;
+	}
+
+	private int find(int parent, int segment) {
+		long key = key(parent, segment);
+		int mask = capacity - 1;
+		int slot = hash(key) & mask;
+		while (values.get(slot) != 0 && keyAt(slot) != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void ensureCapacity() {
+		if (nodeCount + 1 <= capacity * LOAD_FACTOR) {
+			return;
+		}
+		if (capacity == MAX_CAPACITY) {
+			throw new IllegalStateException(
+					String.format("The tree can't hold more than %d nodes.", (int) (MAX_CAPACITY * LOAD_FACTOR)));
+		}
+		LongBuffer[] oldKeys = keys;
+		IntBuffer oldValues = values;
+		int oldCapacity = capacity;
+		allocate(capacity << 1);
+		int mask = capacity - 1;
+		for (int x = 0; x < oldCapacity; x++) {
+			int value = oldValues.get(x);
+			if (value != 0) {
+				long key = oldKeys[x >>> keyBufferShift].get(x & keyBufferMask);
+				int slot = hash(key) & mask;
+				while (values.get(slot) != 0) {
+					slot = (slot + 1) & mask;
+				}
+				putKey(slot, key);
+				values.put(slot, value);
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		this.capacity = capacity;
+		int bufferSlots = Math.min(capacity, keyBufferMask + 1);
+		keys = new LongBuffer[capacity / bufferSlots];
+		for (int x = 0; x < keys.length; x++) {
+			keys[x] = offHeap ? ByteBuffer.allocateDirect(bufferSlots * Long.BYTES).asLongBuffer()
+					: LongBuffer.allocate(bufferSlots);
+		}
+		// 2^28 ints fit a single buffer
+		values = offHeap ? ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer()
+				: IntBuffer.allocate(capacity);
+	}
+
+	private long keyAt(int slot) {
+		return keys[slot >>> keyBufferShift].get(slot & keyBufferMask);
+	}
+
+	private void putKey(int slot, long key) {
+		keys[slot >>> keyBufferShift].put(slot & keyBufferMask, key);
+	}
+
+	private static int tableSizeFor(int expectedNodes) {
+		long needed = (long) Math.ceil(Math.max(expectedNodes, 1) / LOAD_FACTOR);
+		int size = Integer.highestOneBit((int) Math.min(needed, MAX_CAPACITY));
+		return size < needed ? Math.min(size << 1, MAX_CAPACITY) : size;
+	}
+
+	private static long key(int parent, int segment) {
+		return ((long) parent << 32) | (segment & 0xFFFFFFFFL);
+	}
+
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	/**
+	 * Assigns an int id to each distinct segment.
+	 */
+	private static class SegmentDictionary {
+
+		private String[] table = new String[1 << 10];
+
+		private int[] ids = new int[1 << 10];
+
+		private int size;
+
+		private long characters;
+
+		int intern(String segment) {
+			int mask = table.length - 1;
+			int slot = segment.hashCode() & mask;
+			while (table[slot] != null) {
+				if (table[slot].equals(segment)) {
+					return ids[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = segment;
+			ids[slot] = size;
+			characters += segment.length();
+			if (++size > table.length * LOAD_FACTOR) {
+				rehash();
+			}
+			return size - 1;
+		}
+
+		int size() {
+			return size;
+		}
+
+		long getMemoryUsage() {
+			return (long) table.length * (4 + Integer.BYTES) + (long) size * STRING_OVERHEAD + characters * 2;
+		}
+
+		private void rehash() {
+			String[] oldTable = table;
+			int[] oldIds = ids;
+			table = new String[oldTable.length << 1];
+			ids = new int[oldIds.length << 1];
+			int mask = table.length - 1;
+			for (int x = 0; x < oldTable.length; x++) {
+				if (oldTable[x] != null) {
+					int slot = oldTable[x].hashCode() & mask;
+					while (table[slot] != null) {
+						slot = (slot + 1) & mask;
+					}
+					table[slot] = oldTable[x];
+					ids[slot] = oldIds[x];
+				}
+			}
+		}
+	}
+}
@@ -1,17 +1,18 @@
 package com.rocketinsights.core.tree;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 public class Node {
 	private String value;
-	private List<Node> children;
+	private Map<String, Node> children;
 	private Node parent;
 
 	public Node() {
 		super();
-		children = new ArrayList<>();
+		children = new HashMap<>();
 	}
 
 	public Node(String value) {
@@ -23,12 +24,20 @@ public class Node {
 		return this.parent;
 	}
 
-	public List<Node> getChildren() {
-		return this.children;
+	public Collection<Node> getChildren() {
+		return this.children.values();
+	}
+
+	/**
+	 * @param value the value of the child
+	 * @return the child with the given value, or null if there is none
+	 */
+	public Node getChild(String value) {
+		return children.get(value);
 	}
 
 	public int getNumberOfChildren() {
-		return getChildren().size();
+		return children.size();
 	}
 
 	public boolean hasChildren() {
@@ -37,7 +46,7 @@ public class Node {
 
 	public void addChild(Node child) {
 		child.parent = this;
-		children.add(child);
+		children.put(child.value, child);
 	}
 
 	public String getValue() {
@@ -0,0 +1,24 @@
+package com.rocketinsights.core.tree;
+
+import java.util.List;
+
+/**
+ * Models a structure that keeps track of the properties' paths found while
+ * parsing, in order to detect collisions among them.
+ * 
+ * @author fbonecco
+ *
+ */
+public interface PathTree {
+
+	/**
+	 * Adds a property path. In case there is a property-collision, the path is
+	 * not added and the method returns false. For example, given the property
+	 * a.b.c is already stored, adding the property a.b will fail thus returning
+	 * false, and so will adding a.b.c.d.
+	 * 
+	 * @param path the segments of the property's path
+	 * @return true if the path was added
+	 */
+	public boolean add(List<String> path);
+}
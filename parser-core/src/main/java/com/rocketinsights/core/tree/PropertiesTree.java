@@ -1,5 +1,8 @@
 package com.rocketinsights.core.tree;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Auxiliary data structure that can be used while parsing properties files. It
  * builds a N-tree of nodes. Each level of a node represents a part on
@@ -8,15 +11,21 @@ package com.rocketinsights.core.tree;
  * 
  * a -> b -> c,d
  * 
+ * Children are indexed by value, so adding a property costs O(depth) no matter
+ * how many siblings each level has.
+ * 
  * @author fbonecco
  *
  */
-public class PropertiesTree {
+public class PropertiesTree implements PathTree {
+
+	private static final String ROOT_NODE = "root";
 
 	private Node root;
 
 	public PropertiesTree() {
 		super();
+		this.root = new Node(ROOT_NODE);
 	}
 
 	public Node getRoot() {
@@ -28,37 +37,46 @@ public class PropertiesTree {
 	}
 
 	/**
-	 * Adds a node to this tree. In case there is a property-collision, the Node is
-	 * not added and the method returns false. For example, given the property a.b.c
-	 * is already stored, adding the property a.b will fail thus returning false.
+	 * Adds a chain of nodes to this tree. Each node of the chain is expected to
+	 * have at most one child. See {@link #add(List)}.
 	 * 
 	 * @param node
 	 * @return true if the node was added
 	 */
 	public boolean add(Node node) {
-		return auxAdd(node, root);
+		List<String> path = new ArrayList<>();
+		for (Node current = node; current != null; current = current.hasChildren()
+				? current.getChildren().iterator().next()
+				: null) {
+			path.add(current.getValue());
+		}
+		return add(path);
 	}
 
-	private boolean auxAdd(Node node, Node parent) {
-		if (!parent.getChildren().contains(node)) {
-			parent.addChild(node);
-			return true;
-		} else {
-			int i = parent.getChildren().indexOf(node);
-			parent = parent.getChildren().get(i);
-			if (!parent.hasChildren() && !node.hasChildren()) {
-				return false;
-			} else if (node.hasChildren()) {
-				if (parent.hasChildren()) {
-					return auxAdd(node.getChildren().get(0), parent);
-				} else {
-					return false;
+	/**
+	 * Adds a property path to this tree. Nodes are only created for the segments
+	 * that are not stored yet. See {@link PathTree#add(List)}.
+	 */
+	@Override
+	public boolean add(List<String> path) {
+		Node parent = root;
+		int depth = path.size();
+		for (int x = 0; x < depth; x++) {
+			Node child = parent.getChild(path.get(x));
+			if (child == null) {
+				for (; x < depth; x++) {
+					child = new Node(path.get(x));
+					parent.addChild(child);
+					parent = child;
 				}
-			} else if (parent.getChildren().size() != node.getChildren().size()) {
-				return false;
-			} else {
+				return true;
+			}
+			if (x == depth - 1 || !child.hasChildren()) {
+				// either the path is a prefix of a stored one or the other way around
 				return false;
 			}
+			parent = child;
 		}
+		return false;
 	}
 }
@@ -0,0 +1,48 @@
+package com.rocketinsights.core.tree;
+
+import java.util.List;
+
+import com.rocketinsights.core.exception.InvalidFormatException;
+
+/**
+ * A {@link PathTree} for inputs sorted by key path. When paths arrive in order,
+ * a path can only collide with the one right before it (a.b is immediately
+ * followed by a.b.c, if present), so only the last path is kept and memory
+ * stays O(depth) no matter how many paths are added.
+ * 
+ * Paths are expected in ascending order, comparing them segment by segment.
+ * If a path out of order is found, an {@link InvalidFormatException} is thrown,
+ * as collisions can no longer be detected.
+ * 
+ * @author fbonecco
+ *
+ */
+public class SortedPathValidator implements PathTree {
+
+	private List<String> previous;
+
+	@Override
+	public boolean add(List<String> path) {
+		if (path.isEmpty()) {
+			return false;
+		}
+		if (previous != null) {
+			int depth = Math.min(previous.size(), path.size());
+			int x = 0;
+			while (x < depth && previous.get(x).equals(path.get(x))) {
+				x++;
+			}
+			if (x == depth) {
+				// either the same path or one is a prefix of the other
+				return false;
+			}
+			if (previous.get(x).compareTo(path.get(x)) > 0) {
+				throw new InvalidFormatException(String.format(
+						"The property path %s is out of order, it should come before %s. The input is expected to be sorted by key.",
+						path, previous));
+			}
+		}
+		previous = path;
+		return true;
+	}
+}
@@ -0,0 +1,130 @@
+package com.rocketinsights.core.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.rocketinsights.core.event.EventCursor;
+import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.SymbolTable;
+import com.rocketinsights.core.exception.ProcessingException;
+import com.rocketinsights.core.file.StreamProvider;
+import com.rocketinsights.core.reader.JsonFileReader;
+
+/**
+ * Compares reading a JSON file with {@link JsonFileReader}, which tokenizes
+ * its bytes directly, against the gson {@link JsonReader} it used to be built
+ * on, decoding every name and value in both cases. Files of several GB can be
+ * measured by passing a larger size, e.g. <code>-p megabytes=4096</code>. Run
+ * it from the parser-core module with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=JsonFileReaderBenchmark
+ * </pre>
+ *
+ * @author fbonecco
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonFileReaderBenchmark {
+
+	@Param({ "64" })
+	public int megabytes;
+
+	private Path file;
+
+	@Setup
+	public void setUp() throws IOException {
+		file = Files.createTempFile("benchmark", ".json");
+		long size = megabytes * 1024L * 1024;
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("{\"root\": [");
+			long written = 0;
+			for (int i = 0; written < size; i++) {
+				String record = String.format(
+						"%s{\"restaurant%d\": {\"name\": \"El Viejo Almac\\u00e9n %d\", \"location\": {\"neighborhood\": \"San Telmo\", \"phone\": \"4307-7388\"}}}",
+						i == 0 ? "" : ",\n", i % 500, i);
+				writer.write(record);
+				written += record.length();
+			}
+			writer.write("]}");
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public long scanner() throws IOException, ProcessingException {
+		long length = 0;
+		try (EventCursor cursor = new JsonFileReader(new StreamProvider()).open(file)) {
+			while (cursor.next()) {
+				if (EventType.VALUE_ADDED.equals(cursor.eventType())) {
+					length += cursor.data().length();
+				} else if (cursor.name() != null) {
+					length += cursor.name().length();
+				}
+			}
+		}
+		return length;
+	}
+
+	@Benchmark
+	public long gson() throws IOException {
+		long length = 0;
+		SymbolTable symbols = new SymbolTable();
+		try (JsonReader reader = new JsonReader(
+				new InputStreamReader(new StreamProvider().readContents(file), StandardCharsets.UTF_8))) {
+			JsonToken token;
+			while ((token = reader.peek()) != JsonToken.END_DOCUMENT) {
+				switch (token) {
+				case BEGIN_OBJECT:
+					reader.beginObject();
+					break;
+				case END_OBJECT:
+					reader.endObject();
+					break;
+				case BEGIN_ARRAY:
+					reader.beginArray();
+					break;
+				case END_ARRAY:
+					reader.endArray();
+					break;
+				case NAME:
+					length += symbols.name(symbols.intern(reader.nextName())).length();
+					break;
+				default:
+					length += reader.nextString().length();
+					break;
+				}
+			}
+		}
+		return length;
+	}
+}
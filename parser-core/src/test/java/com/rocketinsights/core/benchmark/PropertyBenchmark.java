@@ -0,0 +1,64 @@
+package com.rocketinsights.core.benchmark;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocketinsights.core.domain.Property;
+
+/**
+ * Compares {@link Property#of(String)} against the regex it used to be built
+ * on. Run it from the parser-core module with:
+ * 
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=PropertyBenchmark
+ * </pre>
+ * 
+ * @author fbonecco
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyBenchmark {
+
+	private static final Pattern LEGACY_PATTERN = Pattern
+			.compile("^(?!.*?\\.\\.)([\\w\\.]+?)(?<!\\.)(?<!\\.{2,})\\s*=\\s*\\\"([^\\\"]+?)\\\"\\s*$");
+
+	@Param({ "carriers = \"Telecom Personal\"",
+			"restaurants.viejoalmacen.location.neighborhood = \"San Telmo\"",
+			"a.very.deeply.nested.property.key.with.many.segments.in.it = \"some rather long value, long enough to be realistic\"" })
+	public String line;
+
+	@Benchmark
+	public Property scanner() {
+		return Property.of(line);
+	}
+
+	@Benchmark
+	public Object regex() {
+		Matcher matcher = LEGACY_PATTERN.matcher(line);
+		if (matcher.matches()) {
+			List<String> path = Collections.unmodifiableList(Arrays.asList(matcher.group(1).split("\\.")));
+			return new Object[] { path, matcher.group(2) };
+		}
+		throw new IllegalArgumentException(line);
+	}
+}
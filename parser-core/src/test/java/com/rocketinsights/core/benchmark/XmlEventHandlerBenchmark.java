@@ -0,0 +1,114 @@
+package com.rocketinsights.core.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.handler.XmlEventHandler;
+import com.sun.xml.txw2.output.IndentingXMLStreamWriter;
+
+/**
+ * Compares {@link XmlEventHandler} against the indenting
+ * {@link XMLStreamWriter} it used to be built on, for a deeply nested and for a
+ * wide, shallow document. Run it from the parser-core module with:
+ * 
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=XmlEventHandlerBenchmark
+ * </pre>
+ * 
+ * @author fbonecco
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlEventHandlerBenchmark {
+
+	@Param({ "deep", "wide" })
+	public String shape;
+
+	private List<Event> events;
+
+	@Setup
+	public void setup() {
+		events = new ArrayList<>();
+		events.add(new Event(EventType.DOC_STARTED));
+		if ("deep".equals(shape)) {
+			for (int document = 0; document < 100; document++) {
+				for (int i = 0; i < 100; i++) {
+					events.add(new Event(EventType.NODE_OPENED, "level" + i, null));
+				}
+				events.add(new Event(EventType.VALUE_ADDED, null, "Av. Paseo Colón 505"));
+				for (int i = 0; i < 100; i++) {
+					events.add(new Event(EventType.NODE_CLOSED, "level" + i, null));
+				}
+			}
+		} else {
+			for (int i = 0; i < 10000; i++) {
+				events.add(new Event(EventType.NODE_OPENED, "restaurant" + i, null));
+				events.add(new Event(EventType.NODE_OPENED, "name", null));
+				events.add(new Event(EventType.VALUE_ADDED, null, "El Viejo Almacén & Co."));
+				events.add(new Event(EventType.NODE_CLOSED, "name", null));
+				events.add(new Event(EventType.NODE_CLOSED, "restaurant" + i, null));
+			}
+		}
+		events.add(new Event(EventType.DOC_ENDED));
+	}
+
+	@Benchmark
+	public XmlEventHandler emitter() throws Exception {
+		XmlEventHandler handler = new XmlEventHandler(NullWriter.NULL_WRITER);
+		for (Event event : events) {
+			handler.handle(event);
+		}
+		return handler;
+	}
+
+	@Benchmark
+	public XMLStreamWriter streamWriter() throws XMLStreamException {
+		IndentingXMLStreamWriter streamWriter = new IndentingXMLStreamWriter(
+				XMLOutputFactory.newInstance().createXMLStreamWriter(NullWriter.NULL_WRITER));
+		streamWriter.setIndentStep("\t");
+		for (Event event : events) {
+			switch (event.getEventType()) {
+			case DOC_STARTED:
+				streamWriter.writeStartDocument("UTF-8", "1.0");
+				streamWriter.writeStartElement("root");
+				break;
+			case NODE_OPENED:
+				streamWriter.writeStartElement(event.getName());
+				break;
+			case VALUE_ADDED:
+				streamWriter.writeCharacters(event.getData());
+				break;
+			default:
+				streamWriter.writeEndElement();
+				break;
+			}
+		}
+		streamWriter.flush();
+		return streamWriter;
+	}
+}
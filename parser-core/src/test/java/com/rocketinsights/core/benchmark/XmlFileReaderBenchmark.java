@@ -0,0 +1,101 @@
+package com.rocketinsights.core.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocketinsights.core.event.EventCursor;
+import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.exception.ProcessingException;
+import com.rocketinsights.core.file.StreamProvider;
+import com.rocketinsights.core.reader.XmlFileReader;
+
+/**
+ * Compares reading a XML file with the scanner {@link XmlFileReader} uses by
+ * default against reading it through StAX only, decoding every name and value
+ * in both cases. Files of several GB can be measured by passing a larger size,
+ * e.g. <code>-p megabytes=4096</code>. Run it from the parser-core module with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=XmlFileReaderBenchmark
+ * </pre>
+ *
+ * @author fbonecco
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlFileReaderBenchmark {
+
+	@Param({ "64" })
+	public int megabytes;
+
+	private Path file;
+
+	@Setup
+	public void setUp() throws IOException {
+		file = Files.createTempFile("benchmark", ".xml");
+		long size = megabytes * 1024L * 1024;
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>\n");
+			long written = 0;
+			for (int i = 0; written < size; i++) {
+				String record = String.format(
+						"  <restaurant%d id=\"%d\">\n    <name>El Viejo Almac\u00e9n &amp; Co. %d</name>\n    <location>\n      <neighborhood>San Telmo</neighborhood>\n      <phone>4307-7388</phone>\n    </location>\n  </restaurant%d>\n",
+						i % 500, i, i, i % 500);
+				writer.write(record);
+				written += record.length();
+			}
+			writer.write("</root>\n");
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public long scanner() throws IOException, ProcessingException {
+		return read(new XmlFileReader(new StreamProvider()));
+	}
+
+	@Benchmark
+	public long stax() throws IOException, ProcessingException {
+		return read(new XmlFileReader(new StreamProvider(), false));
+	}
+
+	private long read(XmlFileReader reader) throws IOException, ProcessingException {
+		long length = 0;
+		try (EventCursor cursor = reader.open(file)) {
+			while (cursor.next()) {
+				if (EventType.VALUE_ADDED.equals(cursor.eventType())) {
+					length += cursor.data().length();
+				} else if (cursor.name() != null) {
+					length += cursor.name().length();
+				}
+			}
+		}
+		return length;
+	}
+}
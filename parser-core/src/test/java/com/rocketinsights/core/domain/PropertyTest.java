@@ -1,17 +1,28 @@
 package com.rocketinsights.core.domain;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.junit.Test;
 
+import com.rocketinsights.core.event.SymbolTable;
 import com.rocketinsights.core.exception.InvalidFormatException;
 
 public class PropertyTest {
 
+	// the regex Property.of was originally built on, kept to check both agree
+	private static final Pattern LEGACY_PATTERN = Pattern
+			.compile("^(?!.*?\\.\\.)([\\w\\.]+?)(?<!\\.)(?<!\\.{2,})\\s*=\\s*\\\"([^\\\"]+?)\\\"\\s*$");
+
 	@Test
 	public void testOf_validProperty() {
 		List<String> path = new LinkedList<>();
@@ -27,6 +38,20 @@ public class PropertyTest {
 
 	}
 
+	@Test
+	public void testOf_internedPath() {
+		SymbolTable symbols = new SymbolTable();
+
+		Property name = Property.of("carriers.personal.name = \"Telecom Personal\"", symbols);
+		Property country = Property.of("carriers.personal.country = \"Argentina\"", symbols);
+
+		assertThat(country.getPath(), is(equalTo(Arrays.asList("carriers", "personal", "country"))));
+		assertThat(country.getPath().get(0), is(sameInstance(name.getPath().get(0))));
+		assertThat(country.getSymbols()[1], is(equalTo(name.getSymbols()[1])));
+		assertThat(symbols.name(country.getSymbols()[2]), is(equalTo("country")));
+		assertThat(Property.of("carriers = \"Personal\"").getSymbols(), is(nullValue()));
+	}
+
 	@Test
 	public void testOf_validPropert2y() {
 		List<String> path = new LinkedList<>();
@@ -66,4 +91,29 @@ public class PropertyTest {
 		Property.of("carriers. = \"Telecom Personal\"");
 	}
 
+	@Test
+	public void testOf_sameResultsAsLegacyRegex() {
+		List<String> lines = Arrays.asList("a = \"b\"", "a=\"b\"", "a.b.c = \"x y z\"  ", "a.b\t=\t\"c\"\t",
+				".a = \"b\"", "a_1.B2 = \"c\"", "a = \"b..c\"", "a = \"b.c.\"", "a = \"b\nc\"", "a = \"b\n..c\"",
+				"a\n= \"b..c\"", "a = \"\"", "a = \"b\" c", "a = \"b\"\"", "a = b", " a = \"b\"", "a. = \"b\"",
+				". = \"b\"", "a..b = \"c\"", "a = \"b\"\n", "a = \"b\"\u0085", "a-b = \"c\"", "\u00e1 = \"b\"",
+				"a = \"\u00e1..\"", "a == \"b\"", "= \"b\"", "a = \"b", "");
+
+		for (String line : lines) {
+			Matcher matcher = LEGACY_PATTERN.matcher(line);
+			boolean expected = matcher.matches();
+			Property property = null;
+			try {
+				property = Property.of(line);
+			} catch (InvalidFormatException e) {
+				// rejected
+			}
+			assertThat(line, property != null, is(equalTo(expected)));
+			if (expected) {
+				assertThat(property.getPath(), is(equalTo(Arrays.asList(matcher.group(1).split("\\.")))));
+				assertThat(property.getValue(), is(equalTo(matcher.group(2))));
+			}
+		}
+	}
+
 }
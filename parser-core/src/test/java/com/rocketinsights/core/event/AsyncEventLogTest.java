@@ -0,0 +1,98 @@
+package com.rocketinsights.core.event;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.rocketinsights.core.exception.ProcessingException;
+
+public class AsyncEventLogTest {
+
+	private static final int EVENTS = 1_000;
+
+	@Test
+	public void testPush_inOrder() throws ProcessingException {
+		for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+			List<Event> expected = new ArrayList<>();
+			List<Event> handled = new ArrayList<>();
+			// a tiny buffer makes the producer wrap around and wait all the time
+			try (AsyncEventLog eventLog = new AsyncEventLog(16, waitStrategy)) {
+				eventLog.addHandler(event -> handled.add(new Event(event.getEventType(), event.getName(),
+						event.getSymbol(), event.getData())));
+				for (int i = 0; i < EVENTS; i++) {
+					Event event = i % 2 == 0 ? new Event(EventType.NODE_OPENED, "node" + i, i, null)
+							: new Event(EventType.VALUE_ADDED, null, "value" + i);
+					expected.add(event);
+					eventLog.push(event);
+				}
+			}
+
+			assertThat(handled, is(equalTo(expected)));
+		}
+	}
+
+	@Test
+	public void testPush_handlerFailure() {
+		AsyncEventLog eventLog = new AsyncEventLog(4, WaitStrategy.YIELDING);
+		eventLog.addHandler(event -> {
+			if ("boom".equals(event.getData())) {
+				throw new IOException("Disk full");
+			}
+		});
+
+		try {
+			try {
+				eventLog.push(new Event(EventType.VALUE_ADDED, null, "boom"));
+				for (int i = 0; i < EVENTS; i++) {
+					eventLog.push(new Event(EventType.VALUE_ADDED, null, "value"));
+				}
+			} finally {
+				eventLog.close();
+			}
+			fail("the handler failure should have been thrown back");
+		} catch (ProcessingException e) {
+			assertThat(e.getCause(), is(instanceOf(IOException.class)));
+			assertThat(e.getSuppressed().length, is(equalTo(0)));
+		}
+	}
+
+	@Test
+	public void testClose_handlerFailure() throws ProcessingException {
+		AsyncEventLog eventLog = new AsyncEventLog(16, WaitStrategy.SLEEPING);
+		eventLog.addHandler(event -> {
+			throw new IllegalStateException("Nesting problem.");
+		});
+		eventLog.push(new Event(EventType.DOC_STARTED));
+
+		try {
+			eventLog.close();
+			fail("the handler failure should have been thrown back");
+		} catch (ProcessingException e) {
+			assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+		}
+		// reported once
+		eventLog.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddHandler_afterPush() throws ProcessingException {
+		try (AsyncEventLog eventLog = new AsyncEventLog()) {
+			eventLog.push(new Event(EventType.DOC_STARTED));
+			eventLog.addHandler(event -> {
+			});
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCapacity() {
+		new AsyncEventLog(100, WaitStrategy.BUSY_SPIN);
+	}
+}
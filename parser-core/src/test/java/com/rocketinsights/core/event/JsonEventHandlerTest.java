@@ -3,11 +3,14 @@ package com.rocketinsights.core.event;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.isA;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 
@@ -46,6 +49,8 @@ public class JsonEventHandlerTest {
 
 			underTest.handle(new Event(EventType.DOC_STARTED));
 			underTest.handle(new Event(EventType.NODE_OPENED, "carriers", null));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "carriers", null));
+			underTest.handle(new Event(EventType.DOC_ENDED));
 
 		} catch (ProcessingException e) {
 			ex = e;
@@ -101,6 +106,90 @@ public class JsonEventHandlerTest {
 		}
 	}
 
+	@Test
+	public void test_handleFragments() throws IOException, ProcessingException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Writer writer = new OutputStreamWriter(out, "UTF-8")) {
+			underTest = new JsonEventHandler(writer);
+
+			underTest.handle(new Event(EventType.DOC_STARTED));
+			underTest.handle(new Event(EventType.NODE_OPENED, "carriers", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "personal", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "name", null));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "Telecom \"", true));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "Personal\""));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "name", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "country", null));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "Argentina"));
+			// consecutive values are joined, fragments included
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "Uru", true));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "guay"));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "country", null));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "personal", null));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "carriers", null));
+			underTest.handle(new Event(EventType.DOC_ENDED));
+
+			writer.flush();
+			JsonParser parser = new JsonParser();
+			JsonElement expected = parser.parse(
+					"{\"root\": [{\"carriers\": [{\"personal\": {\"name\": \"Telecom \\\"Personal\\\"\", \"country\": \"ArgentinaUruguay\"}}]}]}");
+			assertThat(parser.parse(new String(out.toByteArray(), "UTF-8")), is(equalTo(expected)));
+		}
+	}
+
+	@Test
+	public void test_handleJoinedValues() throws IOException, ProcessingException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Writer writer = new OutputStreamWriter(out, "UTF-8")) {
+			underTest = new JsonEventHandler(writer);
+
+			// <a><b>x &amp; y</b></a>, then {"c": ["p", "q"]}
+			underTest.handle(new Event(EventType.DOC_STARTED));
+			underTest.handle(new Event(EventType.NODE_OPENED, "a", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "b", null));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "x "));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "&"));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, " y"));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "b", null));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "a", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "c", null));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "p"));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "q"));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "c", null));
+			underTest.handle(new Event(EventType.DOC_ENDED));
+
+			writer.flush();
+			JsonParser parser = new JsonParser();
+			JsonElement expected = parser.parse("{\"root\": [{\"a\": [{\"b\": \"x & y\"}]}, {\"c\": \"pq\"}]}");
+			assertThat(parser.parse(new String(out.toByteArray(), "UTF-8")), is(equalTo(expected)));
+		}
+	}
+
+	@Test
+	public void test_handleMixedContent() throws IOException {
+		// a value before a nested node, and after one
+		for (boolean valueFirst : new boolean[] { true, false }) {
+			underTest = new JsonEventHandler(new StringWriter());
+			try {
+				underTest.handle(new Event(EventType.DOC_STARTED));
+				underTest.handle(new Event(EventType.NODE_OPENED, "root", null));
+				underTest.handle(new Event(EventType.NODE_OPENED, "a", null));
+				if (valueFirst) {
+					underTest.handle(new Event(EventType.VALUE_ADDED, null, "x"));
+				}
+				underTest.handle(new Event(EventType.NODE_OPENED, "b", null));
+				underTest.handle(new Event(EventType.VALUE_ADDED, null, "y"));
+				underTest.handle(new Event(EventType.NODE_CLOSED, "b", null));
+				if (!valueFirst) {
+					underTest.handle(new Event(EventType.VALUE_ADDED, null, "x"));
+				}
+				fail("a node holds both a value and another node");
+			} catch (ProcessingException e) {
+				assertThat(e.getCause(), is(nullValue()));
+			}
+		}
+	}
+
 	@Test
 	public void test_handleJson2() throws UnsupportedEncodingException, IOException, ProcessingException {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -235,6 +324,61 @@ public class JsonEventHandlerTest {
 		}
 	}
 
+	@Test
+	public void test_handleJsonExactOutput() throws UnsupportedEncodingException, IOException, ProcessingException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Writer writer = new OutputStreamWriter(out, "UTF-8")) {
+			underTest = new JsonEventHandler(writer);
+
+			// a.b.c = "x<y & z"
+			// a.b.d.e = "1"
+			underTest.handle(new Event(EventType.DOC_STARTED));
+			underTest.handle(new Event(EventType.NODE_OPENED, "a", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "b", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "c", null));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "x<y & z"));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "c", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "d", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "e", null));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "1"));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "e", null));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "d", null));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "b", null));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "a", null));
+			underTest.handle(new Event(EventType.DOC_ENDED));
+
+			writer.flush();
+			String expected = "{\n  \"root\": [\n    {\n      \"a\": [\n        {\n          \"b\": {\n"
+					+ "            \"c\": \"x\\u003cy \\u0026 z\",\n            \"d\": {\n              \"e\": \"1\"\n"
+					+ "            }\n          }\n        }\n      ]\n    }\n  ]\n}";
+			assertThat(new String(out.toByteArray(), "UTF-8"), is(equalTo(expected)));
+		}
+	}
+
+	@Test
+	public void test_handleJsonWritesAsEventsArrive()
+			throws UnsupportedEncodingException, IOException, ProcessingException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Writer writer = new OutputStreamWriter(out, "UTF-8")) {
+			underTest = new JsonEventHandler(writer);
+
+			underTest.handle(new Event(EventType.DOC_STARTED));
+			underTest.handle(new Event(EventType.NODE_OPENED, "carriers", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "personal", null));
+			for (int i = 0; i < 1000; i++) {
+				underTest.handle(new Event(EventType.NODE_OPENED, "name" + i, null));
+				underTest.handle(new Event(EventType.VALUE_ADDED, null, "Telecom Personal"));
+				underTest.handle(new Event(EventType.NODE_CLOSED, "name" + i, null));
+			}
+
+			writer.flush();
+			// only a bounded block is buffered, nodes still open are already written
+			String written = new String(out.toByteArray(), "UTF-8");
+			assertThat(written.contains("\"carriers\": ["), is(true));
+			assertThat(written.contains("\"name0\": \"Telecom Personal\""), is(true));
+		}
+	}
+
 	private String getFileContents(String path) throws IOException {
 		return FileUtils.readFileToString(FileUtils.toFile(getClass().getClassLoader().getResource(path)), "UTF-8");
 	}
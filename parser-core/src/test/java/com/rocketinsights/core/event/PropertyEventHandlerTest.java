@@ -8,14 +8,17 @@ import static org.junit.Assert.assertThat;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import com.rocketinsights.core.event.handler.PropertyEventHandler;
+import com.rocketinsights.core.event.handler.Utf8Writer;
 import com.rocketinsights.core.exception.ProcessingException;
 
 public class PropertyEventHandlerTest {
@@ -81,6 +84,31 @@ public class PropertyEventHandlerTest {
 		}
 	}
 
+	@Test
+	public void test_fragments() throws IOException, ProcessingException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Writer writer = new OutputStreamWriter(out, "UTF-8")) {
+			underTest = new PropertyEventHandler(writer);
+
+			underTest.handle(new Event(EventType.DOC_STARTED));
+			underTest.handle(new Event(EventType.NODE_OPENED, "carriers", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "name", null));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "Telecom ", true));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "Pers", true));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "onal"));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "name", null));
+			underTest.handle(new Event(EventType.NODE_OPENED, "country", null));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "Argentina"));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "country", null));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "carriers", null));
+			underTest.handle(new Event(EventType.DOC_ENDED));
+
+			writer.flush();
+			assertThat(new String(out.toByteArray()),
+					is(equalTo("carriers.name = \"Telecom Personal\"\ncarriers.country = \"Argentina\"")));
+		}
+	}
+
 	@Test
 	public void test_properties2() throws UnsupportedEncodingException, IOException, ProcessingException {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -189,4 +217,64 @@ public class PropertyEventHandlerTest {
 			assertThat(new String(out.toByteArray()), is(equalTo(expected.toString())));
 		}
 	}
+
+	@Test
+	public void test_properties_deep() throws IOException, ProcessingException {
+		StringWriter writer = new StringWriter();
+		underTest = new PropertyEventHandler(writer);
+
+		StringBuilder key = new StringBuilder();
+		underTest.handle(new Event(EventType.DOC_STARTED));
+		for (int i = 0; i < 200; i++) {
+			key.append(i > 0 ? "." : "").append("level").append(i);
+			underTest.handle(new Event(EventType.NODE_OPENED, "level" + i, null));
+		}
+		for (int i = 0; i < 3; i++) {
+			underTest.handle(new Event(EventType.NODE_OPENED, "leaf" + i, null));
+			underTest.handle(new Event(EventType.VALUE_ADDED, null, "value" + i));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "leaf" + i, null));
+		}
+		for (int i = 199; i >= 0; i--) {
+			underTest.handle(new Event(EventType.NODE_CLOSED, "level" + i, null));
+		}
+		underTest.handle(new Event(EventType.NODE_OPENED, "carriers", null));
+		underTest.handle(new Event(EventType.VALUE_ADDED, null, "Telecom Personal"));
+		underTest.handle(new Event(EventType.NODE_CLOSED, "carriers", null));
+		underTest.handle(new Event(EventType.DOC_ENDED));
+
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 3; i++) {
+			expected.append(key).append(".leaf").append(i).append(" = \"value").append(i).append("\"\n");
+		}
+		expected.append("carriers = \"Telecom Personal\"");
+		assertThat(writer.toString(), is(equalTo(expected.toString())));
+	}
+
+	@Test
+	public void test_properties_symbols() throws IOException, ProcessingException {
+		ByteArrayOutputStream utf8 = new ByteArrayOutputStream();
+		StringWriter chars = new StringWriter();
+		try (Writer writer = new Utf8Writer(utf8)) {
+			for (Writer out : new Writer[] { writer, chars }) {
+				underTest = new PropertyEventHandler(out);
+
+				// the symbols are numbered again on every document
+				for (String[] names : new String[][] { { "año", "línea" }, { "país", "ciudad" } }) {
+					underTest.handle(new Event(EventType.DOC_STARTED));
+					underTest.handle(new Event(EventType.NODE_OPENED, names[0], 0, null));
+					for (int i = 0; i < 2; i++) {
+						underTest.handle(new Event(EventType.NODE_OPENED, names[1], 1, null));
+						underTest.handle(new Event(EventType.VALUE_ADDED, null, "v" + i));
+						underTest.handle(new Event(EventType.NODE_CLOSED, names[1], 1, null));
+					}
+					underTest.handle(new Event(EventType.NODE_CLOSED, names[0], 0, null));
+					underTest.handle(new Event(EventType.DOC_ENDED));
+				}
+			}
+		}
+
+		String expected = "año.línea = \"v0\"\naño.línea = \"v1\"país.ciudad = \"v0\"\npaís.ciudad = \"v1\"";
+		assertThat(new String(utf8.toByteArray(), StandardCharsets.UTF_8), is(equalTo(expected)));
+		assertThat(chars.toString(), is(equalTo(expected)));
+	}
 }
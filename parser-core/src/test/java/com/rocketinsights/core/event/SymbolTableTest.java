@@ -0,0 +1,56 @@
+package com.rocketinsights.core.event;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class SymbolTableTest {
+
+	@Test
+	public void testIntern_sameNameSameSymbol() {
+		SymbolTable table = new SymbolTable();
+
+		int carriers = table.intern("carriers");
+		int personal = table.intern("personal");
+
+		assertThat(table.intern(new String("carriers")), is(equalTo(carriers)));
+		assertThat(personal, is(not(equalTo(carriers))));
+		assertThat(table.name(carriers), is(equalTo("carriers")));
+		assertThat(table.size(), is(equalTo(2)));
+	}
+
+	@Test
+	public void testIntern_range() {
+		SymbolTable table = new SymbolTable();
+		String line = "carriers.personal.name = \"Telecom Personal\"";
+
+		int personal = table.intern(line, 9, 17);
+
+		assertThat(table.name(personal), is(equalTo("personal")));
+		assertThat(table.intern("personal"), is(equalTo(personal)));
+		assertThat(table.intern(line, 9, 17), is(equalTo(personal)));
+		assertThat(table.name(table.intern(line, 9, 17)), is(sameInstance(table.name(personal))));
+	}
+
+	@Test
+	public void testIntern_manyNames() {
+		SymbolTable table = new SymbolTable();
+		for (int x = 0; x < 10000; x++) {
+			assertThat(table.intern("node" + x), is(equalTo(x)));
+		}
+		for (int x = 0; x < 10000; x++) {
+			assertThat(table.intern("node" + x), is(equalTo(x)));
+			assertThat(table.name(x), is(equalTo("node" + x)));
+		}
+		assertThat(table.size(), is(equalTo(10000)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testName_unknownSymbol() {
+		new SymbolTable().name(0);
+	}
+}
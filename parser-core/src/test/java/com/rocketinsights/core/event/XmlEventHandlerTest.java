@@ -8,16 +8,16 @@ import static org.junit.Assert.assertThat;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 
-import javax.xml.stream.XMLStreamException;
-
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.rocketinsights.core.event.handler.XmlEmitter;
 import com.rocketinsights.core.event.handler.XmlEventHandler;
 import com.rocketinsights.core.exception.ProcessingException;
 
@@ -35,7 +35,7 @@ public class XmlEventHandlerTest {
 	@Test
 	public void testRead_ioError() throws IOException, ProcessingException {
 		exceptionRule.expect(ProcessingException.class);
-		exceptionRule.expectCause(isA(XMLStreamException.class));
+		exceptionRule.expectCause(isA(IOException.class));
 
 		ProcessingException ex = null;
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -46,6 +46,8 @@ public class XmlEventHandlerTest {
 
 			underTest.handle(new Event(EventType.DOC_STARTED));
 			underTest.handle(new Event(EventType.NODE_OPENED, "carriers", null));
+			underTest.handle(new Event(EventType.NODE_CLOSED, "carriers", null));
+			underTest.handle(new Event(EventType.DOC_ENDED));
 
 		} catch (ProcessingException e) {
 			ex = e;
@@ -164,6 +166,91 @@ public class XmlEventHandlerTest {
 		}
 	}
 
+	@Test
+	public void test_handleXml_exactOutput() throws IOException, ProcessingException {
+		StringWriter writer = new StringWriter();
+		underTest = new XmlEventHandler(writer);
+		underTest.handle(new Event(EventType.DOC_STARTED));
+		underTest.handle(new Event(EventType.NODE_OPENED, "carriers", null));
+		underTest.handle(new Event(EventType.NODE_OPENED, "personal", null));
+		underTest.handle(new Event(EventType.VALUE_ADDED, null, "AT&T <mobile>"));
+		underTest.handle(new Event(EventType.NODE_CLOSED, "personal", null));
+		underTest.handle(new Event(EventType.NODE_OPENED, "claro", null));
+		underTest.handle(new Event(EventType.NODE_CLOSED, "claro", null));
+		underTest.handle(new Event(EventType.NODE_CLOSED, "carriers", null));
+		underTest.handle(new Event(EventType.DOC_ENDED));
+
+		String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>\n\t<carriers>\n"
+				+ "\t\t<personal>AT&amp;T &lt;mobile&gt;</personal>\n\t\t<claro></claro>\n\t</carriers>\n</root>";
+		assertThat(writer.toString(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void test_handleXml_batch() throws IOException, ProcessingException {
+		Event[] events = new Event[] { new Event(EventType.VALUE_ADDED, null, "ignored"),
+				new Event(EventType.DOC_STARTED),
+				new Event(EventType.NODE_OPENED, "carriers", null),
+				new Event(EventType.NODE_OPENED, "personal", null),
+				new Event(EventType.VALUE_ADDED, null, "AT&T <mobile>"),
+				new Event(EventType.NODE_CLOSED, "personal", null),
+				new Event(EventType.NODE_OPENED, "claro", null),
+				new Event(EventType.NODE_CLOSED, "claro", null),
+				new Event(EventType.NODE_CLOSED, "carriers", null),
+				new Event(EventType.DOC_ENDED),
+				new Event(EventType.VALUE_ADDED, null, "ignored") };
+		StringWriter writer = new StringWriter();
+		underTest = new XmlEventHandler(writer);
+
+		underTest.handleBatch(events, 1, 4);
+		underTest.handleBatch(events, 4, events.length - 1);
+
+		String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>\n\t<carriers>\n"
+				+ "\t\t<personal>AT&amp;T &lt;mobile&gt;</personal>\n\t\t<claro></claro>\n\t</carriers>\n</root>";
+		assertThat(writer.toString(), is(equalTo(expected)));
+	}
+
+	@Test
+	public void test_handleXml_deepAndLong() throws IOException, ProcessingException {
+		int depth = 40;
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			value.append("value & more ");
+		}
+		StringWriter writer = new StringWriter();
+		XmlEmitter emitter = new XmlEmitter(writer, 16);
+		emitter.startDocument("1.0", "UTF-8");
+		emitter.startElement("root");
+		for (int i = 0; i < depth; i++) {
+			emitter.startElement("n" + i);
+		}
+		emitter.characters(value.toString());
+		for (int i = 0; i < depth; i++) {
+			emitter.endElement();
+		}
+		emitter.endElement();
+		emitter.flush();
+
+		StringBuilder expected = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>");
+		for (int i = 0; i < depth; i++) {
+			expected.append('\n');
+			for (int j = 0; j <= i; j++) {
+				expected.append('\t');
+			}
+			expected.append("<n").append(i).append('>');
+		}
+		expected.append(value.toString().replace("&", "&amp;"));
+		expected.append("</n").append(depth - 1).append('>');
+		for (int i = depth - 2; i >= 0; i--) {
+			expected.append('\n');
+			for (int j = 0; j <= i; j++) {
+				expected.append('\t');
+			}
+			expected.append("</n").append(i).append('>');
+		}
+		expected.append("\n</root>");
+		assertThat(writer.toString(), is(equalTo(expected.toString())));
+	}
+
 	private String getFileContents(String path) throws IOException {
 		return FileUtils.readFileToString(FileUtils.toFile(getClass().getClassLoader().getResource(path)), "UTF-8");
 	}
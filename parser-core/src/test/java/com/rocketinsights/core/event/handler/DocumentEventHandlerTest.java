@@ -0,0 +1,61 @@
+package com.rocketinsights.core.event.handler;
+
+import static org.hamcrest.CoreMatchers.isA;
+import static org.mockito.Mockito.when;
+
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.rocketinsights.core.event.EventCursor;
+import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.exception.ProcessingException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DocumentEventHandlerTest {
+
+	@Rule
+	public ExpectedException exceptionRule = ExpectedException.none();
+
+	@Mock
+	EventCursor cursor;
+
+	@Test
+	public void testHandle_cursorRuntimeError() throws ProcessingException {
+		exceptionRule.expect(ProcessingException.class);
+		exceptionRule.expectCause(isA(IllegalStateException.class));
+
+		when(cursor.eventType()).thenReturn(EventType.NODE_OPENED);
+		DocumentEventHandler underTest = new DocumentEventHandler(new StringWriter()) {
+
+			@Override
+			protected void handleDocumentStarted(Writer writer) {
+			}
+
+			@Override
+			protected void handleDocumentEnded(Writer writer) {
+			}
+
+			@Override
+			protected void handleNodeOpened(String name, int symbol, Writer writer) {
+				throw new IllegalStateException("Nesting problem.");
+			}
+
+			@Override
+			protected void handleNodeClosed(String name, int symbol, Writer writer) {
+			}
+
+			@Override
+			protected void handleValueAdded(String data, Writer writer) {
+			}
+		};
+
+		underTest.handle(cursor);
+	}
+}
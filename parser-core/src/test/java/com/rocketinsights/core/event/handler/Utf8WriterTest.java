@@ -0,0 +1,86 @@
+package com.rocketinsights.core.event.handler;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class Utf8WriterTest {
+
+	private static final String TEXT = "Av. Paseo Colón 505, 5€ 😀  ";
+
+	@Rule
+	public ExpectedException exceptionRule = ExpectedException.none();
+
+	@Test
+	public void testWrite_sameAsOutputStreamWriter() throws IOException {
+		// a small buffer makes characters straddle its end
+		for (int size = 4; size < 12; size++) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (Writer underTest = new Utf8Writer(out, size)) {
+				underTest.write(TEXT);
+				underTest.write(TEXT.toCharArray(), 3, 20);
+				underTest.write('ñ');
+			}
+
+			assertThat(out.toByteArray(), is(equalTo(encode(TEXT, TEXT.substring(3, 23), "ñ"))));
+		}
+	}
+
+	@Test
+	public void testWrite_malformedSurrogates() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Writer underTest = new Utf8Writer(out)) {
+			// a pair split across calls is still a pair
+			underTest.write("a\uD83D");
+			underTest.write("\uDE00b\uDE00c\uD83Dd");
+			underTest.write("\uD83D");
+		}
+
+		assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8), is(equalTo("a😀b?c?d?")));
+		assertThat(out.toByteArray(), is(equalTo(encode("a\uD83D", "\uDE00b\uDE00c\uD83Dd", "\uD83D"))));
+	}
+
+	@Test
+	public void testWriteUtf8() throws IOException {
+		byte[] bytes = "<Colón>".getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Utf8Writer underTest = new Utf8Writer(out, 4)) {
+			underTest.write("x");
+			underTest.writeUtf8(bytes, 1, bytes.length - 2);
+			underTest.write("y");
+			underTest.writeUtf8(bytes, 0, 1);
+		}
+
+		assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8), is(equalTo("xColóny<")));
+	}
+
+	@Test
+	public void testWrite_closed() throws IOException {
+		exceptionRule.expect(IOException.class);
+
+		Writer underTest = new Utf8Writer(new ByteArrayOutputStream());
+		underTest.close();
+		underTest.close();
+		underTest.write("a");
+	}
+
+	private static byte[] encode(String... parts) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+			for (String part : parts) {
+				writer.write(part);
+			}
+		}
+		return out.toByteArray();
+	}
+}
@@ -1,15 +1,32 @@
 package com.rocketinsights.core.file;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.LineIterator;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class LineContentProviderTest {
 
-	private FileContentProvider<List<String>> underTest;
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileContentProvider<LineIterator> underTest;
 
 	@Before
 	public void setUp() {
@@ -20,4 +37,34 @@ public class LineContentProviderTest {
 	public void test_notExistingFile() throws IOException {
 		underTest.readContents(Paths.get("/path/to/not/existing/file"));
 	}
+
+	@Test
+	public void test_skipsBlankLines() throws IOException {
+		File file = folder.newFile("input.properties");
+		FileUtils.writeStringToFile(file, "a = \"1\"\n\n   \nb = \"2\"\n", StandardCharsets.UTF_8);
+
+		List<String> lines = new LinkedList<>();
+		try (LineIterator iterator = underTest.readContents(file.toPath())) {
+			iterator.forEachRemaining(lines::add);
+		}
+
+		assertThat(lines.size(), is(equalTo(2)));
+		assertThat(lines.get(1), is(equalTo("b = \"2\"")));
+	}
+
+	@Test
+	public void test_compressedFile() throws IOException {
+		File file = folder.newFile("input.properties.gz");
+		try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(file.toPath()))) {
+			os.write("a = \"1\"\n\nb = \"2\"\n".getBytes(StandardCharsets.UTF_8));
+		}
+
+		List<String> lines = new LinkedList<>();
+		try (LineIterator iterator = underTest.readContents(file.toPath())) {
+			iterator.forEachRemaining(lines::add);
+		}
+
+		assertThat(lines.size(), is(equalTo(2)));
+		assertThat(lines.get(1), is(equalTo("b = \"2\"")));
+	}
 }
@@ -0,0 +1,78 @@
+package com.rocketinsights.core.file;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedStreamProviderTest {
+
+	private static final String SAMPLE_FILE_PATH_1 = "properties/sample2.properties";
+
+	// small enough to force several windows to be mapped
+	private static final long WINDOW_SIZE = 16L;
+
+	private FileContentProvider<MappedInputStream> underTest;
+
+	@Before
+	public void setUp() {
+		underTest = new MappedStreamProvider(WINDOW_SIZE);
+	}
+
+	@Test
+	public void test_readAcrossWindows() throws IOException, URISyntaxException {
+		Path path = getFilePath(SAMPLE_FILE_PATH_1);
+		try (MappedInputStream is = underTest.readContents(path)) {
+			assertThat(IOUtils.toByteArray(is), is(equalTo(Files.readAllBytes(path))));
+			assertThat(is.read(), is(equalTo(-1)));
+		}
+	}
+
+	@Test
+	public void test_readWindows() throws IOException, URISyntaxException {
+		Path path = getFilePath(SAMPLE_FILE_PATH_1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (MappedInputStream is = underTest.readContents(path)) {
+			ByteBuffer window;
+			while ((window = is.nextWindow()) != null) {
+				byte[] bytes = new byte[window.remaining()];
+				window.get(bytes);
+				out.write(bytes);
+			}
+			assertThat(is.nextWindow(), is(nullValue()));
+		}
+		assertThat(out.toByteArray(), is(equalTo(Files.readAllBytes(path))));
+	}
+
+	@Test
+	public void test_skip() throws IOException, URISyntaxException {
+		Path path = getFilePath(SAMPLE_FILE_PATH_1);
+		byte[] expected = Files.readAllBytes(path);
+		try (MappedInputStream is = underTest.readContents(path)) {
+			assertThat(is.skip(40L), is(equalTo(40L)));
+			assertThat(is.read(), is(equalTo(expected[40] & 0xFF)));
+			assertThat(is.available(), is(equalTo(expected.length - 41)));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void test_notExistingFile() throws IOException {
+		underTest.readContents(Paths.get("/path/to/not/existing/file"));
+	}
+
+	private Path getFilePath(String path) throws URISyntaxException {
+		return Paths.get(getClass().getClassLoader().getResource(path).toURI());
+	}
+}
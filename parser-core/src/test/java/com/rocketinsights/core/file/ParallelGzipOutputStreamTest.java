@@ -0,0 +1,124 @@
+package com.rocketinsights.core.file;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelGzipOutputStreamTest {
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void test_inflatesToBytesWritten() throws IOException {
+		// text compresses, random bytes do not
+		byte[] text = new byte[100_000];
+		for (int i = 0; i < text.length; i++) {
+			text[i] = (byte) ('a' + i % 7);
+		}
+		byte[] noise = new byte[100_000];
+		new Random(42).nextBytes(noise);
+
+		for (byte[] bytes : new byte[][] { text, noise }) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (OutputStream underTest = new ParallelGzipOutputStream(compressed, 1000, executor, 3)) {
+				underTest.write(bytes, 0, 10);
+				underTest.write(bytes[10]);
+				underTest.flush();
+				underTest.write(bytes, 11, bytes.length - 11);
+			}
+
+			assertThat(inflate(compressed.toByteArray()), is(equalTo(bytes)));
+		}
+	}
+
+	@Test
+	public void test_empty() throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		new ParallelGzipOutputStream(compressed, 1000, executor, 3).close();
+
+		assertThat(inflate(compressed.toByteArray()), is(equalTo(new byte[0])));
+	}
+
+	@Test
+	public void test_inFlightBounded() throws IOException {
+		int[] submitted = new int[1];
+		int[] written = new int[1];
+		int[] maxInFlight = new int[1];
+		// every member is written in a single call
+		OutputStream out = new OutputStream() {
+
+			@Override
+			public void write(int b) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				written[0]++;
+			}
+		};
+		// blocks take a while to compress, so they pile up
+		Executor slowExecutor = task -> {
+			maxInFlight[0] = Math.max(maxInFlight[0], ++submitted[0] - written[0]);
+			executor.execute(() -> {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				task.run();
+			});
+		};
+
+		try (OutputStream underTest = new ParallelGzipOutputStream(out, 10, slowExecutor, 2)) {
+			underTest.write(new byte[100]);
+		}
+
+		assertThat(maxInFlight[0], is(equalTo(2)));
+		assertThat(written[0], is(equalTo(10)));
+	}
+
+	@Test(expected = IOException.class)
+	public void test_writeAfterClose() throws IOException {
+		OutputStream underTest = new ParallelGzipOutputStream(new ByteArrayOutputStream(), 1000, executor, 3);
+		underTest.close();
+		underTest.write(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_invalidBlockSize() {
+		new ParallelGzipOutputStream(new ByteArrayOutputStream(), 0, executor, 3);
+	}
+
+	private static byte[] inflate(byte[] compressed) throws IOException {
+		try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			return IOUtils.toByteArray(is);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.rocketinsights.core.file;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.LineIterator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SortingLinesProviderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void test_sortsByKeyPath() throws IOException {
+		List<String> lines = Arrays.asList("a_b = \"1\"", "a.c = \"2\"", "b = \"3\"", "a.b.c = \"4\"", "a0 = \"5\"",
+				"a.b.b = \"6\"");
+
+		List<String> sorted = read(lines, SortingLinesProvider.DEFAULT_MEMORY_BUDGET);
+
+		assertThat(sorted, is(equalTo(Arrays.asList("a.b.b = \"6\"", "a.b.c = \"4\"", "a.c = \"2\"", "a0 = \"5\"",
+				"a_b = \"1\"", "b = \"3\""))));
+	}
+
+	@Test
+	public void test_spillsAndMergesRuns() throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (int x = 0; x < 1000; x++) {
+			lines.add(String.format("group%d.key%d = \"%d\"", x % 7, x, x));
+		}
+		Collections.shuffle(lines, new Random(42));
+
+		// a tiny budget spills a run every few lines, more than can be merged at once
+		List<String> sorted = read(lines, 512L);
+
+		List<String> expected = new ArrayList<>(lines);
+		expected.sort(SortingLinesProvider.BY_KEY);
+		assertThat(sorted, is(equalTo(expected)));
+	}
+
+	@Test(expected = IOException.class)
+	public void test_notExistingFile() throws IOException {
+		new SortingLinesProvider().readContents(Paths.get("/path/to/not/existing/file"));
+	}
+
+	private List<String> read(List<String> lines, long memoryBudget) throws IOException {
+		File input = folder.newFile("input.properties");
+		FileUtils.writeLines(input, StandardCharsets.UTF_8.name(), lines, "\n");
+		File runs = folder.newFolder("runs");
+
+		SortingLinesProvider underTest = new SortingLinesProvider(new LinesProvider(), memoryBudget, runs.toPath());
+		List<String> sorted = new ArrayList<>();
+		try (LineIterator iterator = underTest.readContents(input.toPath())) {
+			iterator.forEachRemaining(sorted::add);
+		}
+		// runs are removed once the lines are consumed
+		assertThat(runs.list().length, is(equalTo(0)));
+		return sorted;
+	}
+}
@@ -1,21 +1,37 @@
 package com.rocketinsights.core.file;
 
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class StreamProviderTest {
 
 	private static final String SAMPLE_FILE_PATH_1 = "properties/sample1.properties";
 
+	private static final String CONTENTS = "a.b = \"1\"\na.c = \"2\"\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	private FileContentProvider<InputStream> underTest;
 
 	@Before
@@ -35,4 +51,61 @@ public class StreamProviderTest {
 		underTest.readContents(Paths.get("/path/to/not/existing/file"));
 	}
 
+	@Test
+	public void test_compressedFiles() throws IOException {
+		byte[] gzip = gzip(CONTENTS);
+		// told by the suffix, or else by the first bytes
+		for (File file : new File[] { write("input.properties.gz", gzip), write("input.properties", gzip),
+				write("input.zz", deflate(CONTENTS)) }) {
+			try (InputStream is = underTest.readContents(file.toPath())) {
+				assertThat(IOUtils.toString(is, StandardCharsets.UTF_8), is(equalTo(CONTENTS)));
+			}
+		}
+	}
+
+	@Test
+	public void test_multiMemberGzip() throws IOException {
+		ByteArrayOutputStream members = new ByteArrayOutputStream();
+		members.write(gzip("a.b = \"1\"\n"));
+		members.write(gzip("a.c = \"2\"\n"));
+
+		try (InputStream is = underTest.readContents(write("input.gz", members.toByteArray()).toPath())) {
+			assertThat(IOUtils.toString(is, StandardCharsets.UTF_8), is(equalTo(CONTENTS)));
+		}
+	}
+
+	@Test
+	public void test_shortFile() throws IOException {
+		try (InputStream is = underTest.readContents(write("input.json", new byte[] { 'x' }).toPath())) {
+			assertThat(IOUtils.toString(is, StandardCharsets.UTF_8), is(equalTo("x")));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void test_notGzipFile() throws IOException {
+		underTest.readContents(write("input.json.gz", CONTENTS.getBytes(StandardCharsets.UTF_8)).toPath());
+	}
+
+	private File write(String name, byte[] bytes) throws IOException {
+		File file = folder.newFile(name);
+		Files.write(file.toPath(), bytes);
+		return file;
+	}
+
+	private static byte[] gzip(String contents) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream os = new GZIPOutputStream(bytes)) {
+			os.write(contents.getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] deflate(String contents) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream os = new DeflaterOutputStream(bytes)) {
+			os.write(contents.getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+
 }
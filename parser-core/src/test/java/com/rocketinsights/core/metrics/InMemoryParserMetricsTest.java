@@ -0,0 +1,64 @@
+package com.rocketinsights.core.metrics;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import com.rocketinsights.core.event.EventType;
+
+public class InMemoryParserMetricsTest {
+
+	@Test
+	public void testMeasures() {
+		InMemoryParserMetrics metrics = new InMemoryParserMetrics();
+		metrics.bytesRead(10);
+		metrics.bytesRead(5);
+		metrics.eventsRead(EventType.NODE_OPENED, 3);
+		metrics.handlerTime("XmlEventHandler", 100);
+		metrics.handlerTime("XmlEventHandler", 50);
+		metrics.timeToFirstByte(200);
+		metrics.timeToFirstByte(100);
+		metrics.peakBufferedEvents(7);
+		metrics.peakBufferedEvents(4);
+
+		assertThat(metrics.getBytesRead(), is(equalTo(15L)));
+		assertThat(metrics.getEventsRead(EventType.NODE_OPENED), is(equalTo(3L)));
+		assertThat(metrics.getEventsRead().get("NODE_CLOSED"), is(equalTo(0L)));
+		assertThat(metrics.getHandlerNanos().get("XmlEventHandler"), is(equalTo(150L)));
+		assertThat(metrics.getLastTimeToFirstByteNanos(), is(equalTo(100L)));
+		assertThat(metrics.getMaxTimeToFirstByteNanos(), is(equalTo(200L)));
+		assertThat(metrics.getPeakBufferedEvents(), is(equalTo(7L)));
+
+		metrics.reset();
+
+		assertThat(metrics.getBytesRead(), is(equalTo(0L)));
+		assertThat(metrics.getHandlerNanos().isEmpty(), is(true));
+		assertThat(metrics.getPeakBufferedEvents(), is(equalTo(0L)));
+	}
+
+	@Test
+	public void testJmx() throws Exception {
+		InMemoryParserMetrics metrics = new InMemoryParserMetrics();
+		metrics.bytesWritten(42);
+		metrics.eventsRead(EventType.DOC_STARTED, 1);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(ParserMetricsMXBean.OBJECT_NAME);
+		server.registerMBean(metrics, name);
+		try {
+			assertThat(server.getAttribute(name, "BytesWritten"), is(equalTo(42L)));
+			TabularData events = (TabularData) server.getAttribute(name, "EventsRead");
+			assertThat(events.get(new Object[] { "DOC_STARTED" }).get("value"), is(equalTo(1L)));
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+}
@@ -4,16 +4,32 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -21,15 +37,30 @@ import org.junit.rules.TemporaryFolder;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.WaitStrategy;
+import com.rocketinsights.core.event.handler.XmlEventHandler;
 import com.rocketinsights.core.exception.ProcessingException;
+import com.rocketinsights.core.jfr.ConversionEvent;
+import com.rocketinsights.core.jfr.FlushEvent;
+import com.rocketinsights.core.jfr.ReadEvent;
+import com.rocketinsights.core.jfr.ValidationEvent;
+import com.rocketinsights.core.jfr.WriteEvent;
+import com.rocketinsights.core.metrics.InMemoryParserMetrics;
 import com.rocketinsights.core.parser.DefaultParser;
 import com.rocketinsights.core.parser.SupportedFormat;
+import com.rocketinsights.core.reader.PathProjection;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 public class DefaultParserTest {
 	private static final String CLEANUP_REGEX = "[\r\n\t]";
 	private static final String SAMPLE_PROPERTIES_1 = "properties/sample1.properties";
 	private static final String SAMPLE_XML_1 = "xml/sample1.xml";
 	private static final String SAMPLE_JSON_1 = "json/sample1.json";
+	private static final String INVALID_JSON = "json/invalid-format.json";
 
 	@Rule
 	public TemporaryFolder folder = new TemporaryFolder();
@@ -177,7 +208,42 @@ public class DefaultParserTest {
 		assertThat(outputFile.length(), is(not(equalTo(0))));
 	}
 
+	@Test
+	public void test_parseXmlToJson_splitText() throws IOException, ProcessingException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100_000; i++) {
+			text.append((char) ('a' + i % 26));
+		}
+		// text is cut at entity references, and at buffer boundaries when long
+		Path path = folder.newFile("input.xml").toPath();
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><root><a>x &amp; y</a><b>" + text + "</b></root>";
+		Files.write(path, xml.getBytes(StandardCharsets.UTF_8));
+		File outputFile = folder.newFile("output.json");
+
+		underTest.parse(path.toString(), outputFile.toPath().toString(), SupportedFormat.JSON);
+
+		JsonParser parser = new JsonParser();
+		JsonElement expected = parser.parse("{\"root\": [{\"a\": \"x & y\"}, {\"b\": \"" + text + "\"}]}");
+		assertThat(parser.parse(new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8)),
+				is(equalTo(expected)));
+	}
+
 	// Tests for json conversion
+	@Test
+	public void test_parseJsonToJson_mixedContent() throws IOException {
+		Path path = folder.newFile("input.json").toPath();
+		Files.write(path, "{\"root\":{\"a\":[\"x\",{\"b\":\"y\"}]}}".getBytes(StandardCharsets.UTF_8));
+		File outputFile = folder.newFile("output.json");
+
+		try {
+			underTest.parse(path.toString(), outputFile.toPath().toString(), SupportedFormat.JSON);
+			fail("a node holds both a value and another node");
+		} catch (ProcessingException e) {
+			// the partial output is removed
+			assertThat(outputFile.exists(), is(false));
+		}
+	}
+
 	@Test
 	public void test_parseJsonToPropertyBackAndForth() throws IOException, ProcessingException, URISyntaxException {
 		Path path = getFilePath(SAMPLE_JSON_1);
@@ -245,6 +311,208 @@ public class DefaultParserTest {
 		assertThat(outputFile.length(), is(not(equalTo(0))));
 	}
 
+	@Test
+	public void test_parsePipelined() throws IOException, ProcessingException, URISyntaxException {
+		for (String sample : new String[] { SAMPLE_PROPERTIES_1, SAMPLE_XML_1, SAMPLE_JSON_1 }) {
+			for (SupportedFormat format : SupportedFormat.values()) {
+				Path path = getFilePath(sample);
+				File expected = folder.newFile();
+				File outputFile = folder.newFile();
+
+				underTest.parse(path.toString(), expected.toPath().toString(), format);
+				new DefaultParser().pipelined(8, WaitStrategy.YIELDING).parse(path.toString(),
+						outputFile.toPath().toString(), format);
+
+				assertThat(Files.readAllBytes(outputFile.toPath()),
+						is(equalTo(Files.readAllBytes(expected.toPath()))));
+			}
+		}
+	}
+
+	@Test
+	public void test_parseSeveralTargets() throws IOException, ProcessingException, URISyntaxException {
+		for (DefaultParser parser : new DefaultParser[] { new DefaultParser(),
+				new DefaultParser().pipelined(8, WaitStrategy.YIELDING) }) {
+			for (String sample : new String[] { SAMPLE_PROPERTIES_1, SAMPLE_XML_1, SAMPLE_JSON_1 }) {
+				Path path = getFilePath(sample);
+				List<ParseTarget> targets = new ArrayList<>();
+				for (SupportedFormat format : SupportedFormat.values()) {
+					targets.add(new ParseTarget(format, folder.newFile().toPath().toString()));
+				}
+
+				parser.parse(path.toString(), targets);
+
+				for (ParseTarget target : targets) {
+					File expected = folder.newFile();
+					underTest.parse(path.toString(), expected.toPath().toString(), target.getFormat());
+					assertThat(Files.readAllBytes(Paths.get(target.getOutputFile())),
+							is(equalTo(Files.readAllBytes(expected.toPath()))));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void test_parseSeveralTargets_invalidInput() throws IOException, URISyntaxException {
+		for (DefaultParser parser : new DefaultParser[] { new DefaultParser(),
+				new DefaultParser().pipelined(8, WaitStrategy.YIELDING) }) {
+			List<ParseTarget> targets = new ArrayList<>();
+			for (SupportedFormat format : SupportedFormat.values()) {
+				targets.add(new ParseTarget(format, folder.newFile().toPath().toString()));
+			}
+
+			try {
+				parser.parse(getFilePath(INVALID_JSON).toString(), targets);
+				fail("the input is invalid");
+			} catch (ProcessingException e) {
+				// every output is removed
+				for (ParseTarget target : targets) {
+					assertThat(Files.exists(Paths.get(target.getOutputFile())), is(false));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void test_closeOutputs_closeError() throws IOException {
+		for (boolean failed : new boolean[] { false, true }) {
+			Writer first = mock(Writer.class);
+			Writer second = mock(Writer.class);
+			doThrow(new IOException("first")).when(first).close();
+			List<String> outputFiles = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				File outputFile = folder.newFile();
+				Files.write(outputFile.toPath(), "written".getBytes(StandardCharsets.UTF_8));
+				outputFiles.add(outputFile.toString());
+			}
+
+			try {
+				// the last writer was never created
+				DefaultParser.closeOutputs(Arrays.asList(first, second), outputFiles, failed);
+				assertThat(failed, is(true));
+			} catch (IOException e) {
+				assertThat(failed, is(false));
+				assertThat(e.getMessage(), is(equalTo("first")));
+			}
+
+			verify(second).close();
+			for (String outputFile : outputFiles) {
+				assertThat(Files.exists(Paths.get(outputFile)), is(false));
+			}
+		}
+	}
+
+	@Test
+	public void test_parseProjected() throws IOException, ProcessingException, URISyntaxException {
+		for (String sample : new String[] { SAMPLE_PROPERTIES_1, SAMPLE_XML_1, SAMPLE_JSON_1 }) {
+			Path path = getFilePath(sample);
+			File outputFile = folder.newFile();
+
+			new DefaultParser().projecting(new PathProjection().include("carriers.personal").exclude("*.*.address"))
+					.parse(path.toString(), outputFile.toPath().toString(), SupportedFormat.PROPERTY);
+
+			List<String> lines = Files.readAllLines(outputFile.toPath());
+			assertThat(lines, is(equalTo(Arrays.asList("carriers.personal.name = \"Telecom Personal\"",
+					"carriers.personal.country = \"Argentina\""))));
+		}
+	}
+
+	@Test
+	public void test_parseMetered() throws IOException, ProcessingException, URISyntaxException {
+		for (String sample : new String[] { SAMPLE_PROPERTIES_1, SAMPLE_XML_1, SAMPLE_JSON_1 }) {
+			Path path = getFilePath(sample);
+			File outputFile = folder.newFile();
+			InMemoryParserMetrics metrics = new InMemoryParserMetrics();
+
+			new DefaultParser().pipelined(8, WaitStrategy.YIELDING).metering(metrics).parse(path.toString(),
+					outputFile.toPath().toString(), SupportedFormat.XML);
+
+			assertThat(metrics.getBytesRead(), is(equalTo(Files.size(path))));
+			assertThat(metrics.getBytesWritten(), is(equalTo(outputFile.length())));
+			assertThat(metrics.getEventsRead(EventType.DOC_STARTED), is(equalTo(1L)));
+			assertThat(metrics.getEventsRead(EventType.DOC_ENDED), is(equalTo(1L)));
+			assertThat(metrics.getEventsRead(EventType.NODE_OPENED),
+					is(equalTo(metrics.getEventsRead(EventType.NODE_CLOSED))));
+			assertThat(metrics.getHandlerNanos().containsKey(XmlEventHandler.class.getSimpleName()), is(true));
+			assertThat(metrics.getMaxTimeToFirstByteNanos() > 0, is(true));
+			assertThat(metrics.getPeakBufferedEvents() > 0, is(true));
+		}
+	}
+
+	@Test
+	public void test_parseRecorded() throws IOException, ProcessingException, URISyntaxException {
+		Path path = getFilePath(SAMPLE_PROPERTIES_1);
+		File outputFile = folder.newFile("output.json");
+		Path dump = folder.newFile().toPath();
+
+		try (Recording recording = new Recording()) {
+			for (String name : new String[] { ConversionEvent.NAME, ReadEvent.NAME, ValidationEvent.NAME,
+					WriteEvent.NAME, FlushEvent.NAME }) {
+				recording.enable(name);
+			}
+			recording.start();
+			underTest.parse(path.toString(), outputFile.toPath().toString(), SupportedFormat.JSON);
+			recording.stop();
+			recording.dump(dump);
+		}
+
+		Map<String, RecordedEvent> events = new HashMap<>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+			events.put(event.getEventType().getName(), event);
+		}
+		assertThat(events.get(ConversionEvent.NAME).getString("formats"), is(equalTo("JSON")));
+		assertThat(events.get(ConversionEvent.NAME).getLong("inputSize"), is(equalTo(Files.size(path))));
+		assertThat(events.get(ReadEvent.NAME).getString("reader"), is(equalTo("PropertiesFileReader")));
+		assertThat(events.get(ReadEvent.NAME).getLong("eventCount"), is(equalTo(15L)));
+		assertThat(events.get(ValidationEvent.NAME).getLong("propertyCount"), is(equalTo(3L)));
+		assertThat(events.get(WriteEvent.NAME).getLong("eventCount"), is(equalTo(15L)));
+		// the last flush recorded is the output file being closed
+		assertThat(events.get(FlushEvent.NAME).getLong("outputSize"), is(equalTo(outputFile.length())));
+	}
+
+	@Test
+	public void test_parseCompressed() throws IOException, ProcessingException, URISyntaxException {
+		for (String sample : new String[] { SAMPLE_PROPERTIES_1, SAMPLE_XML_1, SAMPLE_JSON_1 }) {
+			for (SupportedFormat format : SupportedFormat.values()) {
+				Path path = getFilePath(sample);
+				File expected = folder.newFile();
+				underTest.parse(path.toString(), expected.toPath().toString(), format);
+				// read as the inner extension tells
+				File input = new File(folder.newFolder(), path.getFileName() + ".gz");
+				try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(input.toPath()))) {
+					Files.copy(path, os);
+				}
+				File outputFile = new File(input.getParentFile(), "output.gz");
+
+				underTest.parse(input.toPath().toString(), outputFile.toPath().toString(), format);
+
+				try (InputStream is = new GZIPInputStream(Files.newInputStream(outputFile.toPath()))) {
+					assertThat(IOUtils.toByteArray(is), is(equalTo(Files.readAllBytes(expected.toPath()))));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void test_parseCompressedInParallel() throws IOException, ProcessingException, URISyntaxException {
+		for (String sample : new String[] { SAMPLE_PROPERTIES_1, SAMPLE_XML_1, SAMPLE_JSON_1 }) {
+			for (SupportedFormat format : SupportedFormat.values()) {
+				Path path = getFilePath(sample);
+				File expected = folder.newFile();
+				File outputFile = new File(folder.newFolder(), "output.gz");
+
+				underTest.parse(path.toString(), expected.toPath().toString(), format);
+				// small blocks, so the output has several members
+				new DefaultParser().compressingInParallel(64).parse(path.toString(), outputFile.toPath().toString(),
+						format);
+
+				try (InputStream is = new GZIPInputStream(Files.newInputStream(outputFile.toPath()))) {
+					assertThat(IOUtils.toByteArray(is), is(equalTo(Files.readAllBytes(expected.toPath()))));
+				}
+			}
+		}
+	}
+
 	private Path getFilePath(String path) throws IOException, URISyntaxException {
 		return Paths.get(this.getClass().getClassLoader().getResource(path).toURI());
 
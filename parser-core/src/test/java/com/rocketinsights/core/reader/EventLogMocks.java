@@ -0,0 +1,38 @@
+package com.rocketinsights.core.reader;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+
+import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.EventLog;
+import com.rocketinsights.core.exception.ProcessingException;
+
+/**
+ * Helps the reader tests verify the events read on a mocked {@link EventLog},
+ * whether they are pushed one by one or in batches.
+ * 
+ * @author fbonecco
+ *
+ */
+final class EventLogMocks {
+
+	private EventLogMocks() {
+	}
+
+	/**
+	 * Makes the batches pushed to a mocked {@link EventLog} reach its
+	 * {@link EventLog#push(Event)}, one event at a time, so they can be verified
+	 * as if they were pushed that way.
+	 */
+	static void replayBatches(EventLog eventLog) throws ProcessingException {
+		lenient().doAnswer(invocation -> {
+			Event[] events = invocation.getArgument(0);
+			for (int i = invocation.<Integer>getArgument(1); i < invocation.<Integer>getArgument(2); i++) {
+				eventLog.push(events[i]);
+			}
+			return null;
+		}).when(eventLog).pushBatch(any(), anyInt(), anyInt());
+	}
+}
@@ -1,16 +1,25 @@
 package com.rocketinsights.core.reader;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.isA;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -23,8 +32,11 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import com.google.gson.stream.MalformedJsonException;
 import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.EventCursor;
 import com.rocketinsights.core.event.EventLog;
 import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.SymbolTable;
+import com.rocketinsights.core.event.Utf8Slice;
 import com.rocketinsights.core.exception.ProcessingException;
 import com.rocketinsights.core.file.FileContentProvider;
 
@@ -50,8 +62,9 @@ public class JsonFileReaderTest {
 	private EventLog eventLog;
 
 	@Before
-	public void setUp() {
+	public void setUp() throws ProcessingException {
 		underTest = new JsonFileReader(fileContentProvider);
+		EventLogMocks.replayBatches(eventLog);
 	}
 
 	@Test
@@ -223,6 +236,182 @@ public class JsonFileReaderTest {
 		inOrder.verify(eventLog).push(new Event(EventType.DOC_ENDED));
 	}
 
+	@Test
+	public void testOpen_cursor() throws IOException, ProcessingException {
+		Path path = Paths.get(SAMPLE_JSON_1);
+		when(fileContentProvider.readContents(path)).thenReturn(getStream(SAMPLE_JSON_1));
+
+		List<Event> events = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path)) {
+			while (cursor.next()) {
+				events.add(cursor.toEvent());
+			}
+		}
+
+		assertThat(events.size(), is(equalTo(26)));
+		assertThat(events.get(4), is(equalTo(new Event(EventType.VALUE_ADDED, null, "Telecom Personal"))));
+		assertThat(events.get(5), is(equalTo(new Event(EventType.NODE_CLOSED, "name", null))));
+		assertThat(events.get(25), is(equalTo(new Event(EventType.DOC_ENDED))));
+	}
+
+	@Test
+	public void testOpen_dataBytes() throws IOException, ProcessingException {
+		Path path = Paths.get(WRONG_FILE);
+		when(fileContentProvider.readContents(path)).thenReturn(new ByteArrayInputStream(
+				"{\"root\": {\"a\": \"Paseo Colón\", \"b\": \"x\\\"y\"}}".getBytes(StandardCharsets.UTF_8)));
+
+		List<String> slices = new ArrayList<>();
+		List<String> values = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path)) {
+			while (cursor.next()) {
+				if (EventType.VALUE_ADDED.equals(cursor.eventType())) {
+					Utf8Slice slice = cursor.dataBytes();
+					slices.add(slice == null ? null : slice.toString());
+					values.add(cursor.data());
+				}
+			}
+		}
+
+		assertThat(slices.get(0), is(equalTo("Paseo Colón")));
+		// escaped values are only available decoded
+		assertThat(slices.get(1), is(nullValue()));
+		assertThat(values.get(0), is(equalTo("Paseo Colón")));
+		assertThat(values.get(1), is(equalTo("x\"y")));
+	}
+
+	@Test
+	public void testOpen_chunkedValues() throws IOException, ProcessingException {
+		Path path = Paths.get(WRONG_FILE);
+		when(fileContentProvider.readContents(path)).thenReturn(new ByteArrayInputStream(
+				"{\"root\": {\"a\": \"abcdefghij\", \"b\": \"x\\u00e9\\ud83d\\ude00y\", \"c\": 12}}"
+						.getBytes(StandardCharsets.UTF_8)));
+
+		List<Event> events = new ArrayList<>();
+		try (EventCursor cursor = new JsonFileReader(fileContentProvider, 4).open(path)) {
+			while (cursor.next()) {
+				if (EventType.VALUE_ADDED.equals(cursor.eventType())) {
+					events.add(cursor.toEvent());
+				}
+			}
+		}
+
+		List<Event> expected = new ArrayList<>();
+		expected.add(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "abc", true));
+		expected.add(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "def", true));
+		expected.add(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "ghi", true));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "j"));
+		// escapes are never cut, nor are surrogate pairs
+		expected.add(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "x\u00e9", true));
+		expected.add(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "\ud83d\ude00", true));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "y"));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "12"));
+		assertThat(events, is(equalTo(expected)));
+	}
+
+	@Test
+	public void testOpen_dottedNames() throws IOException, ProcessingException {
+		Path path = Paths.get(WRONG_FILE);
+		when(fileContentProvider.readContents(path)).thenReturn(
+				new ByteArrayInputStream("{\"root\": [{\"a.b\": {\"c\": \"1\"}}]}".getBytes(StandardCharsets.UTF_8)));
+
+		List<Event> events = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path)) {
+			while (cursor.next()) {
+				events.add(cursor.toEvent());
+			}
+		}
+
+		// nodes are closed with the name they were opened with
+		assertThat(events.get(1), is(equalTo(new Event(EventType.NODE_OPENED, "a.b", null))));
+		assertThat(events.get(5), is(equalTo(new Event(EventType.NODE_CLOSED, "a.b", null))));
+		assertThat(events.get(1).getSymbol(), is(equalTo(events.get(5).getSymbol())));
+		assertThat(events.get(2).getSymbol(), is(not(equalTo(SymbolTable.NO_SYMBOL))));
+	}
+
+	@Test
+	public void testOpen_siblingAfterObject() throws IOException, ProcessingException {
+		Path path = Paths.get(WRONG_FILE);
+		when(fileContentProvider.readContents(path)).thenReturn(new ByteArrayInputStream(
+				"{\"root\": {\"a\": {\"b\": \"1\"}, \"c\": \"2\"}}".getBytes(StandardCharsets.UTF_8)));
+
+		List<Event> events = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path)) {
+			while (cursor.next()) {
+				events.add(cursor.toEvent());
+			}
+		}
+
+		// a node ends along with the object it was given, not with its parent
+		assertThat(events.get(5), is(equalTo(new Event(EventType.NODE_CLOSED, "a", null))));
+		assertThat(events.get(6), is(equalTo(new Event(EventType.NODE_OPENED, "c", null))));
+		assertThat(events.size(), is(equalTo(10)));
+	}
+
+	@Test
+	public void testOpen_projection() throws IOException, ProcessingException {
+		Path path = Paths.get(SAMPLE_JSON_1);
+		when(fileContentProvider.readContents(path)).thenReturn(getStream(SAMPLE_JSON_1));
+		PathProjection projection = new PathProjection().include("carriers.claro").include("restaurants.*.phone")
+				.exclude("carriers.claro.address");
+
+		List<Event> events = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path, projection)) {
+			while (cursor.next()) {
+				events.add(cursor.toEvent());
+			}
+		}
+
+		List<Event> expected = new ArrayList<>();
+		expected.add(new Event(EventType.DOC_STARTED));
+		expected.add(new Event(EventType.NODE_OPENED, "carriers", null));
+		expected.add(new Event(EventType.NODE_OPENED, "claro", null));
+		expected.add(new Event(EventType.NODE_OPENED, "name", null));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "Claro Argentina"));
+		expected.add(new Event(EventType.NODE_CLOSED, "name", null));
+		expected.add(new Event(EventType.NODE_OPENED, "country", null));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "Argentina"));
+		expected.add(new Event(EventType.NODE_CLOSED, "country", null));
+		expected.add(new Event(EventType.NODE_CLOSED, "claro", null));
+		expected.add(new Event(EventType.NODE_CLOSED, "carriers", null));
+		expected.add(new Event(EventType.DOC_ENDED));
+		assertThat(events, is(equalTo(expected)));
+	}
+
+	@Test
+	public void testOpen_escapesAndLiterals() throws IOException, ProcessingException {
+		Path path = Paths.get(WRONG_FILE);
+		when(fileContentProvider.readContents(path)).thenReturn(new ByteArrayInputStream(
+				"\ufeff{\"root\": {\"caf\u00e9\": \"a\\n\\u00e9\\\"\", \"n\": [-1.5e3, true, null]}}"
+						.getBytes(StandardCharsets.UTF_8)));
+
+		List<Event> events = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path)) {
+			while (cursor.next()) {
+				events.add(cursor.toEvent());
+			}
+		}
+
+		// the byte order mark is skipped and literals are reported as written
+		assertThat(events.get(1), is(equalTo(new Event(EventType.NODE_OPENED, "caf\u00e9", null))));
+		assertThat(events.get(2), is(equalTo(new Event(EventType.VALUE_ADDED, null, "a\n\u00e9\""))));
+		assertThat(events.get(5), is(equalTo(new Event(EventType.VALUE_ADDED, null, "-1.5e3"))));
+		assertThat(events.get(6), is(equalTo(new Event(EventType.VALUE_ADDED, null, "true"))));
+		assertThat(events.get(7), is(equalTo(new Event(EventType.VALUE_ADDED, null, "null"))));
+		assertThat(events.size(), is(equalTo(10)));
+	}
+
+	@Test
+	public void testRead_trailingContent() throws IOException, ProcessingException {
+		exceptionRule.expect(ProcessingException.class);
+		exceptionRule.expectCause(isA(MalformedJsonException.class));
+
+		Path path = Paths.get(WRONG_FILE);
+		when(fileContentProvider.readContents(path)).thenReturn(
+				new ByteArrayInputStream("{\"root\": {\"a\": \"1\"}} {}".getBytes(StandardCharsets.UTF_8)));
+
+		underTest.read(path, eventLog);
+	}
+
 	private InputStream getStream(String path) {
 		return getClass().getClassLoader().getResourceAsStream(path);
 	}
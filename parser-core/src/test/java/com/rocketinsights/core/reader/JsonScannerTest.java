@@ -0,0 +1,89 @@
+package com.rocketinsights.core.reader;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.google.gson.stream.MalformedJsonException;
+import com.rocketinsights.core.event.SymbolTable;
+
+public class JsonScannerTest {
+
+	@Test
+	public void testNextValue_longerThanBuffer() throws IOException {
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < 200_000; i++) {
+			value.append(i % 10);
+		}
+		JsonScanner underTest = scanner("{\"a\": [\"" + value + "\", \"b\"]}");
+
+		underTest.beginObject();
+		underTest.nextName();
+		underTest.beginArray();
+		underTest.nextValue();
+
+		assertThat(underTest.slice(), is(equalTo(value.toString())));
+		underTest.nextValue();
+		assertThat(underTest.slice(), is(equalTo("b")));
+		underTest.endArray();
+		underTest.endObject();
+		assertThat(underTest.peek(), is(equalTo(JsonScanner.END_DOCUMENT)));
+	}
+
+	@Test
+	public void testInternSlice() throws IOException {
+		SymbolTable table = new SymbolTable();
+		int name = table.intern("name");
+		JsonScanner underTest = scanner("{\"name\": {\"n\\u0061me\": {\"ñame\": \"1\"}}}");
+
+		underTest.beginObject();
+		underTest.nextName();
+		assertThat(underTest.internSlice(table), is(equalTo(name)));
+		underTest.beginObject();
+		underTest.nextName();
+		assertThat(underTest.internSlice(table), is(equalTo(name)));
+		underTest.beginObject();
+		underTest.nextName();
+		assertThat(table.name(underTest.internSlice(table)), is(equalTo("ñame")));
+	}
+
+	@Test
+	public void testSkipValue() throws IOException {
+		JsonScanner underTest = scanner("{\"a\": {\"b\": [1, {\"c\": \"\\\"}\"}], \"d\": false}, \"e\": \"2\"}");
+
+		underTest.beginObject();
+		underTest.nextName();
+		underTest.skipValue();
+		underTest.nextName();
+
+		assertThat(underTest.slice(), is(equalTo("e")));
+	}
+
+	@Test(expected = MalformedJsonException.class)
+	public void testPeek_trailingComma() throws IOException {
+		JsonScanner underTest = scanner("{\"a\": [\"1\",]}");
+
+		underTest.beginObject();
+		underTest.nextName();
+		underTest.skipValue();
+	}
+
+	@Test(expected = MalformedJsonException.class)
+	public void testNextValue_invalidNumber() throws IOException {
+		JsonScanner underTest = scanner("{\"a\": 01}");
+
+		underTest.beginObject();
+		underTest.nextName();
+		underTest.nextValue();
+	}
+
+	private JsonScanner scanner(String json) {
+		return new JsonScanner(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+}
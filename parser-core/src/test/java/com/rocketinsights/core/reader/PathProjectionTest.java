@@ -0,0 +1,36 @@
+package com.rocketinsights.core.reader;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class PathProjectionTest {
+
+	@Test
+	public void testAcceptsKey_includes() {
+		PathProjection projection = new PathProjection().include("services.billing").include("*.name");
+
+		assertThat(projection.acceptsKey("services.billing = \"1\""), is(true));
+		assertThat(projection.acceptsKey("services.billing.plan.id = \"1\""), is(true));
+		assertThat(projection.acceptsKey("carriers.name=\"1\""), is(true));
+		assertThat(projection.acceptsKey("services = \"1\""), is(false));
+		assertThat(projection.acceptsKey("services.billings = \"1\""), is(false));
+		assertThat(projection.acceptsKey("services.shipping.id = \"1\""), is(false));
+	}
+
+	@Test
+	public void testAcceptsKey_excludes() {
+		PathProjection projection = new PathProjection().exclude("services.*.secret");
+
+		assertThat(projection.acceptsKey("services.billing.secret = \"1\""), is(false));
+		assertThat(projection.acceptsKey("services.billing.secret.key = \"1\""), is(false));
+		assertThat(projection.acceptsKey("services.billing.secrets = \"1\""), is(true));
+		assertThat(projection.acceptsKey("services.secret = \"1\""), is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInclude_invalidPath() {
+		new PathProjection().include("services..billing");
+	}
+}
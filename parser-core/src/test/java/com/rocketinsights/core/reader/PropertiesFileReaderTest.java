@@ -1,6 +1,9 @@
 package com.rocketinsights.core.reader;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.isA;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.times;
@@ -9,11 +12,12 @@ import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.LineIterator;
@@ -27,11 +31,15 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.EventCursor;
 import com.rocketinsights.core.event.EventLog;
 import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.handler.EventHandler;
 import com.rocketinsights.core.exception.InvalidFormatException;
 import com.rocketinsights.core.exception.ProcessingException;
 import com.rocketinsights.core.file.FileContentProvider;
+import com.rocketinsights.core.tree.PropertiesTree;
+import com.rocketinsights.core.tree.SortedPathValidator;
 
 @RunWith(MockitoJUnitRunner.class)
 public class PropertiesFileReaderTest {
@@ -53,11 +61,12 @@ public class PropertiesFileReaderTest {
 	private EventLog eventLog;
 
 	@Mock
-	private FileContentProvider<List<String>> fileContentProvider;
+	private FileContentProvider<LineIterator> fileContentProvider;
 
 	@Before
-	public void setUp() {
+	public void setUp() throws ProcessingException {
 		underTest = new PropertiesFileReader(fileContentProvider);
+		EventLogMocks.replayBatches(eventLog);
 	}
 
 	@Test
@@ -83,7 +92,7 @@ public class PropertiesFileReaderTest {
 		exceptionRule.expectCause(isA(InvalidFormatException.class));
 
 		Path path = Paths.get("/path/to/file");
-		when(fileContentProvider.readContents(path)).thenReturn(Arrays.asList(new String[] { "" }));
+		when(fileContentProvider.readContents(path)).thenReturn(lines(""));
 
 		ProcessingException ex = null;
 		try {
@@ -101,7 +110,7 @@ public class PropertiesFileReaderTest {
 		exceptionRule.expectCause(isA(InvalidFormatException.class));
 
 		Path path = Paths.get("/path/to/file");
-		when(fileContentProvider.readContents(path)).thenReturn(Arrays.asList(new String[] { "" }));
+		when(fileContentProvider.readContents(path)).thenReturn(lines(""));
 
 		ProcessingException ex = null;
 		try {
@@ -113,6 +122,28 @@ public class PropertiesFileReaderTest {
 		throw ex;
 	}
 
+	@Test
+	public void testRead_eventsPushedWhileReading() throws IOException, ProcessingException {
+		exceptionRule.expect(ProcessingException.class);
+
+		Path path = Paths.get(WRONG_FILE);
+		when(fileContentProvider.readContents(path))
+				.thenReturn(lines("carriers.personal.name = \"Telecom Personal\"", "carriers..personal"));
+
+		ProcessingException ex = null;
+		try {
+			underTest.read(path, eventLog);
+		} catch (ProcessingException e) {
+			ex = e;
+		}
+		// the first line is pushed before the second one is parsed
+		InOrder inOrder = inOrder(eventLog);
+		inOrder.verify(eventLog).push(new Event(EventType.DOC_STARTED));
+		inOrder.verify(eventLog).push(new Event(EventType.NODE_OPENED, "carriers", null));
+		inOrder.verify(eventLog).push(new Event(EventType.VALUE_ADDED, null, "Telecom Personal"));
+		throw ex;
+	}
+
 	@Test()
 	public void testRead_invalidPropertyFile1() throws IOException, ProcessingException {
 		exceptionRule.expect(ProcessingException.class);
@@ -295,12 +326,167 @@ public class PropertiesFileReaderTest {
 		inOrder.verify(eventLog).push(new Event(EventType.DOC_ENDED));
 	}
 
-	private List<String> getFileContents(String path) throws IOException {
-		File file = FileUtils.toFile(this.getClass().getClassLoader().getResource(path));
-		List<String> lines = new LinkedList<>();
-		try (LineIterator iterator = FileUtils.lineIterator(file)) {
-			iterator.forEachRemaining(l -> lines.add(l));
+	@Test
+	public void testRead_parallel() throws IOException, ProcessingException {
+		String[] lines = generateLines(5000);
+		Path path = Paths.get(WRONG_FILE);
+		when(fileContentProvider.readContents(path)).thenReturn(lines(lines), lines(lines));
+
+		RecordingEventLog sequential = new RecordingEventLog();
+		underTest.read(path, sequential);
+
+		RecordingEventLog parallel = new RecordingEventLog();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			new PropertiesFileReader(fileContentProvider, PropertiesTree::new, pool, 300).read(path, parallel);
+		} finally {
+			pool.shutdown();
+		}
+
+		assertThat(parallel.events.size(), is(equalTo(sequential.events.size())));
+		assertThat(parallel.events, is(equalTo(sequential.events)));
+	}
+
+	@Test
+	public void testRead_parallelInvalidLine() throws IOException, ProcessingException {
+		exceptionRule.expect(ProcessingException.class);
+		exceptionRule.expectCause(isA(InvalidFormatException.class));
+
+		String[] lines = generateLines(1000);
+		lines[700] = "carriers..personal = \"Personal\"";
+		Path path = Paths.get(WRONG_FILE);
+		when(fileContentProvider.readContents(path)).thenReturn(lines(lines));
+
+		RecordingEventLog parallel = new RecordingEventLog();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			new PropertiesFileReader(fileContentProvider, PropertiesTree::new, pool, 300).read(path, parallel);
+		} finally {
+			pool.shutdown();
+			// events for every line before the invalid one were pushed
+			assertThat(parallel.events.contains(new Event(EventType.VALUE_ADDED, null, "value699")), is(true));
+			assertThat(parallel.events.contains(new Event(EventType.VALUE_ADDED, null, "value701")), is(false));
+		}
+	}
+
+	@Test
+	public void testRead_sortedInputOutOfOrder() throws IOException, ProcessingException {
+		exceptionRule.expect(ProcessingException.class);
+		exceptionRule.expectCause(isA(InvalidFormatException.class));
+
+		// restaurants.brigada.location.address = "Estados Unidos 465"
+		// carriers.personal.name = "Telecom Personal"
+		Path path = Paths.get(SAMPLE_PROPERTIES_3);
+		when(fileContentProvider.readContents(path)).thenReturn(getFileContents(SAMPLE_PROPERTIES_3));
+
+		new PropertiesFileReader(fileContentProvider, SortedPathValidator::new).read(path, eventLog);
+	}
+
+	@Test
+	public void testRead_sortedInput() throws IOException, ProcessingException {
+		String[] lines = { "a.b = \"1\"", "a.c.d = \"2\"", "a.c.e = \"3\"", "b = \"4\"" };
+		Path path = Paths.get(WRONG_FILE);
+		when(fileContentProvider.readContents(path)).thenReturn(lines(lines), lines(lines));
+
+		RecordingEventLog expected = new RecordingEventLog();
+		underTest.read(path, expected);
+		RecordingEventLog sorted = new RecordingEventLog();
+		new PropertiesFileReader(fileContentProvider, SortedPathValidator::new).read(path, sorted);
+
+		assertThat(sorted.events, is(equalTo(expected.events)));
+	}
+
+	@Test
+	public void testOpen_cursor() throws IOException, ProcessingException {
+		String[] lines = { "a.b = \"1\"", "a.c.d = \"2\"", "b = \"3\"" };
+		Path path = Paths.get(WRONG_FILE);
+		when(fileContentProvider.readContents(path)).thenReturn(lines(lines), lines(lines));
+
+		RecordingEventLog expected = new RecordingEventLog();
+		underTest.read(path, expected);
+
+		List<Event> pulled = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path)) {
+			while (cursor.next()) {
+				pulled.add(new Event(cursor.eventType(), cursor.name(), cursor.data()));
+			}
+			assertThat(cursor.next(), is(false));
+		}
+
+		assertThat(pulled, is(equalTo(expected.events)));
+		assertThat(pulled.get(0), is(equalTo(new Event(EventType.DOC_STARTED))));
+		assertThat(pulled.get(pulled.size() - 1), is(equalTo(new Event(EventType.DOC_ENDED))));
+	}
+
+	@Test
+	public void testOpen_projection() throws IOException, ProcessingException {
+		// lines outside the projection are not even parsed
+		String[] lines = { "a.b = \"1\"", "a.c.d = \"2\"", "a.c.e = \"3\"", "a.cc = invalid", "b..c = \"4\"",
+				"c.c = \"5\"" };
+		Path path = Paths.get(WRONG_FILE);
+		PathProjection projection = new PathProjection().include("a.c").include("*.c").exclude("a.c.e");
+		for (PropertiesFileReader reader : new PropertiesFileReader[] { underTest,
+				new PropertiesFileReader(fileContentProvider, PropertiesTree::new, ForkJoinPool.commonPool(), 2) }) {
+			when(fileContentProvider.readContents(path)).thenReturn(lines(lines));
+
+			List<Event> events = new ArrayList<>();
+			try (EventCursor cursor = reader.open(path, projection)) {
+				while (cursor.next()) {
+					events.add(cursor.toEvent());
+				}
+			}
+
+			List<Event> expected = new ArrayList<>();
+			expected.add(new Event(EventType.DOC_STARTED));
+			expected.add(new Event(EventType.NODE_OPENED, "a", null));
+			expected.add(new Event(EventType.NODE_OPENED, "c", null));
+			expected.add(new Event(EventType.NODE_OPENED, "d", null));
+			expected.add(new Event(EventType.VALUE_ADDED, null, "2"));
+			expected.add(new Event(EventType.NODE_CLOSED, "d", null));
+			expected.add(new Event(EventType.NODE_CLOSED, "c", null));
+			expected.add(new Event(EventType.NODE_CLOSED, "a", null));
+			expected.add(new Event(EventType.NODE_OPENED, "c", null));
+			expected.add(new Event(EventType.NODE_OPENED, "c", null));
+			expected.add(new Event(EventType.VALUE_ADDED, null, "5"));
+			expected.add(new Event(EventType.NODE_CLOSED, "c", null));
+			expected.add(new Event(EventType.NODE_CLOSED, "c", null));
+			expected.add(new Event(EventType.DOC_ENDED));
+			assertThat(events, is(equalTo(expected)));
+		}
+	}
+
+	private String[] generateLines(int count) {
+		String[] lines = new String[count];
+		for (int x = 0; x < count; x++) {
+			lines[x] = String.format("group%d.sub%d.key%d = \"value%d\"", x / 100, x / 10, x, x);
 		}
 		return lines;
 	}
-}
\ No newline at end of file
+
+	private static class RecordingEventLog implements EventLog {
+
+		private List<Event> events = new ArrayList<>();
+
+		@Override
+		public void push(Event event) {
+			events.add(event);
+		}
+
+		@Override
+		public void addHandler(EventHandler eventHandler) {
+		}
+	}
+
+	private LineIterator getFileContents(String path) throws IOException {
+		File file = FileUtils.toFile(this.getClass().getClassLoader().getResource(path));
+		return FileUtils.lineIterator(file);
+	}
+
+	private LineIterator lines(String... lines) {
+		StringBuilder contents = new StringBuilder();
+		for (String line : lines) {
+			contents.append(line).append("\n");
+		}
+		return new LineIterator(new StringReader(contents.toString()));
+	}
+}
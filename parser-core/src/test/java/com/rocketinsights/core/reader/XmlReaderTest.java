@@ -1,17 +1,23 @@
 package com.rocketinsights.core.reader;
 
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.isA;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -25,8 +31,11 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import com.rocketinsights.core.event.Event;
+import com.rocketinsights.core.event.EventCursor;
 import com.rocketinsights.core.event.EventLog;
 import com.rocketinsights.core.event.EventType;
+import com.rocketinsights.core.event.SymbolTable;
+import com.rocketinsights.core.event.Utf8Slice;
 import com.rocketinsights.core.exception.ProcessingException;
 import com.rocketinsights.core.file.FileContentProvider;
 
@@ -55,8 +64,9 @@ public class XmlReaderTest {
 	private EventLog eventLog;
 
 	@Before
-	public void setUp() {
+	public void setUp() throws ProcessingException {
 		underTest = new XmlFileReader(fileContentProvider);
+		EventLogMocks.replayBatches(eventLog);
 	}
 
 	@Test
@@ -293,6 +303,214 @@ public class XmlReaderTest {
 		inOrder.verify(eventLog).push(new Event(EventType.DOC_ENDED));
 	}
 
+	@Test
+	public void testOpen_cursor() throws IOException, ProcessingException {
+		Path path = Paths.get(SAMPLE_XML_2);
+		when(fileContentProvider.readContents(path)).thenReturn(getStream(SAMPLE_XML_2));
+
+		List<Event> events = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path)) {
+			while (cursor.next()) {
+				events.add(cursor.toEvent());
+			}
+		}
+
+		assertThat(events.size(), is(equalTo(13)));
+		assertThat(events.get(1), is(equalTo(new Event(EventType.NODE_OPENED, "carriers", null))));
+		assertThat(events.get(8), is(equalTo(new Event(EventType.VALUE_ADDED, null, "La Brigada"))));
+		assertThat(events.get(12), is(equalTo(new Event(EventType.DOC_ENDED))));
+	}
+
+	@Test
+	public void testOpen_dataBytes() throws IOException, ProcessingException {
+		Path path = Paths.get(SAMPLE_XML_1);
+		String content = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root><a>Paseo Colón</a><b>x &amp; y</b></root>";
+		when(fileContentProvider.readContents(path))
+				.thenReturn(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+
+		List<String> slices = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path)) {
+			while (cursor.next()) {
+				if (EventType.VALUE_ADDED.equals(cursor.eventType())) {
+					Utf8Slice slice = cursor.dataBytes();
+					slices.add(slice == null ? cursor.data() + " (decoded)" : slice.toString());
+				}
+			}
+		}
+
+		// references are resolved, so they are only available decoded
+		assertThat(slices.get(0), is(equalTo("Paseo Colón")));
+		assertThat(slices.get(1), is(equalTo("x ")));
+		assertThat(slices.get(2), is(equalTo("& (decoded)")));
+		assertThat(slices.get(3), is(equalTo(" y")));
+	}
+
+	@Test
+	public void testOpen_chunkedValues() throws IOException, ProcessingException {
+		Path path = Paths.get(SAMPLE_XML_1);
+		String content = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root><a>Paseo Colón 505</a><b>x&amp;y</b></root>";
+		List<List<Event>> results = new ArrayList<>();
+		for (boolean scanning : new boolean[] { true, false }) {
+			when(fileContentProvider.readContents(path))
+					.thenReturn(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+			List<Event> events = new ArrayList<>();
+			try (EventCursor cursor = new XmlFileReader(fileContentProvider, scanning, 4).open(path)) {
+				while (cursor.next()) {
+					if (EventType.VALUE_ADDED.equals(cursor.eventType())) {
+						events.add(cursor.toEvent());
+					}
+				}
+			}
+			results.add(events);
+		}
+
+		List<Event> expected = new ArrayList<>();
+		expected.add(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "Pase", true));
+		expected.add(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "o Co", true));
+		expected.add(new Event(EventType.VALUE_ADDED, null, SymbolTable.NO_SYMBOL, "lón ", true));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "505"));
+		// pieces StAX splits text into are values of their own
+		expected.add(new Event(EventType.VALUE_ADDED, null, "x"));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "&"));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "y"));
+		assertThat(results.get(0), is(equalTo(expected)));
+		assertThat(results.get(1), is(equalTo(expected)));
+	}
+
+	@Test
+	public void testOpen_projection() throws IOException, ProcessingException {
+		Path path = Paths.get(SAMPLE_XML_1);
+		when(fileContentProvider.readContents(path)).thenReturn(getStream(SAMPLE_XML_1));
+		PathProjection projection = new PathProjection().include("carriers.claro").include("restaurants.*.phone")
+				.exclude("carriers.claro.address");
+
+		List<Event> events = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path, projection)) {
+			while (cursor.next()) {
+				events.add(cursor.toEvent());
+			}
+		}
+
+		List<Event> expected = new ArrayList<>();
+		expected.add(new Event(EventType.DOC_STARTED));
+		expected.add(new Event(EventType.NODE_OPENED, "carriers", null));
+		expected.add(new Event(EventType.NODE_OPENED, "claro", null));
+		expected.add(new Event(EventType.NODE_OPENED, "name", null));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "Claro Argentina"));
+		expected.add(new Event(EventType.NODE_CLOSED, "name", null));
+		expected.add(new Event(EventType.NODE_OPENED, "country", null));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "Argentina"));
+		expected.add(new Event(EventType.NODE_CLOSED, "country", null));
+		expected.add(new Event(EventType.NODE_CLOSED, "claro", null));
+		expected.add(new Event(EventType.NODE_CLOSED, "carriers", null));
+		// restaurants without a phone are left out
+		expected.add(new Event(EventType.NODE_OPENED, "restaurants", null));
+		expected.add(new Event(EventType.NODE_OPENED, "viejoalmacen", null));
+		expected.add(new Event(EventType.NODE_OPENED, "phone", null));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "011 4307-7388"));
+		expected.add(new Event(EventType.NODE_CLOSED, "phone", null));
+		expected.add(new Event(EventType.NODE_CLOSED, "viejoalmacen", null));
+		expected.add(new Event(EventType.NODE_CLOSED, "restaurants", null));
+		expected.add(new Event(EventType.DOC_ENDED));
+		assertThat(events, is(equalTo(expected)));
+	}
+
+	@Test
+	public void testOpen_fallsBackToStax() throws IOException, ProcessingException {
+		Path path = Paths.get(SAMPLE_XML_1);
+		String content = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>\n<a>x &amp; y</a>\n<b><![CDATA[<z>]]></b>\n</root>";
+		when(fileContentProvider.readContents(path))
+				.thenReturn(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+
+		List<Event> events = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path)) {
+			while (cursor.next()) {
+				events.add(cursor.toEvent());
+			}
+		}
+
+		List<Event> expected = new ArrayList<>();
+		expected.add(new Event(EventType.DOC_STARTED));
+		expected.add(new Event(EventType.NODE_OPENED, "a", null));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "x "));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "&"));
+		expected.add(new Event(EventType.VALUE_ADDED, null, " y"));
+		expected.add(new Event(EventType.NODE_CLOSED, "a", null));
+		expected.add(new Event(EventType.NODE_OPENED, "b", null));
+		expected.add(new Event(EventType.VALUE_ADDED, null, "<z>"));
+		expected.add(new Event(EventType.NODE_CLOSED, "b", null));
+		expected.add(new Event(EventType.DOC_ENDED));
+		assertThat(events, is(equalTo(expected)));
+		verify(fileContentProvider, times(1)).readContents(path);
+	}
+
+	@Test
+	public void testOpen_fallsBackAfterBuffer() throws IOException, ProcessingException {
+		Path path = Paths.get(SAMPLE_XML_1);
+		// StAX cuts the text where its buffer ends, unlike the scanner
+		StringBuilder content = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>\n");
+		for (int i = 0; content.length() < 200_000; i++) {
+			content.append("<t>a").append(i).append("\ny]z\n\nw&amp;v\n</t>\n");
+		}
+		content.append("<u><![CDATA[x]]></u>\n<t>end</t>\n</root>");
+		byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+		when(fileContentProvider.readContents(path)).thenAnswer(invocation -> new ByteArrayInputStream(bytes));
+
+		List<Event> scanned = joinedValues(underTest.open(path));
+		List<Event> events = joinedValues(new XmlFileReader(fileContentProvider, false).open(path));
+
+		assertThat(scanned.size(), is(equalTo(events.size())));
+		assertThat(scanned, is(equalTo(events)));
+		assertThat(scanned.get(scanned.size() - 3), is(equalTo(new Event(EventType.VALUE_ADDED, null, "end"))));
+	}
+
+	@Test
+	public void testOpen_staxOnly() throws IOException, ProcessingException {
+		Path path = Paths.get(SAMPLE_XML_1);
+		when(fileContentProvider.readContents(path)).thenReturn(getStream(SAMPLE_XML_1));
+		List<Event> scanned = new ArrayList<>();
+		try (EventCursor cursor = underTest.open(path)) {
+			while (cursor.next()) {
+				scanned.add(cursor.toEvent());
+			}
+		}
+
+		when(fileContentProvider.readContents(path)).thenReturn(getStream(SAMPLE_XML_1));
+		List<Event> events = new ArrayList<>();
+		try (EventCursor cursor = new XmlFileReader(fileContentProvider, false).open(path)) {
+			while (cursor.next()) {
+				events.add(cursor.toEvent());
+			}
+		}
+
+		assertThat(events, is(equalTo(scanned)));
+	}
+
+	/**
+	 * @return the events of a cursor, with adjacent values joined into one
+	 */
+	private static List<Event> joinedValues(EventCursor cursor) throws IOException, ProcessingException {
+		List<Event> events = new ArrayList<>();
+		try {
+			StringBuilder value = null;
+			while (cursor.next()) {
+				if (EventType.VALUE_ADDED.equals(cursor.eventType())) {
+					value = value == null ? new StringBuilder() : value;
+					value.append(cursor.data());
+					continue;
+				}
+				if (value != null) {
+					events.add(new Event(EventType.VALUE_ADDED, null, value.toString()));
+					value = null;
+				}
+				events.add(cursor.toEvent());
+			}
+		} finally {
+			cursor.close();
+		}
+		return events;
+	}
+
 	private InputStream getStream(String path) {
 		return getClass().getClassLoader().getResourceAsStream(path);
 	}
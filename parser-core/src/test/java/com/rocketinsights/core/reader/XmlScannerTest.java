@@ -0,0 +1,115 @@
+package com.rocketinsights.core.reader;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.rocketinsights.core.event.SymbolTable;
+
+public class XmlScannerTest {
+
+	private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+
+	@Test
+	public void testNext_elementsAndText() throws IOException {
+		SymbolTable table = new SymbolTable();
+		XmlScanner underTest = scanner(table, "<root>\n  <name id='1'>El Viejo Almacén</name>\n  <empty/>\n</root>");
+
+		assertThat(underTest.prolog(), is(equalTo(XmlScanner.START)));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.WHITESPACE)));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.START)));
+		assertThat(table.name(underTest.symbol()), is(equalTo("name")));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.TEXT)));
+		assertThat(underTest.text(), is(equalTo("El Viejo Almacén")));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.END)));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.WHITESPACE)));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.START)));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.END)));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.WHITESPACE)));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.END)));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.END_DOCUMENT)));
+	}
+
+	@Test
+	public void testNext_splitLikeStax() throws IOException {
+		XmlScanner underTest = scanner(new SymbolTable(), "<root><a>x &amp; y&#65;\nz]w\nv</a></root>");
+
+		underTest.prolog();
+		underTest.next();
+		assertThat(underTest.next(), is(equalTo(XmlScanner.TEXT)));
+		assertThat(underTest.text(), is(equalTo("x ")));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.TEXT)));
+		assertThat(underTest.text(), is(equalTo("&")));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.TEXT)));
+		assertThat(underTest.text(), is(equalTo(" y")));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.TEXT)));
+		assertThat(underTest.text(), is(equalTo("A")));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.TEXT)));
+		assertThat(underTest.text(), is(equalTo("\nz]w")));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.TEXT)));
+		assertThat(underTest.text(), is(equalTo("\nv")));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.END)));
+	}
+
+	@Test
+	public void testSkipElement() throws IOException {
+		SymbolTable table = new SymbolTable();
+		XmlScanner underTest = scanner(table, "<root><a><b>1</b><!-- <c> --><b/>&lt;</a><d/></root>");
+
+		underTest.prolog();
+		underTest.next();
+		assertThat(underTest.skipElement(), is(equalTo(XmlScanner.END)));
+		assertThat(underTest.next(), is(equalTo(XmlScanner.START)));
+		assertThat(table.name(underTest.symbol()), is(equalTo("d")));
+	}
+
+	@Test
+	public void testProlog_unsupported() throws IOException {
+		assertThat(scanner(new SymbolTable(), "<!DOCTYPE root><root/>").prolog(), is(equalTo(XmlScanner.UNSUPPORTED)));
+		assertThat(scanner(new SymbolTable(), "<root xmlns=\"urn:a\"/>").prolog(),
+				is(equalTo(XmlScanner.UNSUPPORTED)));
+		assertThat(scanner(new SymbolTable(), "<other/>").prolog(), is(equalTo(XmlScanner.UNSUPPORTED)));
+	}
+
+	@Test
+	public void testNext_unsupported() throws IOException {
+		String[] contents = { "<a>x\r\ny</a>", "<a><![CDATA[x]]></a>", "<a>&nbsp;</a>", "<p:a/>", "<a b='1' b='2'/>",
+				"<a></b>", "<a>😀</a>" };
+		for (String content : contents) {
+			XmlScanner underTest = scanner(new SymbolTable(), "<root>" + content + "</root>");
+			underTest.prolog();
+			int token;
+			while ((token = underTest.next()) != XmlScanner.UNSUPPORTED) {
+				assertThat(content, token == XmlScanner.END_DOCUMENT, is(false));
+			}
+		}
+	}
+
+	@Test
+	public void testReplay() throws IOException {
+		String document = DECLARATION + "<root><a>&nbsp;</a></root>";
+		XmlScanner underTest = scanner(new SymbolTable(), "<root><a>&nbsp;</a></root>");
+
+		underTest.prolog();
+		underTest.next();
+		underTest.next();
+		InputStream replay = underTest.replay();
+		byte[] bytes = new byte[document.length() * 2];
+		int length = replay.read(bytes, 0, bytes.length);
+
+		assertThat(new String(bytes, 0, length, StandardCharsets.UTF_8), is(equalTo(document)));
+		assertThat(replay.read(bytes, 0, bytes.length), is(equalTo(-1)));
+	}
+
+	private XmlScanner scanner(SymbolTable table, String content) {
+		return new XmlScanner(
+				new ByteArrayInputStream((DECLARATION + content).getBytes(StandardCharsets.UTF_8)), table);
+	}
+}
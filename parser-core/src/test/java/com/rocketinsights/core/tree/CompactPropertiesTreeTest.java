@@ -0,0 +1,88 @@
+package com.rocketinsights.core.tree;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompactPropertiesTreeTest {
+
+	@Test
+	public void testAdd_collisions() {
+		CompactPropertiesTree underTest = new CompactPropertiesTree();
+
+		assertThat(underTest.add(Arrays.asList("a", "b", "c")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a", "b", "d")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a", "b", "d")), is(equalTo(false)));
+		assertThat(underTest.add(Arrays.asList("a", "b")), is(equalTo(false)));
+		assertThat(underTest.add(Arrays.asList("a", "b", "c", "e")), is(equalTo(false)));
+		assertThat(underTest.add(Arrays.asList("b", "a")), is(equalTo(true)));
+
+		assertThat(underTest.getKeyCount(), is(equalTo(3L)));
+		assertThat(underTest.getNodeCount(), is(equalTo(6)));
+		assertThat(underTest.getSegmentCount(), is(equalTo(4)));
+	}
+
+	@Test
+	public void testAdd_sameResultsAsPropertiesTree() {
+		assertSameResults(new CompactPropertiesTree(16, false));
+	}
+
+	@Test
+	public void testAdd_offHeap() {
+		CompactPropertiesTree underTest = new CompactPropertiesTree(16, true);
+
+		assertThat(underTest.isOffHeap(), is(equalTo(true)));
+		assertSameResults(underTest);
+	}
+
+	@Test
+	public void testAdd_severalKeyBuffers() {
+		for (boolean offHeap : new boolean[] { false, true }) {
+			// the table grows from one buffer of keys to many
+			assertSameResults(new CompactPropertiesTree(16, offHeap, 64));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNew_invalidKeyBufferSlots() {
+		new CompactPropertiesTree(16, false, 48);
+	}
+
+	@Test
+	public void testGetBytesPerKey() {
+		CompactPropertiesTree underTest = new CompactPropertiesTree();
+		assertThat(underTest.getBytesPerKey(), is(equalTo(0d)));
+
+		for (int x = 0; x < 1000; x++) {
+			underTest.add(Arrays.asList("a", "b", "key" + x));
+		}
+
+		assertTrue(underTest.getBytesPerKey() > 0d);
+		assertThat(underTest.getBytesPerKey(), is(equalTo(underTest.getMemoryUsage() / 1000d)));
+	}
+
+	private void assertSameResults(CompactPropertiesTree underTest) {
+		PropertiesTree expected = new PropertiesTree();
+		Random random = new Random(42);
+		// enough paths to force the table to grow several times
+		for (int x = 0; x < 20000; x++) {
+			List<String> path = randomPath(random);
+			assertThat(path.toString(), underTest.add(path), is(equalTo(expected.add(path))));
+		}
+	}
+
+	private List<String> randomPath(Random random) {
+		String[] path = new String[1 + random.nextInt(4)];
+		for (int x = 0; x < path.length; x++) {
+			path[x] = "s" + random.nextInt(x == 0 ? 5 : 40);
+		}
+		return Arrays.asList(path);
+	}
+}
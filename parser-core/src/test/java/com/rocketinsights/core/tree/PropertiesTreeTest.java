@@ -0,0 +1,59 @@
+package com.rocketinsights.core.tree;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PropertiesTreeTest {
+
+	private PropertiesTree underTest;
+
+	@Before
+	public void setUp() {
+		underTest = new PropertiesTree();
+		underTest.setRoot(new Node("root"));
+	}
+
+	@Test
+	public void testAdd_siblings() {
+		assertThat(underTest.add(Arrays.asList("a", "b", "c")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a", "b", "d")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a", "e")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("f")), is(equalTo(true)));
+
+		Node b = underTest.getRoot().getChild("a").getChild("b");
+		assertThat(b.getNumberOfChildren(), is(equalTo(2)));
+	}
+
+	@Test
+	public void testAdd_duplicated() {
+		assertThat(underTest.add(Arrays.asList("a", "b")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a", "b")), is(equalTo(false)));
+	}
+
+	@Test
+	public void testAdd_prefixCollision() {
+		assertThat(underTest.add(Arrays.asList("a", "b", "c")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a", "b")), is(equalTo(false)));
+	}
+
+	@Test
+	public void testAdd_extendsLeaf() {
+		assertThat(underTest.add(Arrays.asList("a", "b")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a", "b", "c")), is(equalTo(false)));
+	}
+
+	@Test
+	public void testAdd_nodeChain() {
+		Node a = new Node("a");
+		a.addChild(new Node("b"));
+
+		assertThat(underTest.add(a), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a")), is(equalTo(false)));
+	}
+}
@@ -0,0 +1,45 @@
+package com.rocketinsights.core.tree;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.rocketinsights.core.exception.InvalidFormatException;
+
+public class SortedPathValidatorTest {
+
+	private SortedPathValidator underTest;
+
+	@Before
+	public void setUp() {
+		underTest = new SortedPathValidator();
+	}
+
+	@Test
+	public void testAdd_sorted() {
+		assertThat(underTest.add(Arrays.asList("a", "b", "c")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a", "b", "d")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a", "c")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a0")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("b")), is(equalTo(true)));
+	}
+
+	@Test
+	public void testAdd_collisions() {
+		assertThat(underTest.add(Arrays.asList("a", "b")), is(equalTo(true)));
+		assertThat(underTest.add(Arrays.asList("a", "b")), is(equalTo(false)));
+		assertThat(underTest.add(Arrays.asList("a", "b", "c")), is(equalTo(false)));
+		assertThat(underTest.add(Arrays.asList("a")), is(equalTo(false)));
+	}
+
+	@Test(expected = InvalidFormatException.class)
+	public void testAdd_outOfOrder() {
+		underTest.add(Arrays.asList("b", "a"));
+		underTest.add(Arrays.asList("a", "b"));
+	}
+}
@@ -0,0 +1,28 @@
+package com.rocketinsights.metrics;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.rocketinsights.core.metrics.InMemoryParserMetrics;
+import com.rocketinsights.core.metrics.ParserMetricsMXBean;
+
+/**
+ * Declares the metrics conversions are meant to report to. Being a
+ * {@link ParserMetricsMXBean}, the bean is exported through JMX as long as
+ * <code>spring.jmx.enabled</code> is set.
+ * <p>
+ * This is an exposure point only: no conversion runs in this application yet,
+ * so the bean reads zero until the parsers it builds are given it through
+ * <code>DefaultParser.metering</code>.
+ * 
+ * @author fbonecco
+ *
+ */
+@Configuration
+public class MetricsConfiguration {
+
+	@Bean
+	public InMemoryParserMetrics parserMetrics() {
+		return new InMemoryParserMetrics();
+	}
+}